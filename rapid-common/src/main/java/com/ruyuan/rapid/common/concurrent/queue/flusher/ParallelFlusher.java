@@ -5,12 +5,15 @@ import java.util.concurrent.Executors;
 
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lmax.disruptor.AlertException;
 import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.ExceptionHandler;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.WorkerPool;
@@ -48,12 +51,12 @@ public class ParallelFlusher<E> implements Flusher<E> {
 		this.eventListener = builder.listener;
 		this.eventTranslator = new HolderEventTranslator();
 
-		// 3. 创建RingBuffer（核心组件初始化）
+		// 3. 创建RingBuffer（核心组件初始化）, 等待策略包装一层用于感知批次结束
 		this.ringBuffer = RingBuffer.create(
 				builder.producerType,   // 生产者类型
 				new HolderEventFactory(), // 事件工厂
 				builder.bufferSize,      // 缓冲区大小
-				builder.waitStrategy);   // 等待策略
+				new BatchEndWaitStrategy(builder.waitStrategy));   // 等待策略
 
 		// 4. 创建序列屏障（协调消费顺序）
 		SequenceBarrier sequenceBarrier = ringBuffer.newBarrier();
@@ -201,6 +204,10 @@ public class ParallelFlusher<E> implements Flusher<E> {
 		// 异常事件处理     Throwable ex：发生的异常    sequence：事件序号（用于追踪）    E event：出错的原始事件
 		void onException(Throwable ex, long sequence, E event) ;
 		
+		// 批次结束回调：消费线程已经处理完当前所有可用事件、即将进入等待时在该消费线程上调用, 可用于合并flush等批量操作
+		default void onBatchEnd() {
+		}
+		
 	}
 
 	//  构建器模式实现（配置入口）：
@@ -295,7 +302,7 @@ public class ParallelFlusher<E> implements Flusher<E> {
 	private class HolderWorkHandler implements WorkHandler<Holder> {
 
 		@Override
-		public void onEvent(ParallelFlusher<E>.Holder event) throws Exception {
+		public void onEvent(ParallelFlusher<E>.Holder holder) throws Exception {
 			eventListener.onEvent(holder.event);    // 处理业务事件
 			holder.setValue(null);              // 清空引用
 		}
@@ -330,6 +337,41 @@ public class ParallelFlusher<E> implements Flusher<E> {
 		
 	}
 
+	/**
+	 * <B>主类名称：</B>BatchEndWaitStrategy<BR>
+	 * <B>概要说明：</B>等待策略的包装: WorkProcessor只有在手上的可用事件全部处理完之后才会进入等待, 
+	 * 	此时如果下一个序号仍不可用, 说明当前消费线程的一个批次已经结束, 先回调onBatchEnd再真正等待<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午4:05:12
+	 */
+	private class BatchEndWaitStrategy implements WaitStrategy {
+		
+		private final WaitStrategy delegate;
+		
+		BatchEndWaitStrategy(WaitStrategy delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+				throws AlertException, InterruptedException, TimeoutException {
+			if(dependentSequence.get() < sequence) {
+				try {
+					eventListener.onBatchEnd();
+				} catch (Throwable t) {
+					// 忽略监听器自身的异常, 不能影响消费线程
+				}
+			}
+			return delegate.waitFor(sequence, cursor, dependentSequence, barrier);
+		}
+
+		@Override
+		public void signalAllWhenBlocking() {
+			delegate.signalAllWhenBlocking();
+		}
+		
+	}
+
 	// 完成 E -> Holder的类型转换
 	private class HolderEventTranslator implements EventTranslatorOneArg<Holder, E> {
 
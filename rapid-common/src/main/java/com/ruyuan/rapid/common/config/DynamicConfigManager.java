@@ -1,8 +1,12 @@
 package com.ruyuan.rapid.common.config;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ruyuan.rapid.common.util.PathPatternMatcher;
 
 /**
  * <B>主类名称：</B>DynamicConfigManager<BR>
@@ -15,12 +19,24 @@ public class DynamicConfigManager {
 	//	服务的定义集合：uniqueId代表服务的唯一标识
 	private ConcurrentHashMap<String /* uniqueId */ , ServiceDefinition>  serviceDefinitionMap = new ConcurrentHashMap<>();
 	
-	//	服务的实例集合：uniqueId与一对服务实例对应
-	private ConcurrentHashMap<String /* uniqueId */ , Set<ServiceInstance>>  serviceInstanceMap = new ConcurrentHashMap<>();
+	//	服务定义的路径匹配器：putServiceDefinition时按patternPath预编译, 服务定义删除或patternPath变化时失效
+	private ConcurrentHashMap<String /* uniqueId */ , PathPatternMatcher>  pathMatcherMap = new ConcurrentHashMap<>();
+	
+	//	全部服务定义invokerMap路径构建的路由树: 请求不携带uniqueId时按path查找
+	private RadixTreeRouter router = new RadixTreeRouter();
+	
+	//	服务的实例集合：uniqueId与一对服务实例对应, 每次变更整体替换为新的不可变快照
+	private ConcurrentHashMap<String /* uniqueId */ , ServiceInstanceSnapshot>  serviceInstanceMap = new ConcurrentHashMap<>();
+	
+	//	服务实例快照的版本号, 全局单调递增
+	private final AtomicLong instanceVersion = new AtomicLong();
 
 	//	规则集合
 	private ConcurrentHashMap<String /* ruleId */ , Rule>  ruleMap = new ConcurrentHashMap<>();
 	
+	//	规则的版本号, 全局单调递增: 规则每次放入都是新版本, 按版本缓存的过滤器配置随之失效
+	private final AtomicLong ruleVersion = new AtomicLong();
+	
 	private DynamicConfigManager() {
 	}
 	
@@ -38,15 +54,54 @@ public class DynamicConfigManager {
 	public void putServiceDefinition(String uniqueId, 
 			ServiceDefinition serviceDefinition) {
 		
-		serviceDefinitionMap.put(uniqueId, serviceDefinition);;
+		serviceDefinitionMap.put(uniqueId, serviceDefinition);
+		if(serviceDefinition.getPatternPath() != null) {
+			pathMatcherMap.put(uniqueId, PathPatternMatcher.compile(serviceDefinition.getPatternPath()));
+		} else {
+			pathMatcherMap.remove(uniqueId);
+		}
+		router.put(uniqueId, serviceDefinition);
 	}
 	
 	public ServiceDefinition getServiceDefinition(String uniqueId) {
 		return serviceDefinitionMap.get(uniqueId);
 	}
 	
+	/**
+	 * <B>方法名称：</B>getPathMatcher<BR>
+	 * <B>概要说明：</B>获取服务定义预编译的路径匹配器, patternPath被直接修改过时重新编译<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午5:40:12
+	 * @param uniqueId
+	 * @param serviceDefinition
+	 * @return PathPatternMatcher
+	 */
+	public PathPatternMatcher getPathMatcher(String uniqueId, ServiceDefinition serviceDefinition) {
+		String patternPath = serviceDefinition.getPatternPath();
+		PathPatternMatcher matcher = pathMatcherMap.get(uniqueId);
+		if(matcher == null || !matcher.getPattern().equals(patternPath)) {
+			matcher = PathPatternMatcher.compile(patternPath);
+			pathMatcherMap.put(uniqueId, matcher);
+		}
+		return matcher;
+	}
+	
 	public void removeServiceDefinition(String uniqueId) {
 		serviceDefinitionMap.remove(uniqueId);
+		pathMatcherMap.remove(uniqueId);
+		router.remove(uniqueId);
+	}
+	
+	/**
+	 * <B>方法名称：</B>getRoute<BR>
+	 * <B>概要说明：</B>按请求路径在全部服务定义中查找(服务定义, 服务调用)<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午11:02:47
+	 * @param path
+	 * @return 没有匹配时返回null
+	 */
+	public RadixTreeRouter.Route getRoute(String path) {
+		return router.lookup(path);
 	}
 	
 	public ConcurrentHashMap<String, ServiceDefinition> getServiceDefinitionMap() {
@@ -55,55 +110,105 @@ public class DynamicConfigManager {
 	
 	/***************** 	对服务实例缓存进行操作的系列方法 	***************/
 
-	public Set<ServiceInstance> getServiceInstanceByUniqueId(String uniqueId){
+	/**
+	 * <B>方法名称：</B>getServiceInstanceSnapshot<BR>
+	 * <B>概要说明：</B>获取服务实例的当前快照, 请求线程使用, 无锁无分配<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午2:20:33
+	 * @param uniqueId
+	 * @return 没有服务实例时返回null
+	 */
+	public ServiceInstanceSnapshot getServiceInstanceSnapshot(String uniqueId) {
 		return serviceInstanceMap.get(uniqueId);
 	}
 	
+	/**
+	 * <B>方法名称：</B>getServiceInstanceByUniqueId<BR>
+	 * <B>概要说明：</B>获取全部服务实例(含禁用), 只读<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午2:21:15
+	 * @param uniqueId
+	 * @return Set<ServiceInstance>
+	 */
+	public Set<ServiceInstance> getServiceInstanceByUniqueId(String uniqueId){
+		ServiceInstanceSnapshot snapshot = serviceInstanceMap.get(uniqueId);
+		return snapshot == null ? null : snapshot.getAllInstances();
+	}
+	
 	public void addServiceInstance(String uniqueId, ServiceInstance serviceInstance) {
-		Set<ServiceInstance> set = serviceInstanceMap.get(uniqueId);
-		set.add(serviceInstance);
+		serviceInstanceMap.compute(uniqueId, (key, snapshot) -> {
+			Set<ServiceInstance> set = copyOf(snapshot);
+			set.add(serviceInstance);
+			return newSnapshot(key, set);
+		});
 	}
 	
 	public void addServiceInstance(String uniqueId, Set<ServiceInstance> serviceInstanceSet) {
-		serviceInstanceMap.put(uniqueId, serviceInstanceSet);
+		serviceInstanceMap.put(uniqueId, newSnapshot(uniqueId, serviceInstanceSet));
 	}
 	
 	public void updateServiceInstance(String uniqueId, ServiceInstance serviceInstance) {
-		Set<ServiceInstance> set = serviceInstanceMap.get(uniqueId);
-		Iterator<ServiceInstance> it = set.iterator();
-		while(it.hasNext()) {
-			ServiceInstance is = it.next();
-			if(is.getServiceInstanceId().equals(serviceInstance.getServiceInstanceId())) {
-				it.remove();
-				break;
-			}
-		}
-		set.add(serviceInstance);
+		serviceInstanceMap.compute(uniqueId, (key, snapshot) -> {
+			Set<ServiceInstance> set = copyOf(snapshot);
+			//	equals按serviceInstanceId比较: 先删除旧实例再放入新实例
+			set.remove(serviceInstance);
+			set.add(serviceInstance);
+			return newSnapshot(key, set);
+		});
 	}
 	
 	public void removeServiceInstance(String uniqueId, String serviceInstanceId) {
-		Set<ServiceInstance> set = serviceInstanceMap.get(uniqueId);
-		Iterator<ServiceInstance> it = set.iterator();
-		while(it.hasNext()) {
-			ServiceInstance is = it.next();
-			if(is.getServiceInstanceId().equals(serviceInstanceId)) {
-				it.remove();
-				break;
+		serviceInstanceMap.computeIfPresent(uniqueId, (key, snapshot) -> {
+			Set<ServiceInstance> set = copyOf(snapshot);
+			Iterator<ServiceInstance> it = set.iterator();
+			while(it.hasNext()) {
+				ServiceInstance is = it.next();
+				if(is.getServiceInstanceId().equals(serviceInstanceId)) {
+					it.remove();
+					break;
+				}
 			}
-		}
+			return newSnapshot(key, set);
+		});
 	}
 	
 	public void removeServiceInstancesByUniqueId(String uniqueId) {
 		serviceInstanceMap.remove(uniqueId);
 	}
 	
-		
+	public ConcurrentHashMap<String, ServiceInstanceSnapshot> getServiceInstanceMap() {
+		return serviceInstanceMap;
+	}
+	
+	private static Set<ServiceInstance> copyOf(ServiceInstanceSnapshot snapshot) {
+		return snapshot == null ? new LinkedHashSet<>() : new LinkedHashSet<>(snapshot.getAllInstances());
+	}
+	
+	private ServiceInstanceSnapshot newSnapshot(String uniqueId, Set<ServiceInstance> serviceInstances) {
+		return new ServiceInstanceSnapshot(uniqueId, instanceVersion.incrementAndGet(), serviceInstances);
+	}
+	
+
 	/***************** 	对规则缓存进行操作的系列方法 	***************/
 	
 	public void putRule(String ruleId, Rule rule) {
+		if(rule.getVersion() == 0) {
+			rule.setVersion(nextRuleVersion());
+		}
 		ruleMap.put(ruleId, rule);
 	}
 	
+	/**
+	 * <B>方法名称：</B>nextRuleVersion<BR>
+	 * <B>概要说明：</B>分配一个新的规则版本号, 需要在规则发布前完成预处理时先分配版本再putRule<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午9:36:52
+	 * @return long
+	 */
+	public long nextRuleVersion() {
+		return ruleVersion.incrementAndGet();
+	}
+	
 	public Rule getRule(String ruleId) {
 		return ruleMap.get(ruleId);
 	}
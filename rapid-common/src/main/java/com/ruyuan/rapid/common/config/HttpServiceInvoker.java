@@ -8,4 +8,17 @@ package com.ruyuan.rapid.common.config;
  */
 public class HttpServiceInvoker extends AbstractServiceInvoker {
 
+	/**
+	 * 	是否以流式方式转发请求体: 不经过HttpObjectAggregator聚合, 边收边发(大文件上传等场景)
+	 */
+	private boolean streaming = false;
+
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 }
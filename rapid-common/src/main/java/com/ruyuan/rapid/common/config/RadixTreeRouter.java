@@ -0,0 +1,461 @@
+package com.ruyuan.rapid.common.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <B>主类名称：</B>RadixTreeRouter<BR>
+ * <B>概要说明：</B>基于全部服务定义invokerMap路径构建的全局基数树路由, 请求不携带uniqueId时按path直接找到(服务定义, 服务调用)<BR>
+ * 	路径语法(通配符必须独占一段):
+ * 	1. 普通路径按字符压缩存储, 例如 /order/create 与 /order/cancel 共享 /order/c 节点;
+ * 	2. {name} 或 * 匹配一段非空路径, 例如 /user/{id}/profile;
+ * 	3. ** 只能出现在末尾, 匹配剩余的任意路径, 例如 /static/** 匹配 /static/ 及其所有子路径;
+ * 	不满足以上语法的路径(例如 /a/*.js 或中间出现 **)按普通字符串处理, 与原来invokerMap.get(path)的精确匹配一致.
+ * 	优先级: 普通路径 > 单段变量 > 末尾 **, 前者匹配失败时回溯尝试后者.
+ * 	同一路径被多个服务定义注册时(例如同一服务的多个版本), uniqueId最大的生效(serviceId:version, 通常是高版本),
+ * 	与注册事件的先后无关, 所有网关节点的结果一致; 生效的服务定义被删除后由下一个接替.
+ * 	并发: 变更只在注册中心事件线程上发生(synchronized), 只复制根节点到变更节点这一条路径上的节点,
+ * 	最后一次性替换volatile根节点; 查找完全无锁, 看到的永远是某一次变更完成后的完整树.
+ * @author JiFeng
+ * @since 2021年12月25日 上午10:12:36
+ */
+public class RadixTreeRouter {
+
+	private static final int STATIC = 0;
+
+	private static final int PARAM = 1;
+
+	private static final int CATCH_ALL = 2;
+
+	private static final char SEPARATOR = '/';
+
+	//	路径中的通配符占位
+	private static final Object PARAM_TOKEN = new Object();
+
+	private static final Object CATCH_ALL_TOKEN = new Object();
+
+	private volatile Node root = new Node(STATIC, "");
+
+	//	每个服务定义注册过的路径, 用于增量删除
+	private final Map<String /* uniqueId */, List<String>> registeredPaths = new HashMap<>();
+
+	/**
+	 * <B>方法名称：</B>put<BR>
+	 * <B>概要说明：</B>注册或更新一个服务定义的全部路由, 更新时先删除旧路由再插入新路由, 对查找来说是一次原子切换<BR>
+	 * 	禁用的服务定义只删除不注册
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午10:20:18
+	 * @param uniqueId
+	 * @param serviceDefinition
+	 */
+	public synchronized void put(String uniqueId, ServiceDefinition serviceDefinition) {
+		Node newRoot = removeAll(root, uniqueId);
+		Map<String, ServiceInvoker> invokerMap = serviceDefinition.getInvokerMap();
+		if(serviceDefinition.isEnable() && invokerMap != null && !invokerMap.isEmpty()) {
+			List<String> paths = new ArrayList<>(invokerMap.size());
+			for(Map.Entry<String, ServiceInvoker> entry : invokerMap.entrySet()) {
+				if(entry.getKey() == null || entry.getValue() == null) {
+					continue;
+				}
+				Route route = new Route(uniqueId, serviceDefinition, entry.getValue());
+				newRoot = insert(newRoot, tokenize(entry.getKey()), 0, route);
+				paths.add(entry.getKey());
+			}
+			registeredPaths.put(uniqueId, paths);
+		}
+		root = newRoot;
+	}
+
+	/**
+	 * <B>方法名称：</B>remove<BR>
+	 * <B>概要说明：</B>删除一个服务定义的全部路由<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午10:21:40
+	 * @param uniqueId
+	 */
+	public synchronized void remove(String uniqueId) {
+		root = removeAll(root, uniqueId);
+	}
+
+	/**
+	 * <B>方法名称：</B>lookup<BR>
+	 * <B>概要说明：</B>按请求path查找路由, 一次自顶向下的匹配, 不分配对象<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午10:23:05
+	 * @param path 解码后的请求路径
+	 * @return 没有匹配时返回null
+	 */
+	public Route lookup(String path) {
+		if(path == null) {
+			return null;
+		}
+		return match(root, path, 0);
+	}
+
+	private static Route match(Node node, String path, int pos) {
+		switch (node.type) {
+			case STATIC:
+				if(!path.startsWith(node.prefix, pos)) {
+					return null;
+				}
+				pos += node.prefix.length();
+				break;
+			case PARAM:
+				int end = path.indexOf(SEPARATOR, pos);
+				if(end < 0) {
+					end = path.length();
+				}
+				if(end == pos) {
+					return null;
+				}
+				pos = end;
+				break;
+			default:
+				return node.route();
+		}
+		if(pos == path.length() && node.routes != null) {
+			return node.route();
+		}
+		if(pos < path.length()) {
+			Node child = node.child(path.charAt(pos));
+			if(child != null) {
+				Route route = match(child, path, pos);
+				if(route != null) {
+					return route;
+				}
+			}
+		}
+		if(node.param != null) {
+			Route route = match(node.param, path, pos);
+			if(route != null) {
+				return route;
+			}
+		}
+		return node.catchAll == null ? null : node.catchAll.route();
+	}
+
+	/**
+	 * 	把路径拆成静态字符串与通配符: /user/{id}/profile -> "/user/", PARAM, "/profile"
+	 */
+	private static Object[] tokenize(String path) {
+		List<Object> tokens = new ArrayList<>();
+		String[] segments = path.split(String.valueOf(SEPARATOR), -1);
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < segments.length; i++) {
+			String segment = segments[i];
+			Object wildcard = null;
+			if(i > 0) {
+				if("**".equals(segment) && i == segments.length - 1) {
+					wildcard = CATCH_ALL_TOKEN;
+				} else if("*".equals(segment)
+						|| (segment.length() > 2 && segment.charAt(0) == '{' && segment.indexOf('}') == segment.length() - 1)) {
+					wildcard = PARAM_TOKEN;
+				}
+			}
+			if(wildcard == null) {
+				text.append(segment);
+				if(i < segments.length - 1) {
+					text.append(SEPARATOR);
+				}
+				continue;
+			}
+			if(text.length() > 0) {
+				tokens.add(text.toString());
+				text.setLength(0);
+			}
+			tokens.add(wildcard);
+			if(i < segments.length - 1) {
+				text.append(SEPARATOR);
+			}
+		}
+		if(text.length() > 0) {
+			tokens.add(text.toString());
+		}
+		return tokens.toArray();
+	}
+
+	/**
+	 * 	在node(已复制或新建之前的原节点)之后插入tokens[index..], 返回替换node的新节点
+	 */
+	private static Node insert(Node node, Object[] tokens, int index, Route route) {
+		Node copy = node.copy();
+		if(index == tokens.length) {
+			copy.addRoute(route);
+			return copy;
+		}
+		Object token = tokens[index];
+		if(token == PARAM_TOKEN) {
+			copy.param = insert(copy.param == null ? new Node(PARAM, null) : copy.param, tokens, index + 1, route);
+		} else if(token == CATCH_ALL_TOKEN) {
+			copy.catchAll = insert(copy.catchAll == null ? new Node(CATCH_ALL, null) : copy.catchAll, tokens, index + 1, route);
+		} else {
+			copy.setChild(insertStatic(copy, (String)token, 0, tokens, index, route));
+		}
+		return copy;
+	}
+
+	/**
+	 * 	把静态字符串text[offset..]插入到parent的普通子节点中, 必要时拆分已有节点, 返回新的子节点
+	 */
+	private static Node insertStatic(Node parent, String text, int offset, Object[] tokens, int index, Route route) {
+		Node child = parent.child(text.charAt(offset));
+		if(child == null) {
+			return insert(new Node(STATIC, text.substring(offset)), tokens, index + 1, route);
+		}
+		String prefix = child.prefix;
+		int max = Math.min(prefix.length(), text.length() - offset);
+		int common = 0;
+		while(common < max && prefix.charAt(common) == text.charAt(offset + common)) {
+			common++;
+		}
+		Node node;
+		if(common < prefix.length()) {
+			//	拆分: 公共前缀成为新节点, 原节点剩余部分作为它的子节点
+			node = new Node(STATIC, prefix.substring(0, common));
+			Node rest = child.copy();
+			rest.prefix = prefix.substring(common);
+			node.setChild(rest);
+		} else {
+			node = child.copy();
+		}
+		offset += common;
+		if(offset == text.length()) {
+			return insert(node, tokens, index + 1, route);
+		}
+		node.setChild(insertStatic(node, text, offset, tokens, index, route));
+		return node;
+	}
+
+	private Node removeAll(Node current, String uniqueId) {
+		List<String> paths = registeredPaths.remove(uniqueId);
+		if(paths == null) {
+			return current;
+		}
+		for(String path : paths) {
+			Node node = remove(current, tokenize(path), 0, null, 0, uniqueId);
+			current = node == null ? new Node(STATIC, "") : node;
+		}
+		return current;
+	}
+
+	/**
+	 * 	沿插入时的路径删除uniqueId对应的路由, 返回替换node的新节点, 节点变空时返回null, 只剩一个普通子节点时与其合并
+	 * 	text/offset: 当前正在匹配的静态字符串及其位置, node为静态节点时使用
+	 */
+	private static Node remove(Node node, Object[] tokens, int index, String text, int offset, String uniqueId) {
+		Node copy = node.copy();
+		if(node.type == STATIC) {
+			if(text == null) {
+				//	根节点
+				text = "";
+			}
+			if(!text.startsWith(node.prefix, offset)) {
+				return node;
+			}
+			offset += node.prefix.length();
+			if(offset < text.length()) {
+				Node child = node.child(text.charAt(offset));
+				if(child == null) {
+					return node;
+				}
+				copy.replaceChild(child, remove(child, tokens, index, text, offset, uniqueId));
+				return copy.compact();
+			}
+		}
+		if(index == tokens.length) {
+			copy.removeRoute(uniqueId);
+			return copy.compact();
+		}
+		Object token = tokens[index];
+		if(token == PARAM_TOKEN) {
+			if(node.param != null) {
+				copy.param = remove(node.param, tokens, index + 1, null, 0, uniqueId);
+			}
+		} else if(token == CATCH_ALL_TOKEN) {
+			if(node.catchAll != null) {
+				copy.catchAll = remove(node.catchAll, tokens, index + 1, null, 0, uniqueId);
+			}
+		} else {
+			String next = (String)token;
+			Node child = node.child(next.charAt(0));
+			if(child == null) {
+				return node;
+			}
+			copy.replaceChild(child, remove(child, tokens, index + 1, next, 0, uniqueId));
+		}
+		return copy.compact();
+	}
+
+	/**
+	 * <B>主类名称：</B>Route<BR>
+	 * <B>概要说明：</B>路由查找结果<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午10:15:50
+	 */
+	public static class Route {
+
+		private final String uniqueId;
+
+		private final ServiceDefinition serviceDefinition;
+
+		private final ServiceInvoker serviceInvoker;
+
+		public Route(String uniqueId, ServiceDefinition serviceDefinition, ServiceInvoker serviceInvoker) {
+			this.uniqueId = uniqueId;
+			this.serviceDefinition = serviceDefinition;
+			this.serviceInvoker = serviceInvoker;
+		}
+
+		public String getUniqueId() {
+			return uniqueId;
+		}
+
+		public ServiceDefinition getServiceDefinition() {
+			return serviceDefinition;
+		}
+
+		public ServiceInvoker getServiceInvoker() {
+			return serviceInvoker;
+		}
+
+	}
+
+	/**
+	 * 	树节点: 发布之后不再修改, 变更时复制
+	 */
+	private static final class Node {
+
+		private final int type;
+
+		//	普通节点压缩的字符串
+		private String prefix;
+
+		//	普通子节点首字符, 与children一一对应
+		private char[] indices = new char[0];
+
+		private Node[] children = new Node[0];
+
+		private Node param;
+
+		private Node catchAll;
+
+		//	在此结束的路由, 按uniqueId从大到小排列, 第一个生效
+		private Route[] routes;
+
+		Node(int type, String prefix) {
+			this.type = type;
+			this.prefix = prefix;
+		}
+
+		Node copy() {
+			Node copy = new Node(type, prefix);
+			copy.indices = indices;
+			copy.children = children;
+			copy.param = param;
+			copy.catchAll = catchAll;
+			copy.routes = routes;
+			return copy;
+		}
+
+		Route route() {
+			return routes == null ? null : routes[0];
+		}
+
+		Node child(char c) {
+			for(int i = 0; i < indices.length; i++) {
+				if(indices[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		//	新增或替换首字符相同的普通子节点, 复制数组
+		void setChild(Node child) {
+			char c = child.prefix.charAt(0);
+			for(int i = 0; i < indices.length; i++) {
+				if(indices[i] == c) {
+					children = children.clone();
+					children[i] = child;
+					return;
+				}
+			}
+			indices = Arrays.copyOf(indices, indices.length + 1);
+			indices[indices.length - 1] = c;
+			children = Arrays.copyOf(children, children.length + 1);
+			children[children.length - 1] = child;
+		}
+
+		void replaceChild(Node oldChild, Node newChild) {
+			for(int i = 0; i < children.length; i++) {
+				if(children[i] == oldChild) {
+					if(newChild != null) {
+						children = children.clone();
+						children[i] = newChild;
+						return;
+					}
+					char[] newIndices = new char[indices.length - 1];
+					Node[] newChildren = new Node[children.length - 1];
+					System.arraycopy(indices, 0, newIndices, 0, i);
+					System.arraycopy(indices, i + 1, newIndices, i, indices.length - i - 1);
+					System.arraycopy(children, 0, newChildren, 0, i);
+					System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+					indices = newIndices;
+					children = newChildren;
+					return;
+				}
+			}
+		}
+
+		void addRoute(Route route) {
+			if(routes == null) {
+				routes = new Route[] { route };
+				return;
+			}
+			int index = 0;
+			while(index < routes.length && routes[index].getUniqueId().compareTo(route.getUniqueId()) > 0) {
+				index++;
+			}
+			Route[] newRoutes = new Route[routes.length + 1];
+			System.arraycopy(routes, 0, newRoutes, 0, index);
+			newRoutes[index] = route;
+			System.arraycopy(routes, index, newRoutes, index + 1, routes.length - index);
+			routes = newRoutes;
+		}
+
+		void removeRoute(String uniqueId) {
+			if(routes == null) {
+				return;
+			}
+			List<Route> list = new ArrayList<>(routes.length);
+			for(Route route : routes) {
+				if(!route.getUniqueId().equals(uniqueId)) {
+					list.add(route);
+				}
+			}
+			routes = list.isEmpty() ? null : list.toArray(new Route[list.size()]);
+		}
+
+		/**
+		 * 	删除之后的整理: 空节点返回null; 没有路由和通配符、只有一个普通子节点的普通节点与子节点合并
+		 */
+		Node compact() {
+			if(routes != null || param != null || catchAll != null) {
+				return this;
+			}
+			if(children.length == 0) {
+				return null;
+			}
+			if(type == STATIC && children.length == 1 && !prefix.isEmpty()) {
+				Node merged = children[0].copy();
+				merged.prefix = prefix + merged.prefix;
+				return merged;
+			}
+			return this;
+		}
+	}
+
+}
@@ -30,6 +30,9 @@ public class Rule implements Comparable<Rule>, Serializable {
 	//	规则集合定义
 	private Set<Rule.FilterConfig> filterConfigs = new HashSet<>();
 	
+	//	规则版本号: 放入DynamicConfigManager时分配, 全局单调递增, 不参与序列化; 0表示没有经过DynamicConfigManager
+	private transient long version;
+	
 	public Rule() {
 		super();
 	}
@@ -194,5 +197,13 @@ public class Rule implements Comparable<Rule>, Serializable {
 	public void setFilterConfigs(Set<Rule.FilterConfig> filterConfigs) {
 		this.filterConfigs = filterConfigs;
 	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
 	
 }
@@ -0,0 +1,82 @@
+package com.ruyuan.rapid.common.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <B>主类名称：</B>ServiceInstanceSnapshot<BR>
+ * <B>概要说明：</B>某个服务定义下服务实例集合的不可变快照<BR>
+ * 	服务实例每次变更都生成一个新的快照并整体替换(copy-on-write), 请求线程拿到快照后无锁、无分配地遍历,
+ * 	不会与注册中心的变更线程产生ConcurrentModificationException.
+ * 	version在DynamicConfigManager内全局单调递增, 实例集合相同的两个快照也可以用version区分先后,
+ * 	负载均衡等按实例集合缓存计算结果的地方可以用(uniqueId, version)判断缓存是否过期.
+ * @author JiFeng
+ * @since 2021年12月25日 下午2:10:26
+ */
+public final class ServiceInstanceSnapshot {
+
+	//	临时生成的快照(例如由dubbo invokers转换而来)没有版本号, 不能作为缓存的键
+	public static final long UNVERSIONED = -1L;
+	
+	private static final ServiceInstance[] EMPTY = new ServiceInstance[0];
+
+	private final String uniqueId;
+
+	private final long version;
+
+	//	全部实例(含禁用), 只读
+	private final Set<ServiceInstance> allInstances;
+
+	//	启用的实例, 负载均衡直接使用, 调用方不能修改
+	private final ServiceInstance[] instances;
+
+	public ServiceInstanceSnapshot(String uniqueId, long version, Collection<? extends ServiceInstance> serviceInstances) {
+		this.uniqueId = uniqueId;
+		this.version = version;
+		Set<ServiceInstance> all = new LinkedHashSet<>(serviceInstances);
+		List<ServiceInstance> enabled = new ArrayList<>(all.size());
+		for(ServiceInstance serviceInstance : all) {
+			if(serviceInstance.isEnable()) {
+				enabled.add(serviceInstance);
+			}
+		}
+		this.allInstances = Collections.unmodifiableSet(all);
+		this.instances = enabled.isEmpty() ? EMPTY : enabled.toArray(new ServiceInstance[enabled.size()]);
+	}
+
+	public String getUniqueId() {
+		return uniqueId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Set<ServiceInstance> getAllInstances() {
+		return allInstances;
+	}
+
+	/**
+	 * <B>方法名称：</B>getInstances<BR>
+	 * <B>概要说明：</B>启用的服务实例, 返回内部数组本身(不复制), 只能读取<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午2:12:48
+	 * @return ServiceInstance[]
+	 */
+	public ServiceInstance[] getInstances() {
+		return instances;
+	}
+
+	public int size() {
+		return instances.length;
+	}
+
+	public boolean isEmpty() {
+		return instances.length == 0;
+	}
+
+}
@@ -12,10 +12,34 @@ public interface RapidBufferHelper {
 	
 	String MPMC = "MPMC";
 	
+	//	虚拟线程模式: 不经过缓冲队列, 每个请求一个虚拟线程
+	String VIRTUAL = "VIRTUAL";
+	
 	static boolean isMpmc(String bufferType) {return MPMC.equals(bufferType);}
 	
+	static boolean isVirtual(String bufferType) {
+		return VIRTUAL.equals(bufferType);
+	}
+	
 	static boolean isFlusher(String bufferType) {
 		return FLUSHER.equals(bufferType);
 	}
 	
+	//	缓冲区溢出策略: 阻塞等待(put)
+	String OVERFLOW_BLOCK = "block";
+	
+	//	缓冲区溢出策略: 快速返回503
+	String OVERFLOW_REJECT = "reject";
+	
+	//	缓冲区溢出策略: 关闭连接的autoRead, 队列回落到低水位后恢复
+	String OVERFLOW_PAUSE = "pause";
+	
+	static boolean isOverflowReject(String overflowPolicy) {
+		return OVERFLOW_REJECT.equals(overflowPolicy);
+	}
+	
+	static boolean isOverflowPause(String overflowPolicy) {
+		return OVERFLOW_PAUSE.equals(overflowPolicy);
+	}
+	
 }
@@ -0,0 +1,30 @@
+package com.ruyuan.rapid.common.enums;
+
+/**
+ * <B>主类名称：</B>HashKeySource<BR>
+ * <B>概要说明：</B>一致性哈希负载均衡的哈希键来源<BR>
+ * @author JiFeng
+ * @since 2021年12月26日 下午6:02:11
+ */
+public enum HashKeySource {
+	
+    HEADER("HEADER","请求头, 键名由hashKeyName指定"),
+    COOKIE("COOKIE","cookie, 键名由hashKeyName指定"),
+    CLIENT_IP("CLIENT_IP","客户端IP");
+
+    private String val;
+    private String desc;
+
+    HashKeySource(String val, String desc) {
+        this.val = val;
+        this.desc = desc;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
@@ -3,7 +3,10 @@ package com.ruyuan.rapid.common.enums;
 public enum LoadBalanceStrategy {
 	
     RANDOM("RANDOM","随机负载均衡策略"),
-    ROUND_ROBIN("ROUND_ROBIN","轮询负载均衡策略");
+    ROUND_ROBIN("ROUND_ROBIN","轮询负载均衡策略"),
+    LEAST_OUTSTANDING("LEAST_OUTSTANDING","最少在途请求负载均衡策略"),
+    P2C_PEAK_EWMA("P2C_PEAK_EWMA","两次随机选择+峰值EWMA时延负载均衡策略"),
+    CONSISTENT_HASH("CONSISTENT_HASH","一致性哈希(Maglev)负载均衡策略");
 
     private String val;
     private String desc;
@@ -0,0 +1,398 @@
+package com.ruyuan.rapid.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * <B>主类名称：</B>PathPatternMatcher<BR>
+ * <B>概要说明：</B>预编译的ANT路径匹配器, 匹配结果与AntPathMatcher.match(pattern, path)一致<BR>
+ * 	编译时把pattern按'/'切分为段并确定每段的类型(字面量、*、**、只含?和*的通配、含{}的URI模板),
+ * 	匹配时只在path上按下标扫描, 不再切分字符串和查缓存; 只有URI模板段才落到正则.
+ * 	没有通配符的pattern先做一次字符串相等比较; **只出现在末尾(或没有**)的pattern只需从前往后扫描一遍path, 不分配任何对象.
+ * 	实例不可变, 线程安全.
+ * @author JiFeng
+ * @since 2021年12月24日 下午5:10:26
+ */
+public final class PathPatternMatcher {
+
+	private static final String SEPARATOR = "/";
+
+	private static final char SEPARATOR_CHAR = '/';
+
+	private final String pattern;
+
+	private final boolean absolute;
+
+	private final boolean trailingSeparator;
+
+	//	pattern中没有任何通配符
+	private final boolean literal;
+
+	//	**只出现在末尾或者没有**: 可以只从前往后匹配
+	private final boolean forward;
+
+	private final Segment[] segments;
+
+	private PathPatternMatcher(String pattern) {
+		this.pattern = pattern;
+		this.absolute = pattern.startsWith(SEPARATOR);
+		this.trailingSeparator = pattern.endsWith(SEPARATOR);
+		List<Segment> list = new ArrayList<>();
+		boolean literal = true;
+		StringTokenizer st = new StringTokenizer(pattern, SEPARATOR);
+		while(st.hasMoreTokens()) {
+			Segment segment = Segment.compile(st.nextToken());
+			literal &= segment.type == Segment.LITERAL;
+			list.add(segment);
+		}
+		this.literal = literal;
+		this.segments = list.toArray(new Segment[list.size()]);
+		int firstDoubleStar = segments.length;
+		for(int i = 0; i < segments.length; i++) {
+			if(segments[i].type == Segment.DOUBLE_STAR) {
+				firstDoubleStar = i;
+				break;
+			}
+		}
+		this.forward = onlyDoubleStar(firstDoubleStar, segments.length - 1);
+	}
+
+	/**
+	 * <B>方法名称：</B>compile<BR>
+	 * <B>概要说明：</B>编译ANT表达式<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午5:12:40
+	 * @param pattern
+	 * @return PathPatternMatcher
+	 */
+	public static PathPatternMatcher compile(String pattern) {
+		AssertUtil.notNull(pattern, "pattern must not be null");
+		return new PathPatternMatcher(pattern);
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * <B>方法名称：</B>match<BR>
+	 * <B>概要说明：</B>完整匹配, 语义同AntPathMatcher.match<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午5:13:22
+	 * @param path
+	 * @return boolean
+	 */
+	public boolean match(String path) {
+		if(path == null || path.startsWith(SEPARATOR) != absolute) {
+			return false;
+		}
+		if(literal && path.equals(pattern)) {
+			return true;
+		}
+		if(forward) {
+			return matchForward(path);
+		}
+		int[] pathDirs = tokenize(path);
+		int pattIdxStart = 0;
+		int pattIdxEnd = segments.length - 1;
+		int pathIdxStart = 0;
+		int pathIdxEnd = pathDirs.length / 2 - 1;
+
+		//	第一个**之前的段
+		while(pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+			Segment segment = segments[pattIdxStart];
+			if(segment.type == Segment.DOUBLE_STAR) {
+				break;
+			}
+			if(!segment.match(path, pathDirs, pathIdxStart)) {
+				return false;
+			}
+			pattIdxStart++;
+			pathIdxStart++;
+		}
+
+		if(pathIdxStart > pathIdxEnd) {
+			//	path已经用完, 剩下的pattern只能是*或者**
+			if(pattIdxStart > pattIdxEnd) {
+				return trailingSeparator == path.endsWith(SEPARATOR);
+			}
+			if(pattIdxStart == pattIdxEnd && segments[pattIdxStart].type == Segment.STAR && path.endsWith(SEPARATOR)) {
+				return true;
+			}
+			return onlyDoubleStar(pattIdxStart, pattIdxEnd);
+		} else if(pattIdxStart > pattIdxEnd) {
+			return false;
+		}
+
+		//	最后一个**之后的段
+		while(pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+			Segment segment = segments[pattIdxEnd];
+			if(segment.type == Segment.DOUBLE_STAR) {
+				break;
+			}
+			if(!segment.match(path, pathDirs, pathIdxEnd)) {
+				return false;
+			}
+			pattIdxEnd--;
+			pathIdxEnd--;
+		}
+		if(pathIdxStart > pathIdxEnd) {
+			return onlyDoubleStar(pattIdxStart, pattIdxEnd);
+		}
+
+		//	两个**之间的段在path中顺序查找
+		while(pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+			int patIdxTmp = -1;
+			for(int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+				if(segments[i].type == Segment.DOUBLE_STAR) {
+					patIdxTmp = i;
+					break;
+				}
+			}
+			if(patIdxTmp == pattIdxStart + 1) {
+				//	'**/**'的情况, 跳过一个
+				pattIdxStart++;
+				continue;
+			}
+			int patLength = patIdxTmp - pattIdxStart - 1;
+			int strLength = pathIdxEnd - pathIdxStart + 1;
+			int foundIdx = -1;
+			strLoop:
+			for(int i = 0; i <= strLength - patLength; i++) {
+				for(int j = 0; j < patLength; j++) {
+					if(!segments[pattIdxStart + j + 1].match(path, pathDirs, pathIdxStart + i + j)) {
+						continue strLoop;
+					}
+				}
+				foundIdx = pathIdxStart + i;
+				break;
+			}
+			if(foundIdx == -1) {
+				return false;
+			}
+			pattIdxStart = patIdxTmp;
+			pathIdxStart = foundIdx + patLength;
+		}
+		return onlyDoubleStar(pattIdxStart, pattIdxEnd);
+	}
+
+	/**
+	 * 	与match中第一个循环及其后的判断相同, 直接在path上按下标前进;
+	 * 	剩余pattern全是**且path还有剩余段时, 完整算法的结果必然是true
+	 */
+	private boolean matchForward(String path) {
+		int length = path.length();
+		int pos = 0;
+		int pattIdx = 0;
+		int pattIdxEnd = segments.length - 1;
+		while(true) {
+			while(pos < length && path.charAt(pos) == SEPARATOR_CHAR) {
+				pos++;
+			}
+			if(pos >= length) {
+				//	path已经用完
+				if(pattIdx > pattIdxEnd) {
+					return trailingSeparator == path.endsWith(SEPARATOR);
+				}
+				if(pattIdx == pattIdxEnd && segments[pattIdx].type == Segment.STAR && path.endsWith(SEPARATOR)) {
+					return true;
+				}
+				return onlyDoubleStar(pattIdx, pattIdxEnd);
+			}
+			if(pattIdx > pattIdxEnd) {
+				return false;
+			}
+			Segment segment = segments[pattIdx];
+			if(segment.type == Segment.DOUBLE_STAR) {
+				return true;
+			}
+			int end = path.indexOf(SEPARATOR_CHAR, pos);
+			if(end < 0) {
+				end = length;
+			}
+			if(!segment.match(path, pos, end)) {
+				return false;
+			}
+			pattIdx++;
+			pos = end;
+		}
+	}
+
+	private boolean onlyDoubleStar(int from, int to) {
+		for(int i = from; i <= to; i++) {
+			if(segments[i].type != Segment.DOUBLE_STAR) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 	按'/'切分path, 忽略空段, 返回[start0, end0, start1, end1, ...]
+	 */
+	private static int[] tokenize(String path) {
+		int length = path.length();
+		int count = 0;
+		boolean inSegment = false;
+		for(int i = 0; i < length; i++) {
+			if(path.charAt(i) == SEPARATOR_CHAR) {
+				inSegment = false;
+			} else if(!inSegment) {
+				inSegment = true;
+				count++;
+			}
+		}
+		int[] dirs = new int[count * 2];
+		int index = 0;
+		int start = -1;
+		for(int i = 0; i < length; i++) {
+			if(path.charAt(i) == SEPARATOR_CHAR) {
+				if(start >= 0) {
+					dirs[index++] = start;
+					dirs[index++] = i;
+					start = -1;
+				}
+			} else if(start < 0) {
+				start = i;
+			}
+		}
+		if(start >= 0) {
+			dirs[index++] = start;
+			dirs[index] = length;
+		}
+		return dirs;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	/**
+	 * <B>主类名称：</B>Segment<BR>
+	 * <B>概要说明：</B>编译后的pattern段<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午5:15:02
+	 */
+	private static final class Segment {
+
+		static final int LITERAL = 0;
+
+		static final int STAR = 1;
+
+		static final int DOUBLE_STAR = 2;
+
+		//	只含字面量与?、*
+		static final int GLOB = 3;
+
+		//	含URI模板{}, 交给AntPathStringMatcher的正则
+		static final int TEMPLATE = 4;
+
+		final int type;
+
+		final String text;
+
+		final AntPathMatcher.AntPathStringMatcher stringMatcher;
+
+		private Segment(int type, String text, AntPathMatcher.AntPathStringMatcher stringMatcher) {
+			this.type = type;
+			this.text = text;
+			this.stringMatcher = stringMatcher;
+		}
+
+		static Segment compile(String text) {
+			if("**".equals(text)) {
+				return new Segment(DOUBLE_STAR, text, null);
+			}
+			if("*".equals(text)) {
+				return new Segment(STAR, text, null);
+			}
+			if(text.indexOf('{') >= 0) {
+				return new Segment(TEMPLATE, text, new AntPathMatcher.AntPathStringMatcher(text, true));
+			}
+			if(text.indexOf('*') >= 0 || text.indexOf('?') >= 0) {
+				return new Segment(GLOB, text, null);
+			}
+			return new Segment(LITERAL, text, null);
+		}
+
+		boolean match(String path, int[] dirs, int index) {
+			return match(path, dirs[index * 2], dirs[index * 2 + 1]);
+		}
+
+		boolean match(String path, int start, int end) {
+			switch (type) {
+				case LITERAL:
+					return end - start == text.length() && path.regionMatches(start, text, 0, text.length());
+				case STAR:
+					return noLineTerminator(path, start, end);
+				case DOUBLE_STAR:
+					return true;
+				case GLOB:
+					return glob(path, start, end);
+				default:
+					return stringMatcher.matchStrings(path.substring(start, end), null);
+			}
+		}
+
+		/**
+		 * 	'?'匹配一个字符, '*'匹配任意个字符; 与正则的'.'一致, 都不匹配换行等行结束符
+		 */
+		private boolean glob(String path, int start, int end) {
+			int p = 0;
+			int s = start;
+			int starP = -1;
+			int starS = -1;
+			int length = text.length();
+			while(s < end) {
+				char c = path.charAt(s);
+				if(p < length) {
+					char pc = text.charAt(p);
+					if(pc == '*') {
+						starP = p++;
+						starS = s;
+						continue;
+					}
+					if(pc == '?' ? !isLineTerminator(c) : pc == c) {
+						p++;
+						s += pc == '?' ? charCount(path, s, end) : 1;
+						continue;
+					}
+				}
+				//	回到上一个*多吞一个字符
+				if(starP >= 0 && !isLineTerminator(path.charAt(starS))) {
+					p = starP + 1;
+					starS += charCount(path, starS, end);
+					s = starS;
+					continue;
+				}
+				return false;
+			}
+			while(p < length && text.charAt(p) == '*') {
+				p++;
+			}
+			return p == length;
+		}
+
+		//	正则按码点匹配, 代理对算一个字符
+		private static int charCount(String path, int index, int end) {
+			return Character.isHighSurrogate(path.charAt(index)) && index + 1 < end 
+					&& Character.isLowSurrogate(path.charAt(index + 1)) ? 2 : 1;
+		}
+
+		private static boolean noLineTerminator(String path, int start, int end) {
+			for(int i = start; i < end; i++) {
+				if(isLineTerminator(path.charAt(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean isLineTerminator(char c) {
+			return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+		}
+	}
+
+}
@@ -40,30 +40,109 @@ public class RapidConfig {
 	// 	Netty的Boss线程数
 	private int eventLoopGroupBossNum = 1;
 	
+	//	SO_REUSEPORT监听的socket数量(仅EPOLL模式): 大于1时绑定多个监听socket, 每个socket由独立的Boss线程accept, 由内核分散新连接
+	private int reusePortAcceptorNum = 1;
+	
 	//	Netty的Work线程数
 	private int eventLoopGroupWorkNum = processThread;
 	
 	//	是否开启EPOLL
 	private boolean useEPoll = true;
 	
+	//	是否开启io_uring: 优先于EPOLL, 需要classpath中有netty-incubator-transport-native-io_uring且内核支持, 否则自动回退
+	private boolean useIoUring = false;
+	
 	//	是否开启Netty内存分配机制
 	private boolean nettyAllocator = true;
 	
 	//	http body报文最大大小
 	private int maxContentLength = 64 * 1024 * 1024;
 	
+	//	是否开启流式转发模式: 开启后标记为streaming的http路由不再聚合请求体, 边收边转发
+	private boolean httpStreamingEnabled = false;
+	
+	//	流式转发时单个请求允许积压的请求体字节数, 超过后暂停读取客户端数据(背压)
+	private int httpStreamingBufferSize = 256 * 1024;
+	
+	//	是否开启响应流式转发: SSE、未知长度或超过阈值的下游响应边收边写回客户端
+	private boolean httpResponseStreamingEnabled = false;
+	
+	//	响应流式转发的长度阈值, 默认1M
+	private long httpResponseStreamingThreshold = 1024 * 1024;
+	
+	//	是否开启HTTP/2: 明文连接支持h2c(prior knowledge与Upgrade), 配置证书后通过ALPN协商h2
+	private boolean http2Enabled = false;
+	
+	//	HTTP/2单连接最大并发流数量
+	private int http2MaxConcurrentStreams = 256;
+	
+	//	HTTP/2流级别的初始流控窗口大小
+	private int http2InitialWindowSize = 1024 * 1024;
+	
+	//	HTTP/2连接级别的流控窗口大小
+	private int http2ConnectionWindowSize = 16 * 1024 * 1024;
+	
+	//	TLS证书文件(PEM), 与私钥同时配置时开启TLS
+	private String sslCertificatePath = "";
+	
+	//	TLS私钥文件(PKCS#8 PEM)
+	private String sslPrivateKeyPath = "";
+	
+	//	是否开启flush合并: 同一EventLoop一轮执行中的多次flush合并为一次系统调用
+	private boolean flushConsolidationEnabled = true;
+	
+	//	flush合并的上限: 连续合并多少次flush后强制flush一次, flusher模式下同时作为一个批次最多积攒的写次数
+	private int flushConsolidationMaxFlushes = 256;
+	
+	//	flusher模式下一个批次中第一次写出后最多等待多久(微秒)强制flush, 队列持续积压时响应不会一直等到批次结束
+	private long flushConsolidationMaxDelayMicros = 1000;
+	
+	//	是否开启对象池: HttpRequestWrapper/RapidRequest/RapidContext按线程(EventLoop)复用, 请求生命周期结束时回收
+	//	RapidRequest/RapidContext在处理线程上获取, VIRTUAL模式下每个请求都是新的虚拟线程, 线程本地的对象池无法复用, 
+	//	因此VIRTUAL模式(未开启线程亲和时)只池化EventLoop上获取的HttpRequestWrapper, 见isContextPoolEnabled
+	private boolean objectPoolEnabled = false;
+	
+	//	是否开启路径路由: 请求头中没有uniqueId时, 按请求path在全部服务定义的路由树中查找服务定义和服务调用(兼容不传uniqueId的老客户端)
+	private boolean pathRoutingEnabled = false;
+	
+	//	是否开启过滤器流水线: 按规则展开只包含启用过滤器的数组并循环驱动执行, 关闭时使用链表递归执行
+	private boolean filterPipelineEnabled = true;
+	
+	//	规则过滤器执行计划缓存的最大条目数(每个规则一条)
+	private long filterConfigCacheMaximumSize = 10000;
+	
+	//	定时输出执行计划缓存命中统计的周期(秒), 不大于0时不输出
+	private long filterConfigCacheStatsInterval = 60;
+	
+	//	ByteBuf泄漏检测级别: DISABLED / SIMPLE / ADVANCED / PARANOID, 为空时沿用netty默认(-Dio.netty.leakDetection.level)
+	//	压测或排查请求体泄漏时可调为PARANOID, 每个ByteBuf都跟踪
+	private String leakDetectionLevel = "";
+	
 	//	dubbo开启连接数数量
 	private int dubboConnections = processThread;
 	
 	//	设置响应模式, 默认是单异步模式：CompletableFuture回调处理结果： whenComplete  or  whenCompleteAsync
 	private boolean whenComplete = true;
 	
-	//	网关队列配置：缓冲模式；
+	//	是否开启线程亲和模式(thread-per-core): 请求在接入的EventLoop上直接处理(忽略bufferType), 
+	//	下游连接池按EventLoop划分, 响应回调也在同一EventLoop上完成
+	private boolean eventLoopAffinityEnabled = false;
+	
+	//	网关队列配置：缓冲模式；FLUSHER / MPMC / VIRTUAL(虚拟线程) / 其他值为不缓冲直接处理
 	private String bufferType = RapidBufferHelper.MPMC; // RapidBufferHelper.FLUSHER;
 	
 	//	网关队列：内存队列大小
 	private int bufferSize = 1024 * 16;
 	
+	//	网关队列：溢出策略 block(阻塞put) / reject(快速返回503) / pause(暂停读取连接), 默认block
+	private String bufferOverflowPolicy = RapidBufferHelper.OVERFLOW_BLOCK;
+	
+	//	网关队列：高水位, 队列长度达到该值即触发溢出策略, <=0时取bufferSize
+	private int bufferHighWaterMark = 0;
+	
+	//	网关队列：低水位, pause策略下队列回落到该值时恢复读取, <=0时取高水位的一半
+	private int bufferLowWaterMark = 0;
+	
 	//	网关队列：阻塞/等待策略
 	private String waitStrategy = "blocking";
 	
@@ -79,6 +158,17 @@ public class RapidConfig {
     //	网关服务指标消息主题
     private String metricTopic = "rapid-metric-topic";
 	
+	/**
+	 * <B>方法名称：</B>isContextPoolEnabled<BR>
+	 * <B>概要说明：</B>RapidRequest/RapidContext是否从对象池获取: 处理线程为一次性的虚拟线程时不池化<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 下午3:05:21
+	 * @return boolean
+	 */
+	public boolean isContextPoolEnabled() {
+		return objectPoolEnabled && (eventLoopAffinityEnabled || !RapidBufferHelper.isVirtual(bufferType));
+	}
+	
 	public WaitStrategy getATureWaitStrategy() {
 		switch (waitStrategy) {
 			case "blocking":
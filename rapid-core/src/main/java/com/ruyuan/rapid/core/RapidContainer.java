@@ -1,5 +1,9 @@
 package com.ruyuan.rapid.core;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import com.ruyuan.rapid.common.constants.RapidBufferHelper;
 import com.ruyuan.rapid.core.netty.NettyHttpClient;
 import com.ruyuan.rapid.core.netty.NettyHttpServer;
@@ -7,7 +11,10 @@ import com.ruyuan.rapid.core.netty.processor.NettyBatchEventProcessor;
 import com.ruyuan.rapid.core.netty.processor.NettyCoreProcessor;
 import com.ruyuan.rapid.core.netty.processor.NettyMpmcProcessor;
 import com.ruyuan.rapid.core.netty.processor.NettyProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyVirtualThreadProcessor;
+import com.ruyuan.rapid.core.netty.processor.filter.RuleFilterPlan;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,6 +35,8 @@ public class RapidContainer implements LifeCycle {
 	
 	private NettyProcessor nettyProcessor;		//	核心处理器
 	
+	private ScheduledExecutorService statsExecutor;	//	定时输出缓存统计
+	
 	public RapidContainer(RapidConfig rapidConfig) {
 		this.rapidConfig = rapidConfig;
 		init();
@@ -41,12 +50,23 @@ public class RapidContainer implements LifeCycle {
 		//	2. 是否开启缓存
 		String bufferType = rapidConfig.getBufferType();
 		
-		if(RapidBufferHelper.isFlusher(bufferType)) {
+		//	线程亲和模式: 不经过任何队列, 在EventLoop上直接处理
+		if(rapidConfig.isEventLoopAffinityEnabled()) {
+			log.info("RapidContainer event loop affinity enabled, bufferType {} is ignored", bufferType);
+			nettyProcessor = nettyCoreProcessor;
+		}
+		else if(RapidBufferHelper.isFlusher(bufferType)) {
 			nettyProcessor = new NettyBatchEventProcessor(rapidConfig, nettyCoreProcessor);
 		}
 		else if(RapidBufferHelper.isMpmc(bufferType)) {
 			nettyProcessor = new NettyMpmcProcessor(rapidConfig, nettyCoreProcessor, true);
 		}
+		else if(RapidBufferHelper.isVirtual(bufferType)) {
+			if(rapidConfig.isObjectPoolEnabled()) {
+				log.info("RapidContainer bufferType {} runs each request on a new virtual thread, RapidRequest/RapidContext are not pooled", bufferType);
+			}
+			nettyProcessor = new NettyVirtualThreadProcessor(rapidConfig, nettyCoreProcessor);
+		}
 		else {
 			nettyProcessor = nettyCoreProcessor;
 		}
@@ -63,6 +83,11 @@ public class RapidContainer implements LifeCycle {
 		nettyProcessor.start();
 		nettyHttpServer.start();
 		nettyHttpClient.start();
+		long statsInterval = rapidConfig.getFilterConfigCacheStatsInterval();
+		if(statsInterval > 0) {
+			statsExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("RapidCacheStats", true));
+			statsExecutor.scheduleAtFixedRate(RuleFilterPlan::logStats, statsInterval, statsInterval, TimeUnit.SECONDS);
+		}
 		log.info("RapidContainer started !");
 	}
 
@@ -71,6 +96,9 @@ public class RapidContainer implements LifeCycle {
 		nettyProcessor.shutdown();
 		nettyHttpServer.shutdown();
 		nettyHttpClient.shutdown();
+		if(statsExecutor != null) {
+			statsExecutor.shutdownNow();
+		}
 	}
 
 }
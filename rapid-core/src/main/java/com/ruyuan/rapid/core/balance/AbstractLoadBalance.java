@@ -1,10 +1,7 @@
 package com.ruyuan.rapid.core.balance;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
 import com.ruyuan.rapid.common.util.TimeUtil;
 import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.RapidContext;
@@ -21,17 +18,18 @@ public abstract class AbstractLoadBalance implements LoadBalance {
 	public ServiceInstance select(RapidContext context) {
 		
 		//	MATCH_INSTANCES：服务实例列表现在还没有填充，需要LoadBalancePreFilter的时候进行获取并设置
-		Set<ServiceInstance> matchInstance = context.getAttribute(AttributeKey.MATCH_INSTANCES);
-		if(matchInstance == null || matchInstance.size() == 0) {
+		//	快照中的实例已经过滤掉禁用的实例, 并且不会再被修改, 直接使用无需复制
+		ServiceInstanceSnapshot snapshot = context.getAttribute(AttributeKey.MATCH_INSTANCES);
+		if(snapshot == null || snapshot.isEmpty()) {
 			return null;
 		}
 		
-		List<ServiceInstance> instances = new ArrayList<ServiceInstance>(matchInstance);
-		if(instances.size() == 1) {
-			return instances.get(0);
+		//	跳过被摘除的异常实例, 没有实例处于摘除期时直接返回原快照
+		if(snapshot.size() > 1) {
+			snapshot = OutlierDetector.filter(snapshot);
 		}
 		
-		ServiceInstance instance = doSelect(context, instances);
+		ServiceInstance instance = snapshot.size() == 1 ? snapshot.getInstances()[0] : doSelect(context, snapshot);
 		context.putAttribute(AttributeKey.LOAD_INSTANCE, instance);
 		return instance;
 	}
@@ -42,10 +40,10 @@ public abstract class AbstractLoadBalance implements LoadBalance {
 	 * @author JiFeng
 	 * @since 2021年12月20日 上午12:10:45
 	 * @param context
-	 * @param instances
+	 * @param snapshot 至少有两个启用的实例
 	 * @return
 	 */
-	protected abstract ServiceInstance doSelect(RapidContext context, List<ServiceInstance> instances);
+	protected abstract ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot);
 
 	
 	protected static int getWeight(ServiceInstance instance) {
@@ -66,6 +64,25 @@ public abstract class AbstractLoadBalance implements LoadBalance {
 		return weight;
 	}
 
+	/**
+	 * <B>方法名称：</B>isWarmingUp<BR>
+	 * <B>概要说明：</B>实例是否处于预热期内(权重还在随时间变化)<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 上午10:06:52
+	 * @param instance
+	 * @param now
+	 * @return boolean
+	 */
+	protected static boolean isWarmingUp(ServiceInstance instance, long now) {
+		int weight = instance.getWeight() == null ? LoadBalance.DEFAULT_WEIGHT : instance.getWeight();
+		long timestamp = instance.getRegisterTime();
+		if(weight <= 0 || timestamp <= 0L) {
+			return false;
+		}
+		long upTime = now - timestamp;
+		return upTime > 0 && upTime < LoadBalance.DEFAULT_WARMUP;
+	}
+
 	/**
 	 * <B>方法名称：</B>calculateWramUpWeight<BR>
 	 * <B>概要说明：</B>计算服务在预热时间内的新权重<BR>
@@ -0,0 +1,137 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+
+/**
+ * <B>主类名称：</B>AliasTable<BR>
+ * <B>概要说明：</B>按服务实例快照预计算的加权随机别名表(Vose alias method)<BR>
+ * 	构建时计算一次全部实例的权重(含预热), 选择时只需要两次随机数: 随机一个槽位, 再按槽位概率决定取自身还是别名, O(1)且没有对象分配.
+ * 	有实例处于预热期时, 别名表只在当前预热周期(LoadBalance.WARMUP_REFRESH_INTERVAL)内有效, 过期后按新的预热权重重新构建;
+ * 	全部实例预热完成后, 别名表在快照被替换之前一直有效.
+ * @author JiFeng
+ * @since 2021年12月26日 上午10:12:35
+ */
+final class AliasTable {
+
+	private final ServiceInstanceSnapshot snapshot;
+
+	//	过期时间: 没有实例处于预热期时为Long.MAX_VALUE
+	private final long expireTime;
+
+	//	每个槽位选中自身的概率, 权重全部相同(或总权重不大于0)时为null, 直接均匀随机
+	private final double[] probability;
+
+	//	每个槽位的别名下标
+	private final int[] alias;
+
+	private AliasTable(ServiceInstanceSnapshot snapshot, long expireTime, double[] probability, int[] alias) {
+		this.snapshot = snapshot;
+		this.expireTime = expireTime;
+		this.probability = probability;
+		this.alias = alias;
+	}
+
+	/**
+	 * <B>方法名称：</B>build<BR>
+	 * <B>概要说明：</B>根据快照中启用实例的当前权重构建别名表<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 上午10:15:08
+	 * @param snapshot
+	 * @param now
+	 * @return AliasTable
+	 */
+	static AliasTable build(ServiceInstanceSnapshot snapshot, long now) {
+		ServiceInstance[] instances = snapshot.getInstances();
+		int length = instances.length;
+		int[] weights = new int[length];
+		long totalWeight = 0;
+		boolean sameWeight = true;
+		boolean warmingUp = false;
+		for(int i = 0; i < length; i++) {
+			//	权重不大于0的实例不会被选中
+			int weight = Math.max(AbstractLoadBalance.getWeight(instances[i]), 0);
+			weights[i] = weight;
+			totalWeight += weight;
+			if(sameWeight && i > 0 && weight != weights[i - 1]) {
+				sameWeight = false;
+			}
+			warmingUp |= AbstractLoadBalance.isWarmingUp(instances[i], now);
+		}
+		//	预热期内按周期对齐过期, 同一周期内所有请求共用一张表
+		long expireTime = warmingUp ? (now / LoadBalance.WARMUP_REFRESH_INTERVAL + 1) * LoadBalance.WARMUP_REFRESH_INTERVAL
+				: Long.MAX_VALUE;
+		if(totalWeight <= 0 || sameWeight) {
+			return new AliasTable(snapshot, expireTime, null, null);
+		}
+
+		double[] probability = new double[length];
+		int[] alias = new int[length];
+		double[] scaled = new double[length];
+		//	small/large两个栈共用一个数组: small从头部增长, large从尾部增长
+		int[] worklist = new int[length];
+		int small = 0;
+		int large = length;
+		for(int i = 0; i < length; i++) {
+			scaled[i] = (double)weights[i] * length / totalWeight;
+			if(scaled[i] < 1.0) {
+				worklist[small++] = i;
+			} else {
+				worklist[--large] = i;
+			}
+		}
+		while(small > 0 && large < length) {
+			int less = worklist[--small];
+			int more = worklist[large++];
+			probability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if(scaled[more] < 1.0) {
+				worklist[small++] = more;
+			} else {
+				worklist[--large] = more;
+			}
+		}
+		//	剩余槽位(含浮点误差导致的small残留)概率为1
+		while(large < length) {
+			probability[worklist[large++]] = 1.0;
+		}
+		while(small > 0) {
+			probability[worklist[--small]] = 1.0;
+		}
+		return new AliasTable(snapshot, expireTime, probability, alias);
+	}
+
+	/**
+	 * <B>方法名称：</B>isValid<BR>
+	 * <B>概要说明：</B>别名表是否仍然对应该快照且没有过预热周期<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 上午10:18:44
+	 * @param snapshot
+	 * @param now
+	 * @return boolean
+	 */
+	boolean isValid(ServiceInstanceSnapshot snapshot, long now) {
+		return this.snapshot == snapshot && now < expireTime;
+	}
+
+	/**
+	 * <B>方法名称：</B>select<BR>
+	 * <B>概要说明：</B>按权重随机选择一个实例<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 上午10:19:30
+	 * @param random
+	 * @return ServiceInstance
+	 */
+	ServiceInstance select(ThreadLocalRandom random) {
+		ServiceInstance[] instances = snapshot.getInstances();
+		int index = random.nextInt(instances.length);
+		if(probability == null || random.nextDouble() < probability[index]) {
+			return instances[index];
+		}
+		return instances[alias[index]];
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.HashKeySource;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+import io.netty.handler.codec.http.cookie.Cookie;
+
+/**
+ * <B>主类名称：</B>ConsistentHashLoadBalance<BR>
+ * <B>概要说明：</B>一致性哈希(Maglev)负载均衡<BR>
+ * 	哈希键来自LoadBalancePreFilter.Config中配置的请求头、cookie或客户端IP, 同一个键始终落到同一个实例, 便于下游按用户缓存;
+ * 	请求中没有配置的请求头或cookie时退化为按客户端IP哈希.
+ * @author JiFeng
+ * @since 2021年12月26日 下午6:30:05
+ */
+public class ConsistentHashLoadBalance extends AbstractLoadBalance {
+
+	//	每个服务当前快照的查找表: 快照替换时重新构建, 并发构建时后写入的覆盖先写入的, 结果等价
+	private final ConcurrentHashMap<String /* uniqueId */, MaglevTable> maglevTableMap = new ConcurrentHashMap<>();
+
+	@Override
+	protected ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot) {
+		MaglevTable maglevTable = getMaglevTable(snapshot);
+		String key = getHashKey(context);
+		if(key == null) {
+			return maglevTable.select(snapshot, ThreadLocalRandom.current().nextLong());
+		}
+		return maglevTable.select(snapshot, key);
+	}
+
+	private MaglevTable getMaglevTable(ServiceInstanceSnapshot snapshot) {
+		String uniqueId = snapshot.getUniqueId();
+		if(uniqueId == null) {
+			return MaglevTable.build(snapshot);
+		}
+		MaglevTable maglevTable = maglevTableMap.get(uniqueId);
+		if(maglevTable == null || !maglevTable.isValid(snapshot)) {
+			maglevTable = MaglevTable.build(snapshot);
+			maglevTableMap.put(uniqueId, maglevTable);
+		}
+		return maglevTable;
+	}
+
+	@Override
+	public void removeService(String uniqueId) {
+		maglevTableMap.remove(uniqueId);
+	}
+
+	private static String getHashKey(RapidContext context) {
+		RapidRequest request = context.getRequest();
+		LoadBalancePreFilter.Config config = context.getAttribute(AttributeKey.LOADBALANCE_CONFIG);
+		String key = null;
+		if(config != null && config.getHashKeyName() != null) {
+			if(config.getHashKeySource() == HashKeySource.HEADER) {
+				key = request.getHeaders().get(config.getHashKeyName());
+			} else if(config.getHashKeySource() == HashKeySource.COOKIE) {
+				Cookie cookie = request.getCookie(config.getHashKeyName());
+				key = cookie == null ? null : cookie.value();
+			}
+		}
+		return key != null ? key : request.getClientIp();
+	}
+
+}
@@ -1,9 +1,8 @@
 package com.ruyuan.rapid.core.balance;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.constants.CommonConstants;
@@ -14,6 +13,7 @@ import org.apache.dubbo.rpc.RpcException;
 import org.apache.dubbo.rpc.cluster.Constants;
 
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
 import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
 import com.ruyuan.rapid.common.enums.ResponseCode;
 import com.ruyuan.rapid.common.exception.RapidResponseException;
@@ -39,14 +39,20 @@ public class DubboLoadBalance implements org.apache.dubbo.rpc.cluster.LoadBalanc
 		RapidContext rapidContext = (RapidContext)RpcContext.getContext().get(DubboReferenceHelper.DUBBO_TRANSFER_CONTEXT);
 		LoadBalanceStrategy loadBalanceStrategy = rapidContext.getAttribute(AttributeKey.DUBBO_LOADBALANCE_STRATEGY);
 		LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(loadBalanceStrategy);
-		Set<ServiceInstance> instanceWrappers = new HashSet<>();
+		List<ServiceInstance> instanceWrappers = new ArrayList<>(invokers.size());
 		for(Invoker<?> invoker : invokers) {
 			instanceWrappers.add(new ServiceInstanceWrapper<>(invoker, invocation));
 		}
 		// 	把dubbo invokers的服务实例列表 转成自己能够认识的ServiceInstance，设置到全局上下文对象里
-		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, instanceWrappers);
+		//	invokers由dubbo维护, 每次调用临时生成的快照没有版本号
+		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, new ServiceInstanceSnapshot(rapidContext.getUniqueId(),
+				ServiceInstanceSnapshot.UNVERSIONED, instanceWrappers));
 		
 		ServiceInstance serviceInstance = loadBalance.select(rapidContext);
+		//	依赖实时负载的策略: 选中的实例在途请求数加一, DubboRouteFilter回调完成时减一
+		if(serviceInstance != null && OutstandingRequests.isTracked(loadBalanceStrategy)) {
+			OutstandingRequests.acquire(rapidContext, serviceInstance);
+		}
 		if(serviceInstance instanceof ServiceInstanceWrapper) {
 			return ((ServiceInstanceWrapper)serviceInstance).getInvoker();
 		} else {
@@ -0,0 +1,107 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <B>主类名称：</B>InstanceLoad<BR>
+ * <B>概要说明：</B>单个服务实例(按地址)的实时负载: 在途请求数与往返时延的峰值EWMA<BR>
+ * 	峰值EWMA(peak EWMA): 观测到比当前值大的时延时立即取峰值, 否则按距上次观测的时间指数衰减, 对变慢的实例反应快、恢复平滑.
+ * 	时延状态是不可变对象, 通过CAS整体替换, 无锁.
+ * @author JiFeng
+ * @since 2021年12月26日 下午4:02:18
+ */
+public final class InstanceLoad {
+
+	//	还没有时延观测值但已经有在途请求时的惩罚值, 避免新实例在第一次响应返回前被压垮
+	private static final double PENALTY = (double)(Long.MAX_VALUE >> 16);
+
+	private static final AtomicReferenceFieldUpdater<InstanceLoad, Ewma> EWMA_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(InstanceLoad.class, Ewma.class, "ewma");
+
+	private final LongAdder outstanding = new LongAdder();
+
+	private volatile Ewma ewma = new Ewma(0.0, 0L);
+
+	void increment() {
+		outstanding.increment();
+	}
+
+	void decrement() {
+		outstanding.decrement();
+	}
+
+	public long getOutstanding() {
+		return outstanding.sum();
+	}
+
+	/**
+	 * <B>方法名称：</B>observe<BR>
+	 * <B>概要说明：</B>记录一次往返时延<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:06:31
+	 * @param rtt 往返时延(ms)
+	 * @param now 当前时间(ms)
+	 * @param decayTime 衰减时间常数(ms)
+	 */
+	public void observe(double rtt, long now, long decayTime) {
+		for(;;) {
+			Ewma current = ewma;
+			double cost;
+			if(rtt > current.cost) {
+				cost = rtt;
+			} else {
+				double w = weight(current, now, decayTime);
+				cost = current.cost * w + rtt * (1.0 - w);
+			}
+			if(EWMA_UPDATER.compareAndSet(this, current, new Ewma(cost, Math.max(now, current.stamp)))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * <B>方法名称：</B>getCost<BR>
+	 * <B>概要说明：</B>负载得分: 衰减到当前时间的时延EWMA * (在途请求数 + 1), 越小越好<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:08:50
+	 * @param now
+	 * @param decayTime
+	 * @return double
+	 */
+	public double getCost(long now, long decayTime) {
+		long pending = outstanding.sum();
+		Ewma current = ewma;
+		//	读取时不写回: 只按时间把时延向0衰减, 长时间没有请求的实例会重新得到流量
+		double cost = current.cost * weight(current, now, decayTime);
+		if(cost == 0.0 && pending > 0) {
+			return PENALTY + pending;
+		}
+		return cost * (pending + 1);
+	}
+
+	private static double weight(Ewma current, long now, long decayTime) {
+		long elapsed = Math.max(now - current.stamp, 0L);
+		return Math.exp(-(double)elapsed / Math.max(decayTime, 1L));
+	}
+
+	/**
+	 * <B>主类名称：</B>Ewma<BR>
+	 * <B>概要说明：</B>时延EWMA的不可变状态<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:04:12
+	 */
+	private static final class Ewma {
+
+		private final double cost;
+
+		private final long stamp;
+
+		Ewma(double cost, long stamp) {
+			this.cost = cost;
+			this.stamp = stamp;
+		}
+
+	}
+
+}
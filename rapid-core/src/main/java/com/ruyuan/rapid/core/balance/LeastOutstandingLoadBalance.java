@@ -0,0 +1,45 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.core.context.RapidContext;
+
+/**
+ * <B>主类名称：</B>LeastOutstandingLoadBalance<BR>
+ * <B>概要说明：</B>最少在途请求负载均衡<BR>
+ * 	选择(在途请求数 + 1) / 权重最小的实例: 某个实例变慢(例如GC停顿)时在途请求堆积, 新请求自动绕开它;
+ * 	权重(含预热)越大的实例可以承担越多的在途请求. 从随机位置开始遍历, 结果相同的实例之间随机分布.
+ * @author JiFeng
+ * @since 2021年12月26日 下午2:20:16
+ */
+public class LeastOutstandingLoadBalance extends AbstractLoadBalance {
+
+	@Override
+	protected ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot) {
+		ServiceInstance[] instances = snapshot.getInstances();
+		int length = instances.length;
+		int start = ThreadLocalRandom.current().nextInt(length);
+		ServiceInstance selected = null;
+		long selectedOutstanding = 0;
+		int selectedWeight = 0;
+		for(int i = 0; i < length; i++) {
+			ServiceInstance instance = instances[(start + i) % length];
+			int weight = getWeight(instance);
+			if(weight <= 0) {
+				continue;
+			}
+			long outstanding = OutstandingRequests.get(instance.getAddress());
+			//	(outstanding + 1) / weight < (selectedOutstanding + 1) / selectedWeight, 交叉相乘避免除法
+			if(selected == null || (outstanding + 1) * selectedWeight < (selectedOutstanding + 1) * weight) {
+				selected = instance;
+				selectedOutstanding = outstanding;
+				selectedWeight = weight;
+			}
+		}
+		//	全部实例权重都不大于0时退化为随机
+		return selected != null ? selected : instances[start];
+	}
+
+}
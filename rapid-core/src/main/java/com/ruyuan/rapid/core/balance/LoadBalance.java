@@ -15,6 +15,12 @@ public interface LoadBalance {
 	
 	int DEFAULT_WARMUP = 5 * 60 * 1000;
 	
+	//	预热权重的刷新周期: 预计算的权重在一个周期内不变
+	int WARMUP_REFRESH_INTERVAL = 1000;
+	
+	//	往返时延峰值EWMA的默认衰减时间常数(ms)
+	long DEFAULT_EWMA_DECAY_TIME = 10 * 1000;
+	
 	/**
 	 * <B>方法名称：</B>select<BR>
 	 * <B>概要说明：</B>从所有实例列表中选择一个实例<BR>
@@ -24,5 +30,15 @@ public interface LoadBalance {
 	 * @return ServiceInstance
 	 */
 	ServiceInstance select(RapidContext context);
+	
+	/**
+	 * <B>方法名称：</B>removeService<BR>
+	 * <B>概要说明：</B>服务下线时清理按服务缓存的选择状态, 没有缓存的策略什么都不做<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 上午10:12:40
+	 * @param uniqueId
+	 */
+	default void removeService(String uniqueId) {
+	}
 
 }
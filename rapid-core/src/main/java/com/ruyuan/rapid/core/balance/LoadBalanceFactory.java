@@ -1,8 +1,14 @@
 package com.ruyuan.rapid.core.balance;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
 import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
 
 
@@ -20,10 +26,51 @@ public class LoadBalanceFactory {
     private LoadBalanceFactory() {
         loadBalanceMap.put(LoadBalanceStrategy.RANDOM, new RandomLoadBalance());
         loadBalanceMap.put(LoadBalanceStrategy.ROUND_ROBIN, new RoundRobinLoadBalance());
+        loadBalanceMap.put(LoadBalanceStrategy.LEAST_OUTSTANDING, new LeastOutstandingLoadBalance());
+        loadBalanceMap.put(LoadBalanceStrategy.P2C_PEAK_EWMA, new PeakEwmaLoadBalance());
+        loadBalanceMap.put(LoadBalanceStrategy.CONSISTENT_HASH, new ConsistentHashLoadBalance());
     }
 
     public static LoadBalance getLoadBalance(LoadBalanceStrategy loadBalance) {
         return INSTANCE.loadBalanceMap.get(loadBalance);
     }
 
+    /**
+     * <B>方法名称：</B>removeService<BR>
+     * <B>概要说明：</B>服务下线时清理所有负载均衡策略及异常实例摘除按服务缓存的状态<BR>
+     * @author JiFeng
+     * @since 2021年12月27日 上午10:15:08
+     * @param uniqueId
+     */
+    public static void removeService(String uniqueId) {
+        INSTANCE.loadBalanceMap.values().forEach(loadBalance -> loadBalance.removeService(uniqueId));
+        OutlierDetector.removeService(uniqueId);
+    }
+
+    /**
+     * <B>方法名称：</B>removeInstances<BR>
+     * <B>概要说明：</B>实例从注册中心下线后清理按地址统计的实时负载和健康状态<BR>
+     * 	统计按地址共享, 地址仍被其他服务的实例使用时保留
+     * @author JiFeng
+     * @since 2021年12月27日 上午11:06:50
+     * @param instances 已下线的实例, 可以为null
+     */
+    public static void removeInstances(Collection<ServiceInstance> instances) {
+        if(instances == null || instances.isEmpty()) {
+            return;
+        }
+        Set<String> addresses = new HashSet<>();
+        for(ServiceInstanceSnapshot snapshot : DynamicConfigManager.getInstance().getServiceInstanceMap().values()) {
+            for(ServiceInstance instance : snapshot.getAllInstances()) {
+                addresses.add(instance.getAddress());
+            }
+        }
+        for(ServiceInstance instance : instances) {
+            if(!addresses.contains(instance.getAddress())) {
+                OutstandingRequests.remove(instance.getAddress());
+                OutlierDetector.removeInstance(instance.getAddress());
+            }
+        }
+    }
+
 }
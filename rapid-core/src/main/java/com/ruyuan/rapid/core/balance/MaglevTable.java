@@ -0,0 +1,183 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+
+/**
+ * <B>主类名称：</B>MaglevTable<BR>
+ * <B>概要说明：</B>按服务实例快照构建的Maglev一致性哈希查找表<BR>
+ * 	每个实例按地址哈希出(offset, skip)得到一个槽位排列, 所有实例轮流按各自排列占用空槽位, 直到填满大小为质数M的查找表:
+ * 	1. 查找时对哈希键取模直接得到实例, O(1)且没有对象分配;
+ * 	2. 实例加入或离开时, 大部分槽位的归属不变, 只有约1/N的键被重新分配;
+ * 	3. 实例先按地址排序再构建, 多个网关节点对同一组实例得到相同的查找表.
+ * 	查找表只保存槽位到地址的映射, 选择时从调用方当前的快照中取实例, 复用的查找表不会返回上一次调用的实例对象.
+ * @author JiFeng
+ * @since 2021年12月26日 下午6:10:42
+ */
+final class MaglevTable {
+
+	//	查找表大小: 不小于实例数的100倍的最小质数, 保证各实例分到的槽位数量接近
+	private static final int[] TABLE_SIZES = { 251, 509, 1021, 2039, 4093, 8191, 16381, 32749,
+			65521, 131071, 262139, 524287, 1048573 };
+
+	private static final long OFFSET_SEED = 0x2545F4914F6CDD1DL;
+
+	private static final long SKIP_SEED = 0x9E3779B97F4A7C15L;
+
+	private static final long KEY_SEED = 0xC2B2AE3D27D4EB4FL;
+
+	private final ServiceInstanceSnapshot snapshot;
+
+	//	按地址排序后的地址
+	private final String[] addresses;
+
+	//	排序后的下标 -> 构建时快照中的实例下标
+	private final int[] positions;
+
+	//	槽位 -> 排序后的下标
+	private final int[] lookup;
+
+	private MaglevTable(ServiceInstanceSnapshot snapshot, String[] addresses, int[] positions, int[] lookup) {
+		this.snapshot = snapshot;
+		this.addresses = addresses;
+		this.positions = positions;
+		this.lookup = lookup;
+	}
+
+	/**
+	 * <B>方法名称：</B>build<BR>
+	 * <B>概要说明：</B>根据快照中启用的实例构建查找表<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午6:14:26
+	 * @param snapshot
+	 * @return MaglevTable
+	 */
+	static MaglevTable build(ServiceInstanceSnapshot snapshot) {
+		ServiceInstance[] source = snapshot.getInstances();
+		int length = source.length;
+		Integer[] order = new Integer[length];
+		for(int i = 0; i < length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparing(i -> source[i].getAddress()));
+		String[] addresses = new String[length];
+		int[] positions = new int[length];
+		for(int i = 0; i < length; i++) {
+			positions[i] = order[i];
+			addresses[i] = source[order[i]].getAddress();
+		}
+		int size = TABLE_SIZES[TABLE_SIZES.length - 1];
+		for(int tableSize : TABLE_SIZES) {
+			if(tableSize >= length * 100L) {
+				size = tableSize;
+				break;
+			}
+		}
+
+		//	每个实例在自己排列中的当前位置: position = (offset + k * skip) mod size
+		long[] position = new long[length];
+		long[] skip = new long[length];
+		for(int i = 0; i < length; i++) {
+			position[i] = Long.remainderUnsigned(hash(addresses[i], OFFSET_SEED), size);
+			skip[i] = Long.remainderUnsigned(hash(addresses[i], SKIP_SEED), size - 1) + 1;
+		}
+		int[] lookup = new int[size];
+		Arrays.fill(lookup, -1);
+		int filled = 0;
+		while(filled < size) {
+			for(int i = 0; i < length && filled < size; i++) {
+				int slot = (int)position[i];
+				while(lookup[slot] >= 0) {
+					position[i] = (position[i] + skip[i]) % size;
+					slot = (int)position[i];
+				}
+				lookup[slot] = i;
+				position[i] = (position[i] + skip[i]) % size;
+				filled++;
+			}
+		}
+		return new MaglevTable(snapshot, addresses, positions, lookup);
+	}
+
+	/**
+	 * <B>方法名称：</B>isValid<BR>
+	 * <B>概要说明：</B>查找表是否仍然对应该快照<BR>
+	 * 	没有版本号的临时快照(dubbo invokers)每次调用都是新对象, 实例地址集合相同时同样可以复用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午6:18:02
+	 * @param snapshot
+	 * @return boolean
+	 */
+	boolean isValid(ServiceInstanceSnapshot snapshot) {
+		if(this.snapshot == snapshot) {
+			return true;
+		}
+		if(snapshot.getVersion() != ServiceInstanceSnapshot.UNVERSIONED
+				|| this.snapshot.getVersion() != ServiceInstanceSnapshot.UNVERSIONED
+				|| snapshot.size() != addresses.length) {
+			return false;
+		}
+		for(ServiceInstance instance : snapshot.getInstances()) {
+			if(Arrays.binarySearch(addresses, instance.getAddress()) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <B>方法名称：</B>select<BR>
+	 * <B>概要说明：</B>按哈希键从调用方当前的快照中选择实例<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午6:19:47
+	 * @param snapshot isValid已校验的快照
+	 * @param key
+	 * @return ServiceInstance
+	 */
+	ServiceInstance select(ServiceInstanceSnapshot snapshot, CharSequence key) {
+		return select(snapshot, hash(key, KEY_SEED));
+	}
+
+	ServiceInstance select(ServiceInstanceSnapshot snapshot, long hash) {
+		int index = lookup[(int)Long.remainderUnsigned(hash, lookup.length)];
+		ServiceInstance[] instances = snapshot.getInstances();
+		ServiceInstance instance = instances[positions[index]];
+		if(snapshot == this.snapshot || instance.getAddress().equals(addresses[index])) {
+			return instance;
+		}
+		//	复用查找表的临时快照实例顺序不同时按地址查找
+		for(ServiceInstance candidate : instances) {
+			if(candidate.getAddress().equals(addresses[index])) {
+				return candidate;
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * <B>方法名称：</B>hash<BR>
+	 * <B>概要说明：</B>64位字符串哈希: FNV-1a逐字符混合, 再用murmur3的fmix64打散, 不分配对象<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午6:21:33
+	 * @param key
+	 * @param seed
+	 * @return long
+	 */
+	static long hash(CharSequence key, long seed) {
+		long h = seed ^ 0xCBF29CE484222325L;
+		for(int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -0,0 +1,370 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.dubbo.rpc.RpcException;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+import com.ruyuan.rapid.core.rolling.RollingNumber;
+import com.ruyuan.rapid.core.rolling.RollingNumberEvent;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>OutlierDetector<BR>
+ * <B>概要说明：</B>被动异常实例检测与摘除(outlier detection)<BR>
+ * 	默认关闭, 规则在负载均衡过滤器配置中开启(outlierDetection.enabled).
+ * 	路由回调完成时按实例地址记录结果: 连续失败次数, 以及RollingNumber滚动窗口内的失败数、慢调用数.
+ * 	连续失败达到阈值, 或窗口内请求数足够且失败率/慢调用率达到阈值时, 把实例临时摘除:
+ * 	摘除时长 = 基础摘除时长 * 2^(摘除次数 - 1), 不超过最大摘除时长; 实例恢复后持续健康超过最大摘除时长, 摘除次数清零.
+ * 	同一个服务同时被摘除的实例数不超过maxEjectionPercent(至少允许摘除一个), 并且始终保留至少一个实例.
+ * 	负载均衡选择时通过filter跳过被摘除的实例: 没有实例处于摘除期时只读取一个volatile变量;
+ * 	有摘除时按(快照, 摘除版本)缓存过滤后的快照, 摘除状态不变时请求线程不分配对象.
+ * @author JiFeng
+ * @since 2021年12月26日 下午9:10:26
+ */
+@Slf4j
+public final class OutlierDetector {
+
+	//	每个实例的滚动统计窗口: 10秒, 10个桶
+	private static final int WINDOW_SIZE = 10 * 1000;
+
+	private static final int BUCKET_SIZE = 10;
+
+	private static final ConcurrentHashMap<String /* address */, Health> HEALTHS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentHashMap<String /* uniqueId */, HealthyView> VIEWS = new ConcurrentHashMap<>();
+
+	//	所有实例中最晚的摘除结束时间: 当前时间超过它时说明没有实例被摘除, 选择时直接使用原快照
+	private static volatile long ejectionDeadline;
+
+	//	摘除版本: 每次摘除加一, 过滤后的快照按版本失效
+	private static volatile long ejectionEpoch;
+
+	private OutlierDetector() {
+	}
+
+	/**
+	 * <B>方法名称：</B>filter<BR>
+	 * <B>概要说明：</B>跳过快照中被摘除的实例, 全部实例都被摘除时返回原快照<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:14:35
+	 * @param snapshot
+	 * @return ServiceInstanceSnapshot
+	 */
+	public static ServiceInstanceSnapshot filter(ServiceInstanceSnapshot snapshot) {
+		long now = TimeUtil.currentTimeMillis();
+		if(now >= ejectionDeadline) {
+			return snapshot;
+		}
+		long epoch = ejectionEpoch;
+		String uniqueId = snapshot.getUniqueId();
+		HealthyView view = uniqueId == null ? null : VIEWS.get(uniqueId);
+		if(view != null && view.source == snapshot && view.epoch == epoch && now < view.expireTime) {
+			return view.filtered;
+		}
+		view = HealthyView.build(snapshot, epoch, now);
+		if(uniqueId != null) {
+			VIEWS.put(uniqueId, view);
+		}
+		return view.filtered;
+	}
+
+	/**
+	 * <B>方法名称：</B>removeService<BR>
+	 * <B>概要说明：</B>服务下线时丢弃该服务缓存的过滤结果<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 上午10:16:30
+	 * @param uniqueId
+	 */
+	public static void removeService(String uniqueId) {
+		VIEWS.remove(uniqueId);
+	}
+
+	/**
+	 * <B>方法名称：</B>removeInstance<BR>
+	 * <B>概要说明：</B>实例下线时丢弃它的健康统计与摘除状态<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 上午11:04:12
+	 * @param address
+	 */
+	public static void removeInstance(String address) {
+		HEALTHS.remove(address);
+	}
+
+	/**
+	 * <B>方法名称：</B>record<BR>
+	 * <B>概要说明：</B>路由回调完成时记录选中实例的一次调用结果, 按RS/RR时间判断慢调用<BR>
+	 * 	默认只有网关观察到的失败计入: 连接异常、超时和502/503/504响应; 其他5xx响应和dubbo业务异常只在countApplicationErrors开启时计入<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:16:02
+	 * @param ctx
+	 * @param throwable 调用异常, 没有时为null
+	 * @param statusCode 响应状态码, 没有响应(例如dubbo)时为0
+	 */
+	public static void record(Context ctx, Throwable throwable, int statusCode) {
+		LoadBalancePreFilter.Config loadBalanceConfig = ctx.getAttribute(AttributeKey.LOADBALANCE_CONFIG);
+		ServiceInstance instance = ctx.getAttribute(AttributeKey.LOAD_INSTANCE);
+		if(loadBalanceConfig == null || instance == null) {
+			return;
+		}
+		Config config = loadBalanceConfig.getOutlierDetection();
+		if(config == null || !config.isEnabled()) {
+			return;
+		}
+		boolean failure = isFailure(config, throwable, statusCode);
+		long now = TimeUtil.currentTimeMillis();
+		Health health = getHealth(instance.getAddress());
+		//	摘除前已经发出的请求, 结果不再计入
+		if(now < health.ejectedUntil) {
+			return;
+		}
+		if(failure) {
+			health.rollingNumber.increment(RollingNumberEvent.FAILURE);
+			if(health.consecutiveErrors.incrementAndGet() >= config.getConsecutiveErrors()) {
+				eject(ctx, instance, health, config, now, "连续失败");
+				return;
+			}
+		} else {
+			health.rollingNumber.increment(RollingNumberEvent.SUCCESS);
+			if(health.consecutiveErrors.get() != 0) {
+				health.consecutiveErrors.set(0);
+			}
+			if(ctx.getRRTime() - ctx.getRSTime() <= config.getSlowCallThreshold()) {
+				return;
+			}
+			health.rollingNumber.increment(RollingNumberEvent.ROUTE_TIMEOUT);
+		}
+		//	只在失败或慢调用时计算滚动窗口的比例
+		long failures = health.rollingNumber.getRollingSum(RollingNumberEvent.FAILURE);
+		long total = failures + health.rollingNumber.getRollingSum(RollingNumberEvent.SUCCESS);
+		if(total < config.getMinimumRequests()) {
+			return;
+		}
+		if(failures * 100 >= total * config.getFailureRateThreshold()) {
+			eject(ctx, instance, health, config, now, "失败率过高");
+		} else if(health.rollingNumber.getRollingSum(RollingNumberEvent.ROUTE_TIMEOUT) * 100
+				>= total * config.getSlowCallRateThreshold()) {
+			eject(ctx, instance, health, config, now, "慢调用率过高");
+		}
+	}
+
+	private static boolean isFailure(Config config, Throwable throwable, int statusCode) {
+		if(throwable != null) {
+			return config.isCountApplicationErrors() || isGatewayError(throwable);
+		}
+		if(statusCode == HttpResponseStatus.BAD_GATEWAY.code()
+				|| statusCode == HttpResponseStatus.SERVICE_UNAVAILABLE.code()
+				|| statusCode == HttpResponseStatus.GATEWAY_TIMEOUT.code()) {
+			return true;
+		}
+		return statusCode >= 500 && config.isCountApplicationErrors();
+	}
+
+	//	连接异常、超时等网关侧观察到的异常; dubbo的业务异常不算
+	private static boolean isGatewayError(Throwable throwable) {
+		Throwable cause = throwable;
+		while((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if(cause instanceof RpcException) {
+			RpcException rpcException = (RpcException)cause;
+			return rpcException.isTimeout() || rpcException.isNetwork();
+		}
+		return cause instanceof TimeoutException || cause instanceof IOException;
+	}
+
+	/**
+	 * <B>方法名称：</B>isEjected<BR>
+	 * <B>概要说明：</B>实例当前是否处于摘除期<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:17:48
+	 * @param address
+	 * @return boolean
+	 */
+	public static boolean isEjected(String address) {
+		return TimeUtil.currentTimeMillis() < getEjectedUntil(address);
+	}
+
+	/**
+	 * <B>方法名称：</B>getEjectedUntil<BR>
+	 * <B>概要说明：</B>实例的摘除结束时间, 没有被摘除过时为0<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:18:20
+	 * @param address
+	 * @return long
+	 */
+	public static long getEjectedUntil(String address) {
+		Health health = HEALTHS.get(address);
+		return health == null ? 0L : health.ejectedUntil;
+	}
+
+	private static Health getHealth(String address) {
+		Health health = HEALTHS.get(address);
+		return health != null ? health : HEALTHS.computeIfAbsent(address, Health::new);
+	}
+
+	//	摘除只在实例异常时发生, 加锁保证最大摘除比例的判断与摘除是原子的
+	private static synchronized void eject(Context ctx, ServiceInstance instance, Health health, Config config, long now, String reason) {
+		if(now < health.ejectedUntil) {
+			return;
+		}
+		ServiceInstanceSnapshot snapshot = ctx.getAttribute(AttributeKey.MATCH_INSTANCES);
+		if(snapshot != null) {
+			int size = snapshot.size();
+			int ejected = 0;
+			for(ServiceInstance serviceInstance : snapshot.getInstances()) {
+				if(now < getEjectedUntil(serviceInstance.getAddress())) {
+					ejected++;
+				}
+			}
+			int maxEjection = Math.max(size * config.getMaxEjectionPercent() / 100, 1);
+			if(ejected + 1 > maxEjection || ejected + 1 >= size) {
+				log.warn("#OutlierDetector# 实例{}{}, 服务{}已摘除{}/{}个实例, 超过最大摘除比例, 不再摘除",
+						instance.getAddress(), reason, snapshot.getUniqueId(), ejected, size);
+				return;
+			}
+		}
+		//	恢复后持续健康超过最大摘除时长, 摘除次数清零
+		if(now - health.ejectedUntil > config.getMaxEjectionTime()) {
+			health.ejectionCount = 0;
+		}
+		health.ejectionCount++;
+		long ejectionTime = Math.min(config.getBaseEjectionTime() << Math.min(health.ejectionCount - 1, 20),
+				config.getMaxEjectionTime());
+		health.ejectedUntil = now + ejectionTime;
+		health.consecutiveErrors.set(0);
+		health.rollingNumber.reset();
+		ejectionDeadline = Math.max(ejectionDeadline, health.ejectedUntil);
+		ejectionEpoch++;
+		log.warn("#OutlierDetector# 实例{}{}, 第{}次摘除, 摘除时长{}ms",
+				instance.getAddress(), reason, health.ejectionCount, ejectionTime);
+	}
+
+	/**
+	 * <B>主类名称：</B>Health<BR>
+	 * <B>概要说明：</B>单个实例(按地址)的健康统计与摘除状态<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:20:05
+	 */
+	private static final class Health {
+
+		private final RollingNumber rollingNumber;
+
+		private final AtomicInteger consecutiveErrors = new AtomicInteger();
+
+		//	摘除结束时间
+		private volatile long ejectedUntil;
+
+		//	连续摘除的次数, 只在eject中修改
+		private int ejectionCount;
+
+		Health(String address) {
+			this.rollingNumber = new RollingNumber(WINDOW_SIZE, BUCKET_SIZE, address, null);
+		}
+
+	}
+
+	/**
+	 * <B>主类名称：</B>HealthyView<BR>
+	 * <B>概要说明：</B>某个快照跳过被摘除实例后的结果, 在摘除版本变化或最早的摘除结束之前有效<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:22:41
+	 */
+	private static final class HealthyView {
+
+		private final ServiceInstanceSnapshot source;
+
+		private final long epoch;
+
+		private final long expireTime;
+
+		private final ServiceInstanceSnapshot filtered;
+
+		private HealthyView(ServiceInstanceSnapshot source, long epoch, long expireTime, ServiceInstanceSnapshot filtered) {
+			this.source = source;
+			this.epoch = epoch;
+			this.expireTime = expireTime;
+			this.filtered = filtered;
+		}
+
+		static HealthyView build(ServiceInstanceSnapshot snapshot, long epoch, long now) {
+			ServiceInstance[] instances = snapshot.getInstances();
+			List<ServiceInstance> healthy = new ArrayList<>(instances.length);
+			long expireTime = Long.MAX_VALUE;
+			for(ServiceInstance instance : instances) {
+				long ejectedUntil = getEjectedUntil(instance.getAddress());
+				if(now < ejectedUntil) {
+					expireTime = Math.min(expireTime, ejectedUntil);
+				} else {
+					healthy.add(instance);
+				}
+			}
+			//	没有实例被摘除或者全部被摘除时使用原快照; 过滤后的快照沿用原版本号, 负载均衡按快照对象缓存
+			if(healthy.size() == instances.length || healthy.isEmpty()) {
+				return new HealthyView(snapshot, epoch, expireTime, snapshot);
+			}
+			return new HealthyView(snapshot, epoch, expireTime,
+					new ServiceInstanceSnapshot(snapshot.getUniqueId(), snapshot.getVersion(), healthy));
+		}
+
+	}
+
+	/**
+	 * <B>主类名称：</B>Config<BR>
+	 * <B>概要说明：</B>异常实例摘除配置, 作为负载均衡过滤器配置的一部分<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午9:24:16
+	 */
+	@Getter
+	@Setter
+	public static class Config {
+
+		//	默认关闭, 由规则的负载均衡过滤器配置开启
+		private boolean enabled = false;
+
+		//	是否把应用错误(502/503/504以外的5xx响应、dubbo业务异常)也计为失败
+		private boolean countApplicationErrors = false;
+
+		//	连续失败(连接异常、超时、502/503/504)次数阈值
+		private int consecutiveErrors = 5;
+
+		//	滚动窗口内至少有这么多请求时才计算失败率和慢调用率
+		private int minimumRequests = 20;
+
+		//	失败率阈值(百分比)
+		private int failureRateThreshold = 50;
+
+		//	慢调用的往返时延阈值(ms), 与RapidConfig.routeTimeout默认值一致
+		private long slowCallThreshold = 2000;
+
+		//	慢调用率阈值(百分比)
+		private int slowCallRateThreshold = 50;
+
+		//	基础摘除时长(ms), 每次连续摘除翻倍
+		private long baseEjectionTime = 30 * 1000;
+
+		//	最大摘除时长(ms)
+		private long maxEjectionTime = 300 * 1000;
+
+		//	同一个服务同时被摘除的实例数上限(百分比)
+		private int maxEjectionPercent = 10;
+
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+/**
+ * <B>主类名称：</B>OutstandingRequests<BR>
+ * <B>概要说明：</B>按服务实例地址统计的实时负载(在途请求数、往返时延)<BR>
+ * 	计数使用LongAdder(分段计数), 大量请求线程同时增减同一个实例时不会争用同一个缓存行.
+ * 	选中实例时acquire, 并把计数凭证(Token)放入上下文; 路由回调完成时complete(同时记录往返时延), 过滤器链异常时release,
+ * 	凭证保证每次acquire只会被减一次, 多个位置重复调用release是安全的.
+ * @author JiFeng
+ * @since 2021年12月26日 下午2:05:41
+ */
+public final class OutstandingRequests {
+
+	private static final ConcurrentHashMap<String /* address */, InstanceLoad> LOADS = new ConcurrentHashMap<>();
+
+	private OutstandingRequests() {
+	}
+
+	/**
+	 * <B>方法名称：</B>get<BR>
+	 * <B>概要说明：</B>获取实例当前的在途请求数<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午2:08:12
+	 * @param address
+	 * @return long
+	 */
+	public static long get(String address) {
+		InstanceLoad load = LOADS.get(address);
+		return load == null ? 0L : load.getOutstanding();
+	}
+	
+	/**
+	 * <B>方法名称：</B>getLoad<BR>
+	 * <B>概要说明：</B>获取实例的实时负载, 不存在时创建<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:15:20
+	 * @param address
+	 * @return InstanceLoad
+	 */
+	public static InstanceLoad getLoad(String address) {
+		return LOADS.computeIfAbsent(address, key -> new InstanceLoad());
+	}
+
+	/**
+	 * <B>方法名称：</B>remove<BR>
+	 * <B>概要说明：</B>实例下线时丢弃它的实时负载, 仍在途的请求通过各自的凭证释放, 不受影响<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 上午11:02:36
+	 * @param address
+	 */
+	public static void remove(String address) {
+		LOADS.remove(address);
+	}
+
+	/**
+	 * <B>方法名称：</B>isTracked<BR>
+	 * <B>概要说明：</B>负载均衡策略是否依赖实例的实时负载, 只有这些策略才需要acquire<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:12:05
+	 * @param loadBalanceStrategy
+	 * @return boolean
+	 */
+	public static boolean isTracked(LoadBalanceStrategy loadBalanceStrategy) {
+		return loadBalanceStrategy == LoadBalanceStrategy.LEAST_OUTSTANDING
+				|| loadBalanceStrategy == LoadBalanceStrategy.P2C_PEAK_EWMA;
+	}
+
+	/**
+	 * <B>方法名称：</B>acquire<BR>
+	 * <B>概要说明：</B>选中实例后增加在途请求数, 同一个上下文重复选择(例如dubbo重试)时先释放上一次的计数<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午2:09:35
+	 * @param ctx
+	 * @param instance
+	 */
+	public static void acquire(Context ctx, ServiceInstance instance) {
+		release(ctx);
+		InstanceLoad load = getLoad(instance.getAddress());
+		load.increment();
+		ctx.putAttribute(AttributeKey.OUTSTANDING_REQUEST, new Token(load));
+	}
+
+	/**
+	 * <B>方法名称：</B>release<BR>
+	 * <B>概要说明：</B>请求完成时减少在途请求数, 没有acquire或已经释放过时什么都不做<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午2:11:02
+	 * @param ctx
+	 */
+	public static void release(Context ctx) {
+		Token token = ctx.getAttribute(AttributeKey.OUTSTANDING_REQUEST);
+		if(token != null) {
+			token.release();
+		}
+	}
+
+	/**
+	 * <B>方法名称：</B>complete<BR>
+	 * <B>概要说明：</B>路由回调完成时减少在途请求数, 并按RS/RR时间记录一次往返时延<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午4:17:43
+	 * @param ctx
+	 */
+	public static void complete(Context ctx) {
+		Token token = ctx.getAttribute(AttributeKey.OUTSTANDING_REQUEST);
+		if(token != null && token.release()) {
+			LoadBalancePreFilter.Config config = ctx.getAttribute(AttributeKey.LOADBALANCE_CONFIG);
+			long decayTime = config == null ? LoadBalance.DEFAULT_EWMA_DECAY_TIME : config.getEwmaDecayTime();
+			//	RS/RR是毫秒精度, 不足1ms的往返按1ms计
+			long rtt = Math.max(ctx.getRRTime() - ctx.getRSTime(), 1L);
+			token.load.observe(rtt, ctx.getRRTime(), decayTime);
+		}
+	}
+
+	/**
+	 * <B>主类名称：</B>Token<BR>
+	 * <B>概要说明：</B>一次acquire的计数凭证, 只能释放一次<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午2:12:27
+	 */
+	public static final class Token {
+
+		private static final AtomicIntegerFieldUpdater<Token> RELEASED_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(Token.class, "released");
+
+		private final InstanceLoad load;
+
+		private volatile int released;
+
+		Token(InstanceLoad load) {
+			this.load = load;
+		}
+
+		boolean release() {
+			if(RELEASED_UPDATER.compareAndSet(this, 0, 1)) {
+				load.decrement();
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
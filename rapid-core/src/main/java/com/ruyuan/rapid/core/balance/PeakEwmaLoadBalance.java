@@ -0,0 +1,47 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+/**
+ * <B>主类名称：</B>PeakEwmaLoadBalance<BR>
+ * <B>概要说明：</B>两次随机选择(power of two choices) + 峰值EWMA时延负载均衡<BR>
+ * 	随机取两个不同的实例, 选择 时延峰值EWMA * (在途请求数 + 1) / 权重 较小的一个:
+ * 	变慢或在途请求堆积的实例得分升高自动被绕开; 每次只读取两个实例的状态, 与实例数量无关.
+ * @author JiFeng
+ * @since 2021年12月26日 下午4:25:37
+ */
+public class PeakEwmaLoadBalance extends AbstractLoadBalance {
+
+	@Override
+	protected ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot) {
+		ServiceInstance[] instances = snapshot.getInstances();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int length = instances.length;
+		int first = random.nextInt(length);
+		int second = random.nextInt(length - 1);
+		if(second >= first) {
+			second++;
+		}
+		LoadBalancePreFilter.Config config = context.getAttribute(AttributeKey.LOADBALANCE_CONFIG);
+		long decayTime = config == null ? LoadBalance.DEFAULT_EWMA_DECAY_TIME : config.getEwmaDecayTime();
+		long now = TimeUtil.currentTimeMillis();
+		return score(instances[second], now, decayTime) < score(instances[first], now, decayTime)
+				? instances[second] : instances[first];
+	}
+
+	private static double score(ServiceInstance instance, long now, long decayTime) {
+		int weight = getWeight(instance);
+		if(weight <= 0) {
+			return Double.MAX_VALUE;
+		}
+		return OutstandingRequests.getLoad(instance.getAddress()).getCost(now, decayTime) / weight;
+	}
+
+}
@@ -1,53 +1,42 @@
 package com.ruyuan.rapid.core.balance;
 
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.util.TimeUtil;
 import com.ruyuan.rapid.core.context.RapidContext;
 
 public class RandomLoadBalance extends AbstractLoadBalance {
 
+	//	每个服务当前快照的别名表: 快照替换或预热周期结束时重新构建, 并发构建时后写入的覆盖先写入的, 结果等价
+	private final ConcurrentHashMap<String /* uniqueId */, AliasTable> aliasTableMap = new ConcurrentHashMap<>();
+
 	/**
 	 * <B>方法名称：</B>doSelect<BR>
-	 * <B>概要说明：</B>随机负载均衡方法：context instances<BR>
+	 * <B>概要说明：</B>随机负载均衡方法：按快照预计算的别名表O(1)加权随机<BR>
 	 * @author  JiFeng
 	 * @since 2021年12月20日 下午3:18:33
-	 * @see com.ruyuan.rapid.core.balance.AbstractLoadBalance#doSelect(com.ruyuan.rapid.core.context.RapidContext, java.util.List)
+	 * @see com.ruyuan.rapid.core.balance.AbstractLoadBalance#doSelect(com.ruyuan.rapid.core.context.RapidContext, com.ruyuan.rapid.common.config.ServiceInstanceSnapshot)
 	 */
     @Override
-    protected ServiceInstance doSelect(RapidContext context, List<ServiceInstance> instances) {
-    	//	3 
-        int length = instances.size();
-        //	总权重
-        int totalWeight = 0;
-        //	是否每个实例的权重都相同
-        boolean sameWeight = true; 
-        //	0 == > 100    1 ==> 80    2 ==> 40
-        for (int i = 0; i < length; i++) {
-        	//	获取真实权重
-            int weight = getWeight(instances.get(i));
-            //	计算总的权重
-            totalWeight += weight; 
-            //	前后比较权重：有权重不一样的实例, 走权重不一致的逻辑 
-            if (sameWeight && i > 0 && weight != getWeight(instances.get(i - 1))) {
-                sameWeight = false; 
-            }
-        }
-        //	权重不一致的逻辑 : totalWeight = 220
-        if (totalWeight > 0 && !sameWeight) { 	
-            // 	根据总权重随机出一个偏移量 offset = 122
-            int offset = ThreadLocalRandom.current().nextInt(totalWeight);
-            // 	根据偏移量找到靠近偏移量的实例
-            for (ServiceInstance instance : instances) {
-            	//	0 == > 100    1 ==> 80    2 ==> 40
-            	offset = offset - getWeight(instance);
-                if (offset < 0) {
-                    return instance;
-                }
-            }
-        }
-        // 	如果所有实例权重一致, 使用随机出一个实例即可
-        return instances.get(ThreadLocalRandom.current().nextInt(length));
+    protected ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot) {
+    	long now = TimeUtil.currentTimeMillis();
+    	//	临时快照(dubbo invokers)每次调用都不同, 不缓存
+    	if(snapshot.getVersion() == ServiceInstanceSnapshot.UNVERSIONED) {
+    		return AliasTable.build(snapshot, now).select(ThreadLocalRandom.current());
+    	}
+    	AliasTable aliasTable = aliasTableMap.get(snapshot.getUniqueId());
+    	if(aliasTable == null || !aliasTable.isValid(snapshot, now)) {
+    		aliasTable = AliasTable.build(snapshot, now);
+    		aliasTableMap.put(snapshot.getUniqueId(), aliasTable);
+    	}
+    	return aliasTable.select(ThreadLocalRandom.current());
+    }
+
+    @Override
+    public void removeService(String uniqueId) {
+    	aliasTableMap.remove(uniqueId);
     }
 }
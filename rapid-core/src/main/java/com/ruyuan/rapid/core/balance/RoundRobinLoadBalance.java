@@ -1,122 +1,45 @@
 package com.ruyuan.rapid.core.balance;
 
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.util.TimeUtil;
 import com.ruyuan.rapid.core.context.RapidContext;
 
 
 public class RoundRobinLoadBalance extends AbstractLoadBalance {
 
-    private ConcurrentMap<String /*path*/, ConcurrentMap<String /*address*/, WeightedRoundRobin>> pathWeightMap = new ConcurrentHashMap<>();
-
-    //	实例未更新时长阈值，默认为60秒；若未更新时长超过阈值后会移除掉
-    private static final int RECYCLE_PERIOD = 60000;
+	//	每个服务当前快照的轮询序列: 同一个服务的所有请求路径共用一个游标, 快照替换或预热周期结束时重新构建;
+	//	每个服务只保留一个序列, 旧序列随替换被回收, 请求路径上不再需要清理过期实例
+	private final ConcurrentHashMap<String /* uniqueId */, RoundRobinSequence> sequenceMap = new ConcurrentHashMap<>();
 
     /**
      * <B>方法名称：</B>doSelect<BR>
-     * <B>概要说明：</B>doSelect<BR>
+     * <B>概要说明：</B>平滑加权轮询：按快照预计算的序列和原子游标选择, 无锁且没有map写入<BR>
      * @author  hezhuo.Bai-JiFeng
      * @since 2021年11月24日 下午4:38:33
-     * @see com.bfxy.rapid.core.balance.AbstractLoadBalance#doSelect(com.bfxy.rapid.core.context.RapidContext, java.util.List)
+     * @see com.ruyuan.rapid.core.balance.AbstractLoadBalance#doSelect(com.ruyuan.rapid.core.context.RapidContext, com.ruyuan.rapid.common.config.ServiceInstanceSnapshot)
      */
     @Override
-    protected ServiceInstance doSelect(RapidContext context, List<ServiceInstance> instances) {
-        //	原生请求路径
-    	String path = context.getOriginRequest().getPath();
-    	//	如果不存在该path则创建一个map集合
-        ConcurrentMap<String, WeightedRoundRobin> map = pathWeightMap.computeIfAbsent(path, key -> new ConcurrentHashMap<>());
-        
-        int totalWeight = 0;
-        long maxCurrent = Long.MIN_VALUE;
-        long now = System.currentTimeMillis();
-        ServiceInstance selectedInstance = null;
-        WeightedRoundRobin selectedWRR = null;
-        for (ServiceInstance instance : instances) {
-        	//	获取服务实例地址
-            String address = instance.getAddress();
-            //	获取服务实例权重
-            int weight = getWeight(instance);
-            //	如果地址不存在则加入到map里WeightedRoundRobin对象
-            WeightedRoundRobin weightedRoundRobin = map.computeIfAbsent(address, k -> {
-                WeightedRoundRobin wrr = new WeightedRoundRobin();
-                //	初始化设置weight, current
-                wrr.setWeight(weight);
-                return wrr;
-            });
-            
-            //	当前权重与缓存权重比对, 如果权重发生变化则进行更新weight 并初始化当前权重current
-            if (weight != weightedRoundRobin.getWeight()) {
-                weightedRoundRobin.setWeight(weight);
-            }
-            //	设置当前权重、更新时间
-            long cur = weightedRoundRobin.increaseCurrent();
-            weightedRoundRobin.setLastUpdate(now);
-            //	轮询比对, 设置当前最大的权重maxCurrent、以及所对应的实例selectedInstance、缓存的对象selectedWRR
-            if (cur > maxCurrent) {
-                maxCurrent = cur;
-                selectedInstance = instance;
-                selectedWRR = weightedRoundRobin;
-            }
-            //	总权重累计
-            totalWeight += weight;
-        }
-        //	如果当前实例个数和缓存不匹配, 则进行清除过期的实例缓存
-        if (instances.size() != map.size()) {
-            map.entrySet().removeIf(item -> now - item.getValue().getLastUpdate() > RECYCLE_PERIOD);
-        }
-        //	返回权重最大的实例, 并设置当前权重为最小值： A -> B -> C
-        if (selectedInstance != null) {
-            selectedWRR.sel(totalWeight);
-            return selectedInstance;
-        }
-        return instances.get(0);
+    protected ServiceInstance doSelect(RapidContext context, ServiceInstanceSnapshot snapshot) {
+    	long now = TimeUtil.currentTimeMillis();
+    	String uniqueId = snapshot.getUniqueId();
+    	if(uniqueId == null) {
+    		return RoundRobinSequence.build(snapshot, now).select(snapshot.getInstances());
+    	}
+    	RoundRobinSequence sequence = sequenceMap.get(uniqueId);
+    	if(sequence == null || !sequence.isValid(snapshot, now)) {
+    		//	并发构建时后写入的覆盖先写入的, 序列等价, 只是游标起点不同
+    		sequence = RoundRobinSequence.build(snapshot, now);
+    		sequenceMap.put(uniqueId, sequence);
+    	}
+    	return sequence.select(snapshot.getInstances());
     }
-    
-    /**
-     * <B>主类名称：</B>WeightedRoundRobin<BR>
-     * <B>概要说明：</B>权重缓存对象<BR>
-     * @author hezhuo.Bai-JiFeng
-     * @since 2021年11月24日 下午4:37:37
-     */
-    protected static class WeightedRoundRobin {
-        //	实例权重
-        private int weight;
-        //	当前权重
-        private AtomicLong current = new AtomicLong(0);
-        //	最后一次更新时间
-        private long lastUpdate;
-
-        public int getWeight() {
-            return weight;
-        }
-
-        public void setWeight(int weight) {
-            this.weight = weight;
-            //	初始化
-            current.set(0);
-        }
 
-        public long increaseCurrent() {
-            //  current = current + weight;
-            return current.addAndGet(weight);
-        }
-
-        public void sel(int total) {
-            //  current = current - total;
-            current.addAndGet(-1 * total);
-        }
-
-        public long getLastUpdate() {
-            return lastUpdate;
-        }
-
-        public void setLastUpdate(long lastUpdate) {
-            this.lastUpdate = lastUpdate;
-        }
+    @Override
+    public void removeService(String uniqueId) {
+    	sequenceMap.remove(uniqueId);
     }
 
 }
@@ -0,0 +1,160 @@
+package com.ruyuan.rapid.core.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+
+/**
+ * <B>主类名称：</B>RoundRobinSequence<BR>
+ * <B>概要说明：</B>按服务实例快照预计算的平滑加权轮询序列<BR>
+ * 	构建时按平滑加权轮询(smooth weighted round robin)算法一次性生成完整的选择序列(实例下标数组),
+ * 	选择时只需要对原子游标加一再取模, 无锁、没有map读写和对象分配, 并发请求之间也不会因为竞争打乱权重比例.
+ * 	序列长度为 总权重 / 权重的最大公约数, 超过MAX_LENGTH时截断: 平滑加权轮询序列的任意前缀中各实例的次数与权重成比例(误差不超过1次).
+ * 	有实例处于预热期时, 序列只在当前预热周期(LoadBalance.WARMUP_REFRESH_INTERVAL)内有效, 过期后按新的预热权重重新构建.
+ * @author JiFeng
+ * @since 2021年12月26日 下午8:05:17
+ */
+final class RoundRobinSequence {
+
+	//	序列的最大长度
+	static final int MAX_LENGTH = 8192;
+
+	private final ServiceInstanceSnapshot snapshot;
+
+	//	过期时间: 没有实例处于预热期时为Long.MAX_VALUE
+	private final long expireTime;
+
+	//	构建时每个实例的权重, 用于判断临时快照能否复用
+	private final int[] weights;
+
+	//	选择序列(实例下标), 权重全部相同(或总权重不大于0)时为null, 直接按实例顺序轮询
+	private final int[] sequence;
+
+	//	游标: 从随机位置开始, 避免多个网关节点同时从第一个实例开始
+	private final AtomicLong cursor;
+
+	private RoundRobinSequence(ServiceInstanceSnapshot snapshot, long expireTime, int[] weights, int[] sequence) {
+		this.snapshot = snapshot;
+		this.expireTime = expireTime;
+		this.weights = weights;
+		this.sequence = sequence;
+		int length = sequence == null ? weights.length : sequence.length;
+		this.cursor = new AtomicLong(ThreadLocalRandom.current().nextInt(length));
+	}
+
+	/**
+	 * <B>方法名称：</B>build<BR>
+	 * <B>概要说明：</B>根据快照中启用实例的当前权重生成轮询序列<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午8:08:42
+	 * @param snapshot
+	 * @param now
+	 * @return RoundRobinSequence
+	 */
+	static RoundRobinSequence build(ServiceInstanceSnapshot snapshot, long now) {
+		ServiceInstance[] instances = snapshot.getInstances();
+		int length = instances.length;
+		int[] weights = new int[length];
+		long totalWeight = 0;
+		int gcd = 0;
+		boolean sameWeight = true;
+		boolean warmingUp = false;
+		for(int i = 0; i < length; i++) {
+			//	权重不大于0的实例不会被选中
+			int weight = Math.max(AbstractLoadBalance.getWeight(instances[i]), 0);
+			weights[i] = weight;
+			totalWeight += weight;
+			gcd = gcd(gcd, weight);
+			if(sameWeight && i > 0 && weight != weights[i - 1]) {
+				sameWeight = false;
+			}
+			warmingUp |= AbstractLoadBalance.isWarmingUp(instances[i], now);
+		}
+		//	预热期内按周期对齐过期, 同一周期内所有请求共用一个序列
+		long expireTime = warmingUp ? (now / LoadBalance.WARMUP_REFRESH_INTERVAL + 1) * LoadBalance.WARMUP_REFRESH_INTERVAL
+				: Long.MAX_VALUE;
+		if(totalWeight <= 0 || sameWeight) {
+			return new RoundRobinSequence(snapshot, expireTime, weights, null);
+		}
+
+		int[] sequence = new int[(int)Math.min(totalWeight / gcd, MAX_LENGTH)];
+		//	平滑加权轮询: 每一轮所有实例的current加上各自权重, 选出current最大的实例, 再减去总权重
+		long[] current = new long[length];
+		for(int n = 0; n < sequence.length; n++) {
+			int selected = -1;
+			for(int i = 0; i < length; i++) {
+				if(weights[i] == 0) {
+					continue;
+				}
+				current[i] += weights[i];
+				if(selected < 0 || current[i] > current[selected]) {
+					selected = i;
+				}
+			}
+			current[selected] -= totalWeight;
+			sequence[n] = selected;
+		}
+		return new RoundRobinSequence(snapshot, expireTime, weights, sequence);
+	}
+
+	/**
+	 * <B>方法名称：</B>isValid<BR>
+	 * <B>概要说明：</B>序列是否仍然对应该快照且没有过预热周期<BR>
+	 * 	没有版本号的临时快照(dubbo invokers)每次调用都是新对象, 实例及权重按顺序相同时同样可以复用, 游标继续轮询<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午8:12:30
+	 * @param snapshot
+	 * @param now
+	 * @return boolean
+	 */
+	boolean isValid(ServiceInstanceSnapshot snapshot, long now) {
+		if(now >= expireTime) {
+			return false;
+		}
+		if(this.snapshot == snapshot) {
+			return true;
+		}
+		if(snapshot.getVersion() != ServiceInstanceSnapshot.UNVERSIONED
+				|| this.snapshot.getVersion() != ServiceInstanceSnapshot.UNVERSIONED
+				|| snapshot.size() != weights.length) {
+			return false;
+		}
+		ServiceInstance[] instances = snapshot.getInstances();
+		ServiceInstance[] previous = this.snapshot.getInstances();
+		for(int i = 0; i < instances.length; i++) {
+			if(!instances[i].getAddress().equals(previous[i].getAddress())
+					|| Math.max(AbstractLoadBalance.getWeight(instances[i]), 0) != weights[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <B>方法名称：</B>select<BR>
+	 * <B>概要说明：</B>按序列轮询选择一个实例<BR>
+	 * @author JiFeng
+	 * @since 2021年12月26日 下午8:14:05
+	 * @param instances 与构建时顺序相同的实例数组(isValid已校验)
+	 * @return ServiceInstance
+	 */
+	ServiceInstance select(ServiceInstance[] instances) {
+		long next = cursor.getAndIncrement() & Long.MAX_VALUE;
+		if(sequence == null) {
+			return instances[(int)(next % instances.length)];
+		}
+		return instances[sequence[(int)(next % sequence.length)]];
+	}
+
+	private static int gcd(int a, int b) {
+		while(b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+}
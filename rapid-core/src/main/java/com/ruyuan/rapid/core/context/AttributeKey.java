@@ -2,11 +2,16 @@ package com.ruyuan.rapid.core.context;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
 import com.ruyuan.rapid.common.config.ServiceInvoker;
 import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
+import com.ruyuan.rapid.core.netty.processor.filter.FilterPipeline;
+import com.ruyuan.rapid.core.netty.processor.filter.RuleFilterPlan;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
 
 /**
  * <B>主类名称：</B>AttributeKey<BR>
@@ -18,13 +23,21 @@ public abstract class AttributeKey<T> {
 
 	private static final Map<String, AttributeKey<?>> namedMap = new HashMap<>();
 	
+	//	AttributeKey的下标分配器: 每个key创建时分配一个连续的整数下标
+	private static final AtomicInteger INDEX_GENERATOR = new AtomicInteger();
+	
+	//	上下文中数组槽位的数量, 下标小于该值的key直接存放在数组中, 其余的key存放在溢出map中
+	public static final int SLOT_SIZE = 16;
+	
+	private final int index = INDEX_GENERATOR.getAndIncrement();
+	
 	
 	public static final AttributeKey<ServiceInvoker> HTTP_INVOKER = create(ServiceInvoker.class);
 
 	public static final AttributeKey<ServiceInvoker> DUBBO_INVOKER = create(ServiceInvoker.class);
 	
 	//	存储所有服务实例的列表信息，负载均衡使用
-	public static final AttributeKey<Set<ServiceInstance>> MATCH_INSTANCES = create(Set.class);
+	public static final AttributeKey<ServiceInstanceSnapshot> MATCH_INSTANCES = create(ServiceInstanceSnapshot.class);
 	
 	//	负载均衡选中的实例信息
 	public static final AttributeKey<ServiceInstance> LOAD_INSTANCE = create(ServiceInstance.class);
@@ -35,6 +48,18 @@ public abstract class AttributeKey<T> {
     //  Dubbo请求附加参数透传
     public static final AttributeKey<Map<String, String>> DUBBO_ATTACHMENT = create(Map.class);
     
+	//	当前规则预编译的过滤器执行计划: 过滤器链中第一次使用时放入
+	public static final AttributeKey<RuleFilterPlan> FILTER_PLAN = create(RuleFilterPlan.class);
+	
+	//	过滤器流水线的执行游标: 过滤器的fireNext通过它通知驱动循环或者从异步回调中继续执行
+	public static final AttributeKey<FilterPipeline.Cursor> FILTER_CURSOR = create(FilterPipeline.Cursor.class);
+	
+	//	最少在途请求负载均衡的计数凭证: 选中实例时放入, 请求完成时释放
+	public static final AttributeKey<OutstandingRequests.Token> OUTSTANDING_REQUEST = create(OutstandingRequests.Token.class);
+	
+	//	当前规则的负载均衡过滤器配置
+	public static final AttributeKey<LoadBalancePreFilter.Config> LOADBALANCE_CONFIG = create(LoadBalancePreFilter.Config.class);
+    
 
 	static {
 		namedMap.put("HTTP_INVOKER", HTTP_INVOKER);
@@ -43,12 +68,27 @@ public abstract class AttributeKey<T> {
 		namedMap.put("LOAD_INSTANCE", LOAD_INSTANCE);
 		namedMap.put("DUBBO_LOADBALANCE_STRATEGY", DUBBO_LOADBALANCE_STRATEGY);
 		namedMap.put("DUBBO_ATTACHMENT", DUBBO_ATTACHMENT);
+		namedMap.put("FILTER_PLAN", FILTER_PLAN);
+		namedMap.put("FILTER_CURSOR", FILTER_CURSOR);
+		namedMap.put("OUTSTANDING_REQUEST", OUTSTANDING_REQUEST);
+		namedMap.put("LOADBALANCE_CONFIG", LOADBALANCE_CONFIG);
 	}
 	
 	public static AttributeKey<?> valueOf(String name) {
 		return namedMap.get(name);
 	}
 	
+	/**
+	 * <B>方法名称：</B>index<BR>
+	 * <B>概要说明：</B>获取key创建时分配的下标, 上下文用它定位数组槽位<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午2:10:33
+	 * @return int
+	 */
+	public final int index() {
+		return index;
+	}
+	
 	/**
 	 * <B>方法名称：</B>cast<BR>
 	 * <B>概要说明：</B>给我一个对象，转成对应的class类型<BR>
@@ -1,10 +1,12 @@
 package com.ruyuan.rapid.core.context;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import io.netty.channel.ChannelHandlerContext;
@@ -17,17 +19,23 @@ import io.netty.channel.ChannelHandlerContext;
  */
 public abstract class BasicContext implements Context {
 
-	protected final String protocol;
+	protected String protocol;
 	
-	protected final ChannelHandlerContext nettyCtx;
+	protected ChannelHandlerContext nettyCtx;
 	
-	protected final boolean keepAlive;
+	protected boolean keepAlive;
 	
 	//	上下文的status标识
 	protected volatile int status = Context.RUNNING;
 	
-	//	保存所有的上下文参数集合
-	protected final Map<AttributeKey<?>, Object> attributes = new HashMap<AttributeKey<?>, Object>();
+	//	上下文参数中null值的占位, 用于区分"没有设置"和"设置为null"
+	private static final Object NULL_VALUE = new Object();
+	
+	//	保存所有的上下文参数集合: 按AttributeKey的下标存放在数组槽位中
+	protected final Object[] attributes = new Object[AttributeKey.SLOT_SIZE];
+	
+	//	下标超出数组槽位的动态key, 按需创建
+	protected Map<AttributeKey<?>, Object> spillAttributes;
 	
 	//	在请求过程中出现异常则设置异常对象
 	protected Throwable throwable;
@@ -38,6 +46,9 @@ public abstract class BasicContext implements Context {
 	//	存放回调函数的集合
 	protected List<Consumer<Context>> completedCallbacks;
 	
+	//	上下文的持有计数: 处理线程持有一次, 异步路由在途时再持有一次, 归零时回调recycle
+	protected final AtomicInteger refCnt = new AtomicInteger(1);
+	
 	/**
 	 * 	SR(Server[Rapid-Core] Received):	服务器接收到网络请求
 	 * 	SS(Server[Rapid-Core] Send):		服务器写回请求
@@ -115,16 +126,52 @@ public abstract class BasicContext implements Context {
 		return status == Context.TERMINATED;
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T getAttribute(AttributeKey<T> key) {
-		return (T) attributes.get(key);
+		return getAttributeOrDefault(key, null);
+	}
+	
+	/**
+	 * <B>方法名称：</B>getAttributeOrDefault<BR>
+	 * <B>概要说明：</B>获取指定key的上下文参数，如果没有则返回第二个参数的默认值<BR>
+	 * @author JiFeng
+	 * @since 2021年12月9日 下午2:44:23
+	 * @param <T>
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getAttributeOrDefault(AttributeKey<T> key, T defaultValue) {
+		Object value;
+		int index = key.index();
+		if(index < AttributeKey.SLOT_SIZE) {
+			value = attributes[index];
+		} else {
+			value = spillAttributes == null ? null : spillAttributes.get(key);
+		}
+		if(value == null) {
+			return defaultValue;
+		}
+		return value == NULL_VALUE ? null : (T) value;
 	}
 	
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T putAttribute(AttributeKey<T> key, T value) {
-		return (T) attributes.put(key, value);
+		Object newValue = value == null ? NULL_VALUE : value;
+		Object old;
+		int index = key.index();
+		if(index < AttributeKey.SLOT_SIZE) {
+			old = attributes[index];
+			attributes[index] = newValue;
+		} else {
+			if(spillAttributes == null) {
+				spillAttributes = new HashMap<AttributeKey<?>, Object>();
+			}
+			old = spillAttributes.put(key, newValue);
+		}
+		return old == NULL_VALUE ? null : (T) old;
 	}
 	
 	@Override
@@ -142,6 +189,52 @@ public abstract class BasicContext implements Context {
 		this.requestReleased.compareAndSet(false, true);
 	}
 	
+	@Override
+	public void retain() {
+		refCnt.incrementAndGet();
+	}
+	
+	@Override
+	public void release() {
+		if(refCnt.decrementAndGet() == 0) {
+			recycle();
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>recycle<BR>
+	 * <B>概要说明：</B>持有计数归零时的回收钩子, 默认什么都不做, 由支持对象池的子类实现<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:18:05
+	 */
+	protected void recycle() {
+	}
+	
+	/**
+	 * <B>方法名称：</B>reset<BR>
+	 * <B>概要说明：</B>重置基础上下文的所有状态, 供对象池复用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:19:22
+	 */
+	protected void reset() {
+		protocol = null;
+		nettyCtx = null;
+		keepAlive = false;
+		status = Context.RUNNING;
+		Arrays.fill(attributes, null);
+		if(spillAttributes != null) {
+			spillAttributes.clear();
+		}
+		throwable = null;
+		requestReleased.set(false);
+		completedCallbacks = null;
+		refCnt.set(1);
+		SRTime = 0;
+		SSTime = 0;
+		RSTime = 0;
+		RRTime = 0;
+	}
+	
 	@Override
 	public void completedCallback(Consumer<Context> consumer) {
 		if(completedCallbacks == null) {
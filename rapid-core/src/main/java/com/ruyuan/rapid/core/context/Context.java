@@ -199,6 +199,22 @@ public interface Context {
 	 */
 	void invokeCompletedCallback();
 	
+	/**
+	 * <B>方法名称：</B>retain<BR>
+	 * <B>概要说明：</B>增加上下文的持有计数: 异步路由等需要在回调中继续使用上下文的地方, 在发起调用前持有一次<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:12:31
+	 */
+	void retain();
+	
+	/**
+	 * <B>方法名称：</B>release<BR>
+	 * <B>概要说明：</B>减少上下文的持有计数, 归零说明请求生命周期已经结束, 对象池模式下上下文在此时被回收<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:13:50
+	 */
+	void release();
+	
 	
 	/**
 	 * 	SR(Server[Rapid-Core] Received):	网关服务器接收到网络请求
@@ -1,7 +1,10 @@
 package com.ruyuan.rapid.core.context;
 
+import com.ruyuan.rapid.core.RapidConfigLoader;
+
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.util.Recycler;
 import lombok.Data;
 
 /**
@@ -12,9 +15,59 @@ import lombok.Data;
  */
 @Data
 public class HttpRequestWrapper {
+	
+	private static final Recycler<HttpRequestWrapper> RECYCLER = new Recycler<HttpRequestWrapper>() {
+		@Override
+		protected HttpRequestWrapper newObject(Handle<HttpRequestWrapper> handle) {
+			return new HttpRequestWrapper(handle);
+		}
+	};
 
 	private FullHttpRequest fullHttpRequest;
 	
 	private ChannelHandlerContext ctx;
 	
+	//	非对象池模式为null
+	private final transient Recycler.Handle<HttpRequestWrapper> handle;
+	
+	public HttpRequestWrapper() {
+		this.handle = null;
+	}
+	
+	private HttpRequestWrapper(Recycler.Handle<HttpRequestWrapper> handle) {
+		this.handle = handle;
+	}
+	
+	/**
+	 * <B>方法名称：</B>newInstance<BR>
+	 * <B>概要说明：</B>创建请求包装, 开启对象池时从当前EventLoop的对象池中获取<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:50:21
+	 * @param fullHttpRequest
+	 * @param ctx
+	 * @return HttpRequestWrapper
+	 */
+	public static HttpRequestWrapper newInstance(FullHttpRequest fullHttpRequest, ChannelHandlerContext ctx) {
+		HttpRequestWrapper httpRequestWrapper = RapidConfigLoader.getRapidConfig().isObjectPoolEnabled() ? 
+				RECYCLER.get() : new HttpRequestWrapper();
+		httpRequestWrapper.fullHttpRequest = fullHttpRequest;
+		httpRequestWrapper.ctx = ctx;
+		return httpRequestWrapper;
+	}
+	
+	/**
+	 * <B>方法名称：</B>recycle<BR>
+	 * <B>概要说明：</B>归还对象池, 非对象池模式什么都不做<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:51:37
+	 */
+	public void recycle() {
+		if(handle == null) {
+			return;
+		}
+		fullHttpRequest = null;
+		ctx = null;
+		handle.recycle(this);
+	}
+	
 }
@@ -2,9 +2,14 @@ package com.ruyuan.rapid.core.context;
 
 import com.ruyuan.rapid.common.config.Rule;
 import com.ruyuan.rapid.common.util.AssertUtil;
+import com.ruyuan.rapid.core.RapidConfigLoader;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
 
 /**
  * <B>主类名称：</B>RapidContext<BR>
@@ -14,17 +19,71 @@ import io.netty.util.ReferenceCountUtil;
  */
 public class RapidContext extends BasicContext {
 	
-	private final RapidRequest rapidRequest;
+	//	对象池: 基于线程本地的Recycler, 在哪个线程(EventLoop)上获取就优先复用该线程的对象
+	private static final Recycler<RapidContext> RECYCLER = new Recycler<RapidContext>() {
+		@Override
+		protected RapidContext newObject(Handle<RapidContext> handle) {
+			return new RapidContext(handle);
+		}
+	};
+	
+	//	对象池模式下的泄漏检测: 没有归还就被GC的上下文会打印泄漏日志, 级别由-Dio.netty.leakDetection.level控制
+	private static final ResourceLeakDetector<RapidContext> LEAK_DETECTOR = 
+			ResourceLeakDetectorFactory.instance().newResourceLeakDetector(RapidContext.class);
+	
+	private RapidRequest rapidRequest;
 	
 	private RapidResponse rapidResponse;
 	
-	private final Rule rule;
+	private Rule rule;
+	
+	//	非对象池模式为null
+	private final Recycler.Handle<RapidContext> handle;
+	
+	private ResourceLeakTracker<RapidContext> leak;
 	
 	private RapidContext(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive,
 			RapidRequest rapidRequest, Rule rule) {
 		super(protocol, nettyCtx, keepAlive);
 		this.rapidRequest = rapidRequest;
 		this.rule = rule;
+		this.handle = null;
+	}
+	
+	private RapidContext(Recycler.Handle<RapidContext> handle) {
+		super(null, null, false);
+		this.handle = handle;
+	}
+	
+	/**
+	 * <B>方法名称：</B>newInstance<BR>
+	 * <B>概要说明：</B>创建上下文, 开启对象池时从当前线程的对象池中获取<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:25:16
+	 * @param protocol
+	 * @param nettyCtx
+	 * @param keepAlive
+	 * @param rapidRequest
+	 * @param rule
+	 * @return RapidContext
+	 */
+	public static RapidContext newInstance(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive,
+			RapidRequest rapidRequest, Rule rule) {
+		AssertUtil.notNull(protocol, "protocol不能为空");
+		AssertUtil.notNull(nettyCtx, "nettyCtx不能为空");
+		AssertUtil.notNull(rapidRequest, "rapidRequest不能为空");
+		AssertUtil.notNull(rule, "rule不能为空");
+		if(!RapidConfigLoader.getRapidConfig().isContextPoolEnabled()) {
+			return new RapidContext(protocol, nettyCtx, keepAlive, rapidRequest, rule);
+		}
+		RapidContext rapidContext = RECYCLER.get();
+		rapidContext.protocol = protocol;
+		rapidContext.nettyCtx = nettyCtx;
+		rapidContext.keepAlive = keepAlive;
+		rapidContext.rapidRequest = rapidRequest;
+		rapidContext.rule = rule;
+		rapidContext.leak = LEAK_DETECTOR.track(rapidContext);
+		return rapidContext;
 	}
 	
 	/**
@@ -74,11 +133,7 @@ public class RapidContext extends BasicContext {
 		}
 		
 		public RapidContext build() {
-			AssertUtil.notNull(protocol, "protocol不能为空");
-			AssertUtil.notNull(nettyCtx, "nettyCtx不能为空");
-			AssertUtil.notNull(rapidRequest, "rapidRequest不能为空");
-			AssertUtil.notNull(rule, "rule不能为空");
-			return new RapidContext(protocol, nettyCtx, keepAlive, rapidRequest, rule);
+			return newInstance(protocol, nettyCtx, keepAlive, rapidRequest, rule);
 		}
 	}
 	
@@ -97,21 +152,6 @@ public class RapidContext extends BasicContext {
 		return value;
 	}
 	
-	/**
-	 * <B>方法名称：</B>getAttributeOrDefault<BR>
-	 * <B>概要说明：</B>获取指定key的上下文参数，如果没有则返回第二个参数的默认值<BR>
-	 * @author JiFeng
-	 * @since 2021年12月9日 下午2:44:23
-	 * @param <T>
-	 * @param key
-	 * @param defaultValue
-	 * @return
-	 */
-	@SuppressWarnings("unchecked")
-	public <T> T getAttributeOrDefault(AttributeKey<T> key, T defaultValue) {
-		return (T) attributes.getOrDefault(key, defaultValue);
-	}
-	
 	/**
 	 * <B>方法名称：</B>getFilterConfig<BR>
 	 * <B>概要说明：</B>根据过滤器id获取对应的过滤器配置信息<BR>
@@ -138,16 +178,43 @@ public class RapidContext extends BasicContext {
 	/**
 	 * <B>方法名称：</B>releaseRequest<BR>
 	 * <B>概要说明：</B>重写覆盖父类：basicContext的该方法，主要用于真正的释放操作<BR>
+	 * 	先归还零拷贝转发持有的请求体引用, 再释放FullHttpRequest
 	 * @author  JiFeng
 	 * @since 2021年12月9日 下午2:53:07
 	 * @see com.ruyuan.rapid.core.context.BasicContext#releaseRequest()
 	 */
 	public void releaseRequest() {
 		if(requestReleased.compareAndSet(false, true)) {
+			rapidRequest.releaseBody();
 			ReferenceCountUtil.release(rapidRequest.getFullHttpRequest());
 		}
 	}
 	
+	/**
+	 * <B>方法名称：</B>recycle<BR>
+	 * <B>概要说明：</B>持有计数归零: 确保请求资源已释放, 连同RapidRequest一起归还对象池<BR>
+	 * @author  JiFeng
+	 * @since 2021年12月24日 上午10:31:47
+	 * @see com.ruyuan.rapid.core.context.BasicContext#recycle()
+	 */
+	@Override
+	protected void recycle() {
+		if(handle == null) {
+			return;
+		}
+		releaseRequest();
+		rapidRequest.recycle();
+		if(leak != null) {
+			leak.close(this);
+			leak = null;
+		}
+		reset();
+		rapidRequest = null;
+		rapidResponse = null;
+		rule = null;
+		handle.recycle(this);
+	}
+	
 	@Override
 	public Rule getRule() {
 		return rule;
@@ -10,11 +10,15 @@ import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.request.body.generator.ReactiveStreamsBodyGenerator;
 
 import com.google.common.collect.Lists;
 import com.jayway.jsonpath.JsonPath;
 import com.ruyuan.rapid.common.constants.BasicConst;
 import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.netty.stream.RetainedBodyGenerator;
+import com.ruyuan.rapid.core.netty.stream.StreamingFullHttpRequest;
 
 import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
@@ -25,6 +29,7 @@ import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.Recycler;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -37,75 +42,84 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RapidRequest implements RapidRequestMutable {
 	
+	private static final Recycler<RapidRequest> RECYCLER = new Recycler<RapidRequest>() {
+		@Override
+		protected RapidRequest newObject(Handle<RapidRequest> handle) {
+			return new RapidRequest(handle);
+		}
+	};
+	
+	//	非对象池模式为null
+	private final Recycler.Handle<RapidRequest> handle;
+	
 	/**
 	 * 	FullHttpRequest: 在header里面必须要有该属性：uniqueId
 	 * 	表示服务的唯一性ID: serviceId:version
 	 */
 	@Getter
-	private final String uniqueId;
+	private String uniqueId;
 	
 	/**
 	 * 	一次请求进入网关的开始时间戳
 	 */
 	@Getter
-	private final long beginTime;
+	private long beginTime;
 	
 	@Getter
-	private final Charset charset;
+	private Charset charset;
 	
 	/**
 	 * 	客户端的ip地址：流控、黑白名单
 	 */
 	@Getter
-	private final String clientIp;
+	private String clientIp;
 	
 	/**
 	 * 	请求的地址：ip:port
 	 */
 	@Getter
-	private final String host;
+	private String host;
 	
 	/**
 	 * 	请求的路径：/xxx/xx/xxx
 	 */
 	@Getter
-	private final String path;
+	private String path;
 	
 	/**
 	 * uri: /xxx/xx/xxx?attr1=value1&attr2=value2
 	 */
 	@Getter
-	private final String uri;
+	private String uri;
 	
 	/**
 	 * 	请求的方式：get/post/put...
 	 */
 	@Getter
-	private final HttpMethod method;
+	private HttpMethod method;
 	
 	/**
 	 * 	请求的格式
 	 */
 	@Getter
-	private final String contentType;
+	private String contentType;
 	
 	/**
 	 * 	请求头信息
 	 */
 	@Getter
-	private final HttpHeaders headers;
+	private HttpHeaders headers;
 	
 	/**
-	 * 	参数解析器
+	 * 	参数解析器: 第一次读取query参数时才创建
 	 */
-	@Getter
-	private final QueryStringDecoder queryDecoder;
+	private QueryStringDecoder queryDecoder;
 	
 	/**
 	 *	FullHttpRequest 	
 	 */
 	@Getter
-	private final FullHttpRequest fullHttpRequest;	
+	private FullHttpRequest fullHttpRequest;	
 	
 	/**
 	 * 	请求体
@@ -113,10 +127,12 @@ public class RapidRequest implements RapidRequestMutable {
 	private String body;
 	
 	/**
-	 * 	请求对象里面的cookie：
+	 * 	请求对象里面的cookie：对象池模式下map会被复用, 是否已解析由cookieParsed标识
 	 */
 	private Map<String, Cookie> cookieMap;
 	
+	private boolean cookieParsed;
+	
 	/**
 	 * 	请求的时候定义的post参数集合
 	 */
@@ -140,9 +156,14 @@ public class RapidRequest implements RapidRequestMutable {
 	private String modifyPath;
 	
 	/**
-	 * 	构建下游请求时的Http请构建器
+	 * 	构建下游请求时的Http请构建器: 到路由阶段第一次修改或构建下游请求时才创建
+	 */
+	private RequestBuilder requestBuilder;
+	
+	/**
+	 * 	聚合请求体的零拷贝转发: 持有请求体的一个引用, 随请求释放(releaseBody)归还
 	 */
-	private final RequestBuilder requestBuilder;
+	private RetainedBodyGenerator bodyGenerator;
 	
 	/**
 	 * <B>构造方法</B>RapidRequest<BR>
@@ -158,6 +179,33 @@ public class RapidRequest implements RapidRequestMutable {
 	 */
 	public RapidRequest(String uniqueId, Charset charset, String clientIp, String host,
 			String uri, HttpMethod method, String contentType, HttpHeaders headers, FullHttpRequest fullHttpRequest) {
+		this.handle = null;
+		init(uniqueId, charset, clientIp, host, uri, method, contentType, headers, fullHttpRequest);
+	}
+	
+	private RapidRequest(Recycler.Handle<RapidRequest> handle) {
+		this.handle = handle;
+	}
+	
+	/**
+	 * <B>方法名称：</B>newInstance<BR>
+	 * <B>概要说明：</B>创建请求对象, 开启对象池时从当前线程的对象池中获取<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:40:12
+	 * @return RapidRequest
+	 */
+	public static RapidRequest newInstance(String uniqueId, Charset charset, String clientIp, String host,
+			String uri, HttpMethod method, String contentType, HttpHeaders headers, FullHttpRequest fullHttpRequest) {
+		if(!RapidConfigLoader.getRapidConfig().isContextPoolEnabled()) {
+			return new RapidRequest(uniqueId, charset, clientIp, host, uri, method, contentType, headers, fullHttpRequest);
+		}
+		RapidRequest rapidRequest = RECYCLER.get();
+		rapidRequest.init(uniqueId, charset, clientIp, host, uri, method, contentType, headers, fullHttpRequest);
+		return rapidRequest;
+	}
+	
+	private void init(String uniqueId, Charset charset, String clientIp, String host,
+			String uri, HttpMethod method, String contentType, HttpHeaders headers, FullHttpRequest fullHttpRequest) {
 		this.uniqueId = uniqueId;
 		this.beginTime = TimeUtil.currentTimeMillis();
 		this.charset = charset;
@@ -167,21 +215,135 @@ public class RapidRequest implements RapidRequestMutable {
 		this.contentType = contentType;
 		this.headers = headers;
 		this.uri = uri;
-		this.queryDecoder = new QueryStringDecoder(uri, charset);
-		this.path = queryDecoder.path();
+		//	只解码path, query参数和下游请求构建器都延迟到真正使用时
+		this.path = decodePath(uri, charset);
 		this.fullHttpRequest = fullHttpRequest;
 		
 		this.modifyHost = host;
 		this.modifyPath = path;
 		this.modifyScheme = BasicConst.HTTP_PREFIX_SEPARATOR;
-		this.requestBuilder = new RequestBuilder();
-		this.requestBuilder.setMethod(getMethod().name());
-		this.requestBuilder.setHeaders(getHeaders());
-		this.requestBuilder.setQueryParams(queryDecoder.parameters());
+	}
+	
+	/**
+	 * <B>方法名称：</B>decodePath<BR>
+	 * <B>概要说明：</B>只截取并解码uri中的path部分, 与QueryStringDecoder.path()结果一致, 但不解析query参数<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:05:41
+	 * @param uri
+	 * @param charset
+	 * @return String
+	 */
+	public static String decodePath(String uri, Charset charset) {
+		int end = uri.length();
+		boolean encoded = false;
+		for(int i = 0; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+			if(c == '?' || c == '#') {
+				end = i;
+				break;
+			}
+			if(c == '%') {
+				encoded = true;
+			}
+		}
+		String rawPath = end == uri.length() ? uri : uri.substring(0, end);
+		//	没有转义字符时path就是原始字符串, 否则交给QueryStringDecoder按path规则解码('+'不转空格)
+		return encoded ? new QueryStringDecoder(rawPath, charset).path() : rawPath;
+	}
+	
+	/**
+	 * <B>方法名称：</B>getQueryDecoder<BR>
+	 * <B>概要说明：</B>获取参数解析器, 第一次调用时创建<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:07:12
+	 * @return QueryStringDecoder
+	 */
+	public QueryStringDecoder getQueryDecoder() {
+		if(queryDecoder == null) {
+			queryDecoder = new QueryStringDecoder(uri, charset);
+		}
+		return queryDecoder;
+	}
+	
+	/**
+	 * <B>方法名称：</B>requestBuilder<BR>
+	 * <B>概要说明：</B>获取下游请求构建器, 第一次调用时用原始请求的方法、请求头、query参数和请求体初始化<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:08:30
+	 * @return RequestBuilder
+	 */
+	private RequestBuilder requestBuilder() {
+		if(requestBuilder != null) {
+			return requestBuilder;
+		}
+		requestBuilder = new RequestBuilder();
+		requestBuilder.setMethod(getMethod().name());
+		requestBuilder.setHeaders(getHeaders());
+		requestBuilder.setQueryParams(getQueryDecoder().parameters());
 		ByteBuf contentBuffer = fullHttpRequest.content();
-		if(Objects.nonNull(contentBuffer)) {
-			this.requestBuilder.setBody(contentBuffer.nioBuffer());
+		if(fullHttpRequest instanceof StreamingFullHttpRequest) {
+			//	流式请求: 请求体边收边发给下游
+			StreamingFullHttpRequest streamingRequest = (StreamingFullHttpRequest)fullHttpRequest;
+			requestBuilder.setBody(new ReactiveStreamsBodyGenerator(streamingRequest.getBody(), 
+					streamingRequest.getContentLength()));
+		} else if(Objects.nonNull(contentBuffer) && contentBuffer.isReadable()) {
+			//	请求体不拷贝: 下游写出时直接引用客户端请求的ByteBuf
+			bodyGenerator = new RetainedBodyGenerator(contentBuffer);
+			requestBuilder.setBody(bodyGenerator);
+		} else if(Objects.nonNull(contentBuffer)) {
+			requestBuilder.setBody(contentBuffer.nioBuffer());
 		}
+		return requestBuilder;
+	}
+	
+	/**
+	 * <B>方法名称：</B>releaseBody<BR>
+	 * <B>概要说明：</B>归还零拷贝转发持有的请求体引用, 在释放FullHttpRequest之前调用<BR>
+	 * 	正在写往下游的请求体各自持有引用, 写出完成后才真正归还内存
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:20:16
+	 */
+	public void releaseBody() {
+		if(bodyGenerator != null) {
+			bodyGenerator.release();
+			bodyGenerator = null;
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>recycle<BR>
+	 * <B>概要说明：</B>清空请求对象的引用并归还对象池, 由RapidContext回收时调用, 非对象池模式什么都不做<BR>
+	 * 	RequestBuilder不复用: build出来的下游Request直接引用了它的headers等内部对象
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:42:35
+	 */
+	public void recycle() {
+		if(handle == null) {
+			return;
+		}
+		uniqueId = null;
+		charset = null;
+		clientIp = null;
+		host = null;
+		path = null;
+		uri = null;
+		method = null;
+		contentType = null;
+		headers = null;
+		queryDecoder = null;
+		fullHttpRequest = null;
+		body = null;
+		if(cookieMap != null) {
+			cookieMap.clear();
+		}
+		cookieParsed = false;
+		postParameters = null;
+		modifyScheme = null;
+		modifyHost = null;
+		modifyPath = null;
+		requestBuilder = null;
+		bodyGenerator = null;
+		handle.recycle(this);
 	}
 	
 	/**
@@ -207,12 +369,17 @@ public class RapidRequest implements RapidRequestMutable {
 	 * @return Cookie
 	 */
 	public Cookie getCookie(String name) {
-		if(cookieMap == null) {
-			cookieMap = new HashMap<String, Cookie>();
+		if(!cookieParsed) {
+			cookieParsed = true;
+			if(cookieMap == null) {
+				cookieMap = new HashMap<String, Cookie>();
+			}
 			String cookieStr = getHeaders().get(HttpHeaderNames.COOKIE);
-			Set<Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
-			for(Cookie cookie : cookies) {
-				cookieMap.put(name, cookie);
+			if(cookieStr != null) {
+				Set<Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
+				for(Cookie cookie : cookies) {
+					cookieMap.put(cookie.name(), cookie);
+				}
 			}
 		}
 		return cookieMap.get(name);
@@ -227,7 +394,7 @@ public class RapidRequest implements RapidRequestMutable {
 	 * @return 
 	 */
 	public List<String> getQueryParametersMultiple(String name){
-		return queryDecoder.parameters().get(name);
+		return getQueryDecoder().parameters().get(name);
 	}
 	
 	public List<String> getPostParametersMultiple(String name){
@@ -258,8 +425,7 @@ public class RapidRequest implements RapidRequestMutable {
 	
 	@Override
 	public Request build() {
-		requestBuilder.setUrl(getFinalUrl());
-		return requestBuilder.build();
+		return requestBuilder().setUrl(getFinalUrl()).build();
 	}
 	
 	@Override
@@ -290,34 +456,34 @@ public class RapidRequest implements RapidRequestMutable {
 
 	@Override
 	public void addHeader(CharSequence name, String value) {
-		requestBuilder.addHeader(name, value);
+		requestBuilder().addHeader(name, value);
 	}
 
 	@Override
 	public void setHeader(CharSequence name, String value) {
-		requestBuilder.setHeader(name, value);
+		requestBuilder().setHeader(name, value);
 	}
 
 	@Override
 	public void addQueryParam(String name, String value) {
-		requestBuilder.addQueryParam(name, value);
+		requestBuilder().addQueryParam(name, value);
 	}
 
 	@Override
 	public void addOrReplaceCookie(org.asynchttpclient.cookie.Cookie cookie) {
-		requestBuilder.addOrReplaceCookie(cookie);
+		requestBuilder().addOrReplaceCookie(cookie);
 	}
 
 	@Override
 	public void addFormParam(String name, String value) {
 		if(isFormPost()) {
-			requestBuilder.addFormParam(name, value);
+			requestBuilder().addFormParam(name, value);
 		}
 	}
 
 	@Override
 	public void setRequestTimeout(int requestTimeout) {
-		requestBuilder.setRequestTimeout(requestTimeout);
+		requestBuilder().setRequestTimeout(requestTimeout);
 	}
 	
 	public boolean isFormPost() {
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 import com.alibaba.fastjson.JSONObject;
 import com.ruyuan.rapid.common.config.DubboServiceInvoker;
@@ -21,6 +22,8 @@ import com.ruyuan.rapid.common.util.FastJsonConvertUtil;
 import com.ruyuan.rapid.common.util.Pair;
 import com.ruyuan.rapid.common.util.ServiceLoader;
 import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.netty.processor.filter.RuleFilterPlan;
 import com.ruyuan.rapid.discovery.api.Notify;
 import com.ruyuan.rapid.discovery.api.Registry;
 import com.ruyuan.rapid.discovery.api.RegistryService;
@@ -157,6 +160,8 @@ public class RegistryManager {
 				}
 				Rule rule = FastJsonConvertUtil.convertJSONToObject(ruleJson, Rule.class);
 				DynamicConfigManager.getInstance().putRule(rule.getId(), rule);
+				//	规则加载时预编译过滤器执行计划
+				RuleFilterPlan.getPlan(rule);
 				log.info("#RegistryManager#subscribeService 2 加载规则信息 ruleId : {}, rule : {}", 			
 						rule.getId(),
 						FastJsonConvertUtil.convertObjectToJSON(rule));				
@@ -259,6 +264,9 @@ public class RegistryManager {
 				//	Rule
 				String ruleId = key.substring(rulesPath.length() + 1);
 				Rule rule = FastJsonConvertUtil.convertJSONToObject(value, Rule.class);
+				//	先分配版本并编译执行计划, 再发布规则: 规则变更后的第一个请求不需要解析过滤器配置
+				rule.setVersion(DynamicConfigManager.getInstance().nextRuleVersion());
+				RuleFilterPlan.getPlan(rule);
 				DynamicConfigManager.getInstance().putRule(ruleId, rule);
 				return;
 			}
@@ -277,8 +285,11 @@ public class RegistryManager {
 			//	如果是服务定义发生变更：
 			if(key.contains(servicesPath)) {
 				String uniqueId = key.substring(servicesPath.length() + 1);
+				Set<ServiceInstance> serviceInstances = DynamicConfigManager.getInstance().getServiceInstanceByUniqueId(uniqueId);
 				DynamicConfigManager.getInstance().removeServiceDefinition(uniqueId);
 				DynamicConfigManager.getInstance().removeServiceInstancesByUniqueId(uniqueId);
+				LoadBalanceFactory.removeService(uniqueId);
+				LoadBalanceFactory.removeInstances(serviceInstances);
 				return;
 			}
 			//	如果是服务实例发生变更：
@@ -289,7 +300,13 @@ public class RegistryManager {
 				if(tempArray.length == 2) {
 					String uniqueId = tempArray[0];
 					String serviceInstanceId = tempArray[1];
+					Set<ServiceInstance> serviceInstances = DynamicConfigManager.getInstance().getServiceInstanceByUniqueId(uniqueId);
 					DynamicConfigManager.getInstance().removeServiceInstance(uniqueId, serviceInstanceId);
+					if(serviceInstances != null) {
+						LoadBalanceFactory.removeInstances(serviceInstances.stream()
+								.filter(serviceInstance -> serviceInstance.getServiceInstanceId().equals(serviceInstanceId))
+								.collect(Collectors.toList()));
+					}
 				}				
 				return;
 			}
@@ -297,6 +314,7 @@ public class RegistryManager {
 			if(key.contains(rulesPath)) {
 				String ruleId = key.substring(rulesPath.length() + 1);
 				DynamicConfigManager.getInstance().removeRule(ruleId);
+				RuleFilterPlan.removePlan(ruleId);
 				return;
 			}
 		}
@@ -1,5 +1,7 @@
 package com.ruyuan.rapid.core.helper;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import org.asynchttpclient.AsyncHandler;
@@ -8,6 +10,8 @@ import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.Response;
 
+import io.netty.channel.EventLoop;
+
 /**
  * <B>主类名称：</B>AsyncHttpHelper<BR>
  * <B>概要说明：</B>异步的http辅助类：NettyHttpClient<BR>
@@ -30,10 +34,17 @@ public class AsyncHttpHelper {
 	
 	private AsyncHttpClient asyncHttpClient;
 	
+	//	线程亲和模式: EventLoop -> 绑定该EventLoop的AsyncHttpClient, 启动后只读
+	private Map<EventLoop, AsyncHttpClient> affinityClients = Collections.emptyMap();
+	
 	public void initialized(AsyncHttpClient asyncHttpClient) {
 		this.asyncHttpClient = asyncHttpClient;
 	}
 	
+	public void initializedAffinity(Map<EventLoop, AsyncHttpClient> affinityClients) {
+		this.affinityClients = affinityClients;
+	}
+	
 	public CompletableFuture<Response> executeRequest(Request request) {
 		ListenableFuture<Response> future = asyncHttpClient.executeRequest(request);
 		return future.toCompletableFuture();
@@ -44,4 +55,28 @@ public class AsyncHttpHelper {
 		return future.toCompletableFuture();
 	}
 	
+	/**
+	 * <B>方法名称：</B>executeRequest<BR>
+	 * <B>概要说明：</B>使用绑定到eventLoop的客户端转发请求, 未开启线程亲和模式时使用共享客户端<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午3:20:11
+	 * @param eventLoop 接入请求的EventLoop
+	 * @param request
+	 * @return CompletableFuture<Response>
+	 */
+	public CompletableFuture<Response> executeRequest(EventLoop eventLoop, Request request) {
+		ListenableFuture<Response> future = select(eventLoop).executeRequest(request);
+		return future.toCompletableFuture();
+	}
+	
+	public <T> CompletableFuture<T> executeRequest(EventLoop eventLoop, Request request, AsyncHandler<T> handler) {
+		ListenableFuture<T> future = select(eventLoop).executeRequest(request, handler);
+		return future.toCompletableFuture();
+	}
+	
+	private AsyncHttpClient select(EventLoop eventLoop) {
+		AsyncHttpClient client = affinityClients.get(eventLoop);
+		return client != null ? client : asyncHttpClient;
+	}
+	
 }
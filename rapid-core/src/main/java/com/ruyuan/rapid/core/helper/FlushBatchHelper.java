@@ -0,0 +1,135 @@
+package com.ruyuan.rapid.core.helper;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * <B>主类名称：</B>FlushBatchHelper<BR>
+ * <B>概要说明：</B>批量flush的辅助类: 在开启了批次模式的线程上(flusher消费线程), 响应只write不flush,
+ * 	同一批次内写往同一个连接的响应在批次结束时只flush一次; 其他线程仍然直接writeAndFlush.
+ * 	批次结束依赖消费线程追上队列, 队列持续积压时按写次数和第一次写出后的等待时间提前flush, 避免响应一直等到队列清空;
+ * 	等待时间在每次写出和消费线程处理每个事件之前检查<BR>
+ * @author JiFeng
+ * @since 2021年12月23日 下午4:20:36
+ */
+public class FlushBatchHelper {
+
+	private static final FastThreadLocal<FlushBatch> BATCH = new FastThreadLocal<>();
+
+	/**
+	 * <B>方法名称：</B>begin<BR>
+	 * <B>概要说明：</B>当前线程开启批次模式, flush上限在开启时读取一次; 
+	 * 	已经开启时(消费线程处理每个事件之前调用)检查积攒的写出是否已经超过最大等待时间, 超过则立即flush, 不依赖下一次写出<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午4:22:18
+	 */
+	public static void begin() {
+		FlushBatch batch = BATCH.get();
+		if(batch == null) {
+			RapidConfig rapidConfig = RapidConfigLoader.getRapidConfig();
+			BATCH.set(new FlushBatch(rapidConfig.getFlushConsolidationMaxFlushes(),
+					TimeUnit.MICROSECONDS.toNanos(rapidConfig.getFlushConsolidationMaxDelayMicros())));
+		} else {
+			batch.flushIfExpired();
+		}
+	}
+
+	/**
+	 * <B>方法名称：</B>end<BR>
+	 * <B>概要说明：</B>批次结束: flush当前线程积攒的所有连接<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午4:23:05
+	 */
+	public static void end() {
+		FlushBatch batch = BATCH.get();
+		if(batch != null) {
+			batch.flush();
+		}
+	}
+
+	/**
+	 * <B>方法名称：</B>writeAndFlush<BR>
+	 * <B>概要说明：</B>批次模式下只write并记录待flush的连接, 积攒的写次数或等待时间达到上限时提前flush; 非批次模式直接writeAndFlush<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午4:24:40
+	 * @param ctx
+	 * @param msg
+	 * @return ChannelFuture
+	 */
+	public static ChannelFuture writeAndFlush(ChannelHandlerContext ctx, Object msg) {
+		FlushBatch batch = BATCH.get();
+		if(batch == null) {
+			return ctx.writeAndFlush(msg);
+		}
+		ChannelFuture future = ctx.write(msg);
+		batch.add(ctx);
+		return future;
+	}
+
+	private static class FlushBatch {
+
+		//	同一连接只保留一个ChannelHandlerContext, 保证每个连接只flush一次
+		private final Map<Channel, ChannelHandlerContext> pending = new IdentityHashMap<>();
+
+		private final List<ChannelHandlerContext> order = new ArrayList<>();
+
+		//	一个批次最多积攒的写次数, 以及第一次写出后最多等待的时间
+		private final int maxWrites;
+
+		private final long maxDelayNanos;
+
+		//	当前批次的写次数, 以及第一次写出的时间
+		private int writes;
+
+		private long firstWriteNanos;
+
+		FlushBatch(int maxWrites, long maxDelayNanos) {
+			this.maxWrites = maxWrites;
+			this.maxDelayNanos = maxDelayNanos;
+		}
+
+		void add(ChannelHandlerContext ctx) {
+			if(pending.putIfAbsent(ctx.channel(), ctx) == null) {
+				order.add(ctx);
+			}
+			if(writes++ == 0) {
+				firstWriteNanos = System.nanoTime();
+			}
+			if(writes >= maxWrites) {
+				flush();
+			} else {
+				flushIfExpired();
+			}
+		}
+
+		void flushIfExpired() {
+			if(writes > 0 && System.nanoTime() - firstWriteNanos >= maxDelayNanos) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if(order.isEmpty()) {
+				return;
+			}
+			for(ChannelHandlerContext ctx : order) {
+				ctx.flush();
+			}
+			order.clear();
+			pending.clear();
+			writes = 0;
+		}
+	}
+
+}
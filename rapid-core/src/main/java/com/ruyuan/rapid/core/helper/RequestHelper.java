@@ -10,6 +10,8 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 
 import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.HttpServiceInvoker;
+import com.ruyuan.rapid.common.config.RadixTreeRouter;
 import com.ruyuan.rapid.common.config.Rule;
 import com.ruyuan.rapid.common.config.ServiceDefinition;
 import com.ruyuan.rapid.common.config.ServiceInvoker;
@@ -20,7 +22,7 @@ import com.ruyuan.rapid.common.enums.ResponseCode;
 import com.ruyuan.rapid.common.exception.RapidNotFoundException;
 import com.ruyuan.rapid.common.exception.RapidPathNoMatchedException;
 import com.ruyuan.rapid.common.exception.RapidResponseException;
-import com.ruyuan.rapid.common.util.AntPathMatcher;
+import com.ruyuan.rapid.core.RapidConfigLoader;
 import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.RapidContext;
 import com.ruyuan.rapid.core.context.RapidRequest;
@@ -30,7 +32,9 @@ import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.QueryStringDecoder;
 
 /**
  * <B>主类名称：</B>RequestHelper<BR>
@@ -40,8 +44,6 @@ import io.netty.handler.codec.http.HttpUtil;
  */
 public class RequestHelper {
 	
-	private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
-
 	/**
 	 * <B>方法名称：</B>doContext<BR>
 	 * <B>概要说明：</B>解析FullHttpRequest 构建RapidContext核心构建方法<BR>
@@ -53,30 +55,41 @@ public class RequestHelper {
 	 */
 	public static RapidContext doContext(FullHttpRequest request, ChannelHandlerContext ctx) {
 		
-		//	1. 	构建请求对象RapidRequest
-		RapidRequest rapidRequest = doRequest(request, ctx);
+		//	1.	先只取uniqueId获取资源服务信息(也就是服务定义信息), 找不到直接失败, 不做其他任何解析
+		//		没有uniqueId并且开启了路径路由时, 按path在路由树中一次查找出服务定义和服务调用
+		String uniqueId = getUniqueId(request);
+		ServiceDefinition serviceDefinition;
+		ServiceInvoker serviceInvoker = null;
+		if(uniqueId == null) {
+			RadixTreeRouter.Route route = getRoute(request);
+			uniqueId = route.getUniqueId();
+			serviceDefinition = route.getServiceDefinition();
+			serviceInvoker = route.getServiceInvoker();
+		} else {
+			serviceDefinition = getServiceDefinition(uniqueId);
+		}
 		
-		//	2.	根据请求对象里的uniqueId，获取资源服务信息(也就是服务定义信息)
-		ServiceDefinition serviceDefinition = getServiceDefinition(rapidRequest);
+		//	2. 	构建请求对象RapidRequest: 只解码path, query参数和下游请求在使用时才解析
+		RapidRequest rapidRequest = doRequest(uniqueId, request, ctx);
 		
-		//	3.	快速路径匹配失败的策略
-		if(!ANT_PATH_MATCHER.match(serviceDefinition.getPatternPath(), rapidRequest.getPath())) {
+		//	3.	快速路径匹配失败的策略: 使用服务定义加载时预编译的匹配器
+		if(!DynamicConfigManager.getInstance().getPathMatcher(uniqueId, serviceDefinition).match(rapidRequest.getPath())) {
 			throw new RapidPathNoMatchedException();
 		}
 		
 		//	4. 	根据请求对象获取服务定义对应的方法调用，然后获取对应的规则
-		ServiceInvoker serviceInvoker = getServiceInvoker(rapidRequest, serviceDefinition);
+		if(serviceInvoker == null) {
+			serviceInvoker = getServiceInvoker(rapidRequest, serviceDefinition);
+		}
 		String ruleId = serviceInvoker.getRuleId();
 		Rule rule = DynamicConfigManager.getInstance().getRule(ruleId);
 		
 		//	5. 	构建我们而定RapidContext对象
-		RapidContext rapidContext = new RapidContext.Builder()
-				.setProtocol(serviceDefinition.getProtocol())
-				.setRapidRequest(rapidRequest)
-				.setNettyCtx(ctx)
-				.setKeepAlive(HttpUtil.isKeepAlive(request))
-				.setRule(rule)
-				.build();
+		RapidContext rapidContext = RapidContext.newInstance(serviceDefinition.getProtocol(),
+				ctx,
+				HttpUtil.isKeepAlive(request),
+				rapidRequest,
+				rule);
 		
 		//	6. 设置SR:
 		rapidContext.setSRTime(rapidRequest.getBeginTime());
@@ -87,25 +100,52 @@ public class RequestHelper {
 		return rapidContext;
 	}
 	
+	/**
+	 * <B>方法名称：</B>isStreamingRequest<BR>
+	 * <B>概要说明：</B>仅凭请求头判断该请求是否命中了streaming的http路由, 不满足任何条件都按普通请求处理<BR>
+	 * @author JiFeng
+	 * @since 2021年12月20日 下午3:40:26
+	 * @param request
+	 * @return boolean
+	 */
+	public static boolean isStreamingRequest(HttpRequest request) {
+		String uniqueId = request.headers().get(RapidConst.UNIQUE_ID);
+		ServiceInvoker serviceInvoker;
+		if(StringUtils.isBlank(uniqueId)) {
+			if(!RapidConfigLoader.getRapidConfig().isPathRoutingEnabled()) {
+				return false;
+			}
+			RadixTreeRouter.Route route = DynamicConfigManager.getInstance().getRoute(new QueryStringDecoder(request.uri()).path());
+			if(route == null || !RapidProtocol.HTTP.equals(route.getServiceDefinition().getProtocol())) {
+				return false;
+			}
+			serviceInvoker = route.getServiceInvoker();
+		} else {
+			ServiceDefinition serviceDefinition = DynamicConfigManager.getInstance().getServiceDefinition(uniqueId);
+			if(serviceDefinition == null 
+					|| !RapidProtocol.HTTP.equals(serviceDefinition.getProtocol())
+					|| serviceDefinition.getInvokerMap() == null) {
+				return false;
+			}
+			String path = new QueryStringDecoder(request.uri()).path();
+			serviceInvoker = serviceDefinition.getInvokerMap().get(path);
+		}
+		return serviceInvoker instanceof HttpServiceInvoker && ((HttpServiceInvoker)serviceInvoker).isStreaming();
+	}
+	
 	/**
 	 * <B>方法名称：</B>doRequest<BR>
 	 * <B>概要说明：</B>构建RapidRequest请求对象<BR>
 	 * @author JiFeng
 	 * @since 2021年12月10日 下午11:07:40
+	 * @param uniqueId
 	 * @param request
 	 * @param ctx
 	 * @return RapidRequest
 	 */
-	private static RapidRequest doRequest(FullHttpRequest fullHttpRequest, ChannelHandlerContext ctx) {
+	private static RapidRequest doRequest(String uniqueId, FullHttpRequest fullHttpRequest, ChannelHandlerContext ctx) {
 		
 		HttpHeaders headers = fullHttpRequest.headers();
-		//	从header头获取必须要传入的关键属性 uniqueId
-		String uniqueId = headers.get(RapidConst.UNIQUE_ID);
-		
-		if(StringUtils.isBlank(uniqueId)) {
-			throw new RapidResponseException(ResponseCode.REQUEST_PARSE_ERROR_NO_UNIQUEID);
-		}
-		
 		String host = headers.get(HttpHeaderNames.HOST);
 		HttpMethod method = fullHttpRequest.method();
 		String uri = fullHttpRequest.uri();
@@ -113,7 +153,7 @@ public class RequestHelper {
 		String contentType = HttpUtil.getMimeType(fullHttpRequest) == null ? null : HttpUtil.getMimeType(fullHttpRequest).toString();
 		Charset charset = HttpUtil.getCharset(fullHttpRequest, StandardCharsets.UTF_8);		
 			
-		RapidRequest rapidRequest = new RapidRequest(uniqueId,
+		RapidRequest rapidRequest = RapidRequest.newInstance(uniqueId,
 				charset,
 				clientIp,
 				host, 
@@ -152,17 +192,53 @@ public class RequestHelper {
 		return clientIp;
 	}
 
+	/**
+	 * <B>方法名称：</B>getUniqueId<BR>
+	 * <B>概要说明：</B>从header头获取必须要传入的关键属性 uniqueId<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:20:18
+	 * @param request
+	 * @return String 没有uniqueId并且开启了路径路由时返回null
+	 */
+	private static String getUniqueId(FullHttpRequest request) {
+		String uniqueId = request.headers().get(RapidConst.UNIQUE_ID);
+		if(StringUtils.isBlank(uniqueId)) {
+			if(RapidConfigLoader.getRapidConfig().isPathRoutingEnabled()) {
+				return null;
+			}
+			throw new RapidResponseException(ResponseCode.REQUEST_PARSE_ERROR_NO_UNIQUEID);
+		}
+		return uniqueId;
+	}
+	
+	/**
+	 * <B>方法名称：</B>getRoute<BR>
+	 * <B>概要说明：</B>路径路由: 按请求path在全部服务定义的路由树中查找服务定义和服务调用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 上午11:10:32
+	 * @param request
+	 * @return RadixTreeRouter.Route
+	 */
+	private static RadixTreeRouter.Route getRoute(FullHttpRequest request) {
+		String path = RapidRequest.decodePath(request.uri(), HttpUtil.getCharset(request, StandardCharsets.UTF_8));
+		RadixTreeRouter.Route route = DynamicConfigManager.getInstance().getRoute(path);
+		if(route == null) {
+			throw new RapidNotFoundException(ResponseCode.SERVICE_DEFINITION_NOT_FOUND);
+		}
+		return route;
+	}
+
 	/**
 	 * <B>方法名称：</B>getServiceDefinition<BR>
-	 * <B>概要说明：</B>通过请求对象获取服务资源信息<BR>
+	 * <B>概要说明：</B>通过uniqueId获取服务资源信息<BR>
 	 * @author JiFeng
 	 * @since 2021年12月11日 上午12:58:05
-	 * @param rapidRequest
+	 * @param uniqueId
 	 * @return ServiceDefinition
 	 */
-	private static ServiceDefinition getServiceDefinition(RapidRequest rapidRequest) {
+	private static ServiceDefinition getServiceDefinition(String uniqueId) {
 		//	ServiceDefinition从哪里获取，就是在网关服务初始化的时候(加载的时候)？ 从缓存信息里获取
-		ServiceDefinition serviceDefinition = DynamicConfigManager.getInstance().getServiceDefinition(rapidRequest.getUniqueId());
+		ServiceDefinition serviceDefinition = DynamicConfigManager.getInstance().getServiceDefinition(uniqueId);
 		//	做异常情况判断
 		if(serviceDefinition == null) {
 			throw new RapidNotFoundException(ResponseCode.SERVICE_DEFINITION_NOT_FOUND);
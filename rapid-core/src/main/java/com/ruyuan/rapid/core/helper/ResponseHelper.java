@@ -113,13 +113,13 @@ public class ResponseHelper {
 			//	1：第一步构建响应对象，并写回数据
 			FullHttpResponse httpResponse = ResponseHelper.getHttpResponse(rapidContext, (RapidResponse)rapidContext.getResponse());
 			if(!rapidContext.isKeepAlive()) {
-				rapidContext.getNettyCtx()
-					.writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+				FlushBatchHelper.writeAndFlush(rapidContext.getNettyCtx(), httpResponse)
+					.addListener(ChannelFutureListener.CLOSE);
 			} 
 			//	长连接：
 			else {
 				httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-				rapidContext.getNettyCtx().writeAndFlush(httpResponse);
+				FlushBatchHelper.writeAndFlush(rapidContext.getNettyCtx(), httpResponse);
 			}
 			//	2:	设置写回结束状态为： COMPLETED
 			rapidContext.completed();
@@ -0,0 +1,72 @@
+package com.ruyuan.rapid.core.netty;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>IoUringTransport<BR>
+ * <B>概要说明：</B>io_uring传输层支持<BR>
+ * 	netty-incubator-transport-native-io_uring 不是网关的编译依赖, 这里通过反射加载:
+ * 	classpath中不存在该包或者内核不支持io_uring时 isAvailable() 返回false, 由调用方回退到EPOLL/NIO
+ * @author JiFeng
+ * @since 2021年12月23日 上午11:05:18
+ */
+@Slf4j
+public final class IoUringTransport {
+	
+	private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+	
+	private static final boolean AVAILABLE;
+	
+	private static Constructor<?> eventLoopGroupConstructor;
+	
+	private static Class<? extends ServerChannel> serverSocketChannelClass;
+	
+	static {
+		boolean available = false;
+		try {
+			Class<?> ioUring = Class.forName(PACKAGE + "IOUring");
+			available = (Boolean)ioUring.getMethod("isAvailable").invoke(null);
+			if(available) {
+				eventLoopGroupConstructor = Class.forName(PACKAGE + "IOUringEventLoopGroup")
+						.getConstructor(int.class, ThreadFactory.class);
+				serverSocketChannelClass = Class.forName(PACKAGE + "IOUringServerSocketChannel")
+						.asSubclass(ServerChannel.class);
+			} else {
+				Throwable cause = (Throwable)ioUring.getMethod("unavailabilityCause").invoke(null);
+				log.warn("#IoUringTransport# io_uring is not supported by this kernel: {}", 
+						cause == null ? "unknown" : cause.getMessage());
+			}
+		} catch (ClassNotFoundException e) {
+			log.info("#IoUringTransport# netty-incubator-transport-native-io_uring not found in classpath");
+		} catch (Throwable t) {
+			available = false;
+			log.warn("#IoUringTransport# io_uring transport load fail", t);
+		}
+		AVAILABLE = available;
+	}
+	
+	private IoUringTransport() {
+	}
+	
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+	
+	public static EventLoopGroup newEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+		try {
+			return (EventLoopGroup)eventLoopGroupConstructor.newInstance(nThreads, threadFactory);
+		} catch (Exception e) {
+			throw new IllegalStateException("create IOUringEventLoopGroup fail!", e);
+		}
+	}
+	
+	public static Class<? extends ServerChannel> serverSocketChannelClass() {
+		return serverSocketChannelClass;
+	}
+	
+}
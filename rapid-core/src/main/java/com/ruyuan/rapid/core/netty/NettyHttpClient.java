@@ -1,17 +1,31 @@
 package com.ruyuan.rapid.core.netty;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 
 import org.asynchttpclient.AsyncHttpClient;
 import org.asynchttpclient.DefaultAsyncHttpClient;
 import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 
+import com.ruyuan.rapid.common.util.RemotingUtil;
 import com.ruyuan.rapid.core.LifeCycle;
 import com.ruyuan.rapid.core.RapidConfig;
 import com.ruyuan.rapid.core.helper.AsyncHttpHelper;
+import com.ruyuan.rapid.core.netty.stream.RetainedBodyHandler;
 
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -31,6 +45,18 @@ public class NettyHttpClient implements LifeCycle {
 	
 	private EventLoopGroup eventLoopGroupWork;
 	
+	//	服务端的EventLoopGroup不能被AsyncHttpClient复用时(io_uring), 客户端自己创建的EventLoopGroup
+	private EventLoopGroup ownEventLoopGroup;
+	
+	//	线程亲和模式下每个EventLoop独占的AsyncHttpClient(各自拥有连接池)
+	private final List<AsyncHttpClient> affinityClients = new ArrayList<>();
+	
+	//	线程亲和模式下NIO的单EventLoop包装
+	private final List<EventLoopGroup> affinityGroups = new ArrayList<>();
+	
+	//	线程亲和模式下所有AsyncHttpClient共用的超时定时器
+	private HashedWheelTimer affinityTimer;
+	
 	public NettyHttpClient(RapidConfig rapidConfig, EventLoopGroup eventLoopGroupWork) {
 		this.rapidConfig = rapidConfig;
 		this.eventLoopGroupWork = eventLoopGroupWork;
@@ -38,6 +64,29 @@ public class NettyHttpClient implements LifeCycle {
 		init();
 	}
 	
+	/**
+	 * <B>方法名称：</B>clientEventLoopGroup<BR>
+	 * <B>概要说明：</B>AsyncHttpClient只支持NIO/EPOLL的EventLoopGroup, 其他传输层需要单独创建<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 上午11:32:15
+	 * @return EventLoopGroup
+	 */
+	private EventLoopGroup clientEventLoopGroup() {
+		if(eventLoopGroupWork instanceof NioEventLoopGroup || eventLoopGroupWork instanceof EpollEventLoopGroup) {
+			return eventLoopGroupWork;
+		}
+		log.warn("#NettyHttpClient# {} is not supported by AsyncHttpClient, create a separate EventLoopGroup", 
+				eventLoopGroupWork.getClass().getSimpleName());
+		if(rapidConfig.isUseEPoll() && RemotingUtil.isLinuxPlatform() && Epoll.isAvailable()) {
+			ownEventLoopGroup = new EpollEventLoopGroup(rapidConfig.getEventLoopGroupWorkNum(), 
+					new DefaultThreadFactory("NettyClientEPoll"));
+		} else {
+			ownEventLoopGroup = new NioEventLoopGroup(rapidConfig.getEventLoopGroupWorkNum(), 
+					new DefaultThreadFactory("NettyClientNio"));
+		}
+		return ownEventLoopGroup;
+	}
+	
 	/**
 	 * <B>方法名称：</B>init<BR>
 	 * <B>概要说明：</B>初始化AsyncHttpClient<BR>
@@ -47,23 +96,88 @@ public class NettyHttpClient implements LifeCycle {
 	 */
 	@Override
 	public void init() {
-		this.clientBuilder = new DefaultAsyncHttpClientConfig.Builder()
+		this.clientBuilder = newClientBuilder(clientEventLoopGroup(), 
+				rapidConfig.getHttpMaxConnections(), 
+				rapidConfig.getHttpConnectionsPerHost());
+	}
+	
+	/**
+	 * <B>方法名称：</B>newClientBuilder<BR>
+	 * <B>概要说明：</B>按给定的EventLoopGroup和连接数上限构建AsyncHttpClient配置<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午3:10:26
+	 * @param eventLoopGroup
+	 * @param maxConnections
+	 * @param maxConnectionsPerHost
+	 * @return DefaultAsyncHttpClientConfig.Builder
+	 */
+	private DefaultAsyncHttpClientConfig.Builder newClientBuilder(EventLoopGroup eventLoopGroup, 
+			int maxConnections, int maxConnectionsPerHost) {
+		return new DefaultAsyncHttpClientConfig.Builder()
 				.setFollowRedirect(false)
-				.setEventLoopGroup(eventLoopGroupWork)
+				.setEventLoopGroup(eventLoopGroup)
 				.setConnectTimeout(rapidConfig.getHttpConnectTimeout())
 				.setRequestTimeout(rapidConfig.getHttpRequestTimeout())
 				.setMaxRequestRetry(rapidConfig.getHttpMaxRequestRetry())
 				.setAllocator(PooledByteBufAllocator.DEFAULT)
 				.setCompressionEnforced(true)
-				.setMaxConnections(rapidConfig.getHttpMaxConnections())
-				.setMaxConnectionsPerHost(rapidConfig.getHttpConnectionsPerHost())
-				.setPooledConnectionIdleTimeout(rapidConfig.getHttpPooledConnectionIdleTimeout());
+				.setMaxConnections(maxConnections)
+				.setMaxConnectionsPerHost(maxConnectionsPerHost)
+				.setPooledConnectionIdleTimeout(rapidConfig.getHttpPooledConnectionIdleTimeout())
+				//	聚合请求体零拷贝写出
+				.setHttpAdditionalChannelInitializer(channel -> channel.pipeline().addLast(RetainedBodyHandler.INSTANCE));
 	}
 
 	@Override
 	public void start() {
 		this.asyncHttpClient = new DefaultAsyncHttpClient(clientBuilder.build());
 		AsyncHttpHelper.getInstance().initialized(asyncHttpClient);
+		if(rapidConfig.isEventLoopAffinityEnabled()) {
+			startAffinityClients();
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>startAffinityClients<BR>
+	 * <B>概要说明：</B>线程亲和模式: 为服务端的每个EventLoop创建一个只绑定该EventLoop的AsyncHttpClient,
+	 * 	在EventLoop N上接入的请求经由N自己的连接池转发, 下游连接同样注册在N上, 响应回调也在N上执行, 全程无线程切换<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午3:12:08
+	 */
+	private void startAffinityClients() {
+		if(ownEventLoopGroup != null) {
+			log.warn("#NettyHttpClient# event loop affinity is not supported by {}, fallback to shared client", 
+					eventLoopGroupWork.getClass().getSimpleName());
+			return;
+		}
+		List<EventLoop> eventLoops = new ArrayList<>();
+		for(EventExecutor executor : eventLoopGroupWork) {
+			eventLoops.add((EventLoop)executor);
+		}
+		//	连接数上限按EventLoop平分
+		int loops = eventLoops.size();
+		int maxConnections = Math.max(1, rapidConfig.getHttpMaxConnections() / loops);
+		int maxConnectionsPerHost = Math.max(1, rapidConfig.getHttpConnectionsPerHost() / loops);
+		this.affinityTimer = new HashedWheelTimer(new DefaultThreadFactory("NettyClientAffinityTimer"));
+		
+		Map<EventLoop, AsyncHttpClient> clients = new IdentityHashMap<>(loops);
+		for(EventLoop eventLoop : eventLoops) {
+			//	AsyncHttpClient只识别NioEventLoopGroup为NIO, 其他一律按EPOLL处理, 所以NIO的EventLoop需要包装
+			EventLoopGroup group = eventLoop;
+			if(eventLoopGroupWork instanceof NioEventLoopGroup) {
+				group = new SingleNioEventLoopGroup(eventLoop);
+				affinityGroups.add(group);
+			}
+			AsyncHttpClient client = new DefaultAsyncHttpClient(
+					newClientBuilder(group, maxConnections, maxConnectionsPerHost)
+					.setNettyTimer(affinityTimer)
+					.build());
+			affinityClients.add(client);
+			clients.put(eventLoop, client);
+		}
+		AsyncHttpHelper.getInstance().initializedAffinity(clients);
+		log.info("#NettyHttpClient# event loop affinity enabled, {} clients, maxConnections per loop: {}", 
+				loops, maxConnections);
 	}
 
 	@Override
@@ -76,6 +190,44 @@ public class NettyHttpClient implements LifeCycle {
 				log.error("#NettyHttpClient.shutdown# shutdown error", e);
 			}
 		}
+		for(AsyncHttpClient client : affinityClients) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				// ignore
+				log.error("#NettyHttpClient.shutdown# shutdown affinity client error", e);
+			}
+		}
+		for(EventLoopGroup group : affinityGroups) {
+			group.shutdownGracefully();
+		}
+		if(affinityTimer != null) {
+			affinityTimer.stop();
+		}
+		if(ownEventLoopGroup != null) {
+			ownEventLoopGroup.shutdownGracefully();
+		}
+	}
+	
+	/**
+	 * <B>主类名称：</B>SingleNioEventLoopGroup<BR>
+	 * <B>概要说明：</B>只把channel注册到指定EventLoop上的NioEventLoopGroup, 自身的子EventLoop不会被使用(线程不会启动)<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午3:15:40
+	 */
+	private static class SingleNioEventLoopGroup extends NioEventLoopGroup {
+		
+		private final EventLoop eventLoop;
+		
+		SingleNioEventLoopGroup(EventLoop eventLoop) {
+			super(1, (ThreadFactory)new DefaultThreadFactory("NettyClientAffinityUnused"));
+			this.eventLoop = eventLoop;
+		}
+
+		@Override
+		public EventLoop next() {
+			return eventLoop;
+		}
 	}
 
 }
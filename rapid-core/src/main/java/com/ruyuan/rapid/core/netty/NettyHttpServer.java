@@ -1,7 +1,12 @@
 package com.ruyuan.rapid.core.netty;
 
+import java.io.File;
 import java.net.InetSocketAddress;
 
+import javax.net.ssl.SSLException;
+
+import org.apache.commons.lang3.StringUtils;
+
 import com.ruyuan.rapid.common.util.RemotingHelper;
 import com.ruyuan.rapid.common.util.RemotingUtil;
 import com.ruyuan.rapid.core.LifeCycle;
@@ -12,11 +17,16 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -24,8 +34,39 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodecFactory;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2ConnectionPrefaceAndSettingsFrameWrittenEvent;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2Frame;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2LocalFlowController;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ResourceLeakDetector;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
@@ -50,6 +91,8 @@ public class NettyHttpServer implements LifeCycle {
 
 	private NettyProcessor nettyProcessor;  // 核心业务处理器
 	
+	private SslContext sslContext;  // TLS上下文, 未配置证书时为null
+	
 	public NettyHttpServer(RapidConfig rapidConfig, NettyProcessor nettyProcessor) {
 		this.rapidConfig = rapidConfig;
 		this.nettyProcessor = nettyProcessor;
@@ -71,10 +114,19 @@ public class NettyHttpServer implements LifeCycle {
 	public void init() {
 		// 1. 创建ServerBootstrap：  Netty服务启动的入口，用于配置服务端参数和启动
 		this.serverBootstrap = new ServerBootstrap();
-		// 2. 选择IO模型（Epoll/NIO）
-		if(useEPoll()) {   // 检查是否使用Epoll模式
+		this.sslContext = buildSslContext();
+		if(StringUtils.isNotBlank(rapidConfig.getLeakDetectionLevel())) {
+			ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(rapidConfig.getLeakDetectionLevel().trim().toUpperCase()));
+		}
+		// 2. 选择IO模型（io_uring/Epoll/NIO）
+		if(useIoUring()) {
+			this.eventLoopGroupBoss = IoUringTransport.newEventLoopGroup(rapidConfig.getEventLoopGroupBossNum(), 
+					new DefaultThreadFactory("NettyBossIoUring"));
+			this.eventLoopGroupWork = IoUringTransport.newEventLoopGroup(rapidConfig.getEventLoopGroupWorkNum(), 
+					new DefaultThreadFactory("NettyWorkIoUring"));
+		} else if(useEPoll()) {   // 检查是否使用Epoll模式
 			// Epoll模式初始化（Linux专属）
-			this.eventLoopGroupBoss = new EpollEventLoopGroup(rapidConfig.getEventLoopGroupBossNum(), 
+			this.eventLoopGroupBoss = new EpollEventLoopGroup(Math.max(rapidConfig.getEventLoopGroupBossNum(), acceptorNum()), 
 					new DefaultThreadFactory("NettyBossEPoll"));
 			this.eventLoopGroupWork = new EpollEventLoopGroup(rapidConfig.getEventLoopGroupWorkNum(), 
 					new DefaultThreadFactory("NettyWorkEPoll"));
@@ -86,6 +138,31 @@ public class NettyHttpServer implements LifeCycle {
 		}
 	}
 	
+	/**
+	 * <B>方法名称：</B>useIoUring<BR>
+	 * <B>概要说明：</B>判断是否使用io_uring, 不支持时回退到EPOLL/NIO<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 上午11:20:42
+	 * @return
+	 */
+	public boolean useIoUring() {
+		return rapidConfig.isUseIoUring() && RemotingUtil.isLinuxPlatform() && IoUringTransport.isAvailable();
+	}
+	
+	/**
+	 * <B>方法名称：</B>acceptorNum<BR>
+	 * <B>概要说明：</B>监听socket数量: 只有EPOLL模式支持SO_REUSEPORT多socket绑定, 其余模式为1<BR>
+	 * @author JiFeng
+	 * @since 2021年12月23日 下午3:10:26
+	 * @return
+	 */
+	private int acceptorNum() {
+		if(!useIoUring() && useEPoll() && rapidConfig.getReusePortAcceptorNum() > 1) {
+			return rapidConfig.getReusePortAcceptorNum();
+		}
+		return 1;
+	}
+	
 	/**
 	 * <B>方法名称：</B>useEPoll<BR>
 	 * <B>概要说明：</B>判断是否支持EPoll<BR>
@@ -99,6 +176,13 @@ public class NettyHttpServer implements LifeCycle {
 		return rapidConfig.isUseEPoll() && RemotingUtil.isLinuxPlatform() && Epoll.isAvailable();
 	}
 
+	private Class<? extends ServerChannel> serverSocketChannelClass() {
+		if(useIoUring()) {
+			return IoUringTransport.serverSocketChannelClass();
+		}
+		return useEPoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+
 	/**
 	 * <B>方法名称：</B>start<BR>
 	 * <B>概要说明：</B>服务器启动方法<BR>
@@ -112,7 +196,7 @@ public class NettyHttpServer implements LifeCycle {
 		 		.group(eventLoopGroupBoss, eventLoopGroupWork)  // 线程模型配置
 				// 选择网络通信实现方式
 				// Epoll：Linux高性能模式（相当于VIP快速通道）       NIO：跨平台标准模式（普通通道）
-		 		.channel(useEPoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+		 		.channel(serverSocketChannelClass())
 				// 设置等待连接队列大小      比喻：餐厅门口的等待区有1024个座位
 		 		.option(ChannelOption.SO_BACKLOG, 1024)			//	sync + accept = backlog
 				// 允许端口复用            场景：服务器重启后可以立即使用相同端口
@@ -130,13 +214,17 @@ public class NettyHttpServer implements LifeCycle {
 
 					@Override
 					protected void initChannel(Channel ch) throws Exception {
-						ch.pipeline().addLast(
-								new HttpServerCodec(),
-								new HttpObjectAggregator(rapidConfig.getMaxContentLength()),
-								new HttpServerExpectContinueHandler(),
-								new NettyServerConnectManagerHandler(),
-								new NettyHttpServerHandler(nettyProcessor)
-								);
+						//	放在最前面, 合并该连接上所有协议层的flush
+						if(rapidConfig.isFlushConsolidationEnabled()) {
+							ch.pipeline().addLast(new FlushConsolidationHandler(rapidConfig.getFlushConsolidationMaxFlushes(), true));
+						}
+						if(sslContext != null) {
+							ch.pipeline().addLast(sslContext.newHandler(ch.alloc()), new NettyProtocolNegotiationHandler());
+						} else if(rapidConfig.isHttp2Enabled()) {
+							configureCleartext(ch.pipeline());
+						} else {
+							configureHttp1(ch.pipeline());
+						}
 					}
 				});
 		
@@ -144,14 +232,149 @@ public class NettyHttpServer implements LifeCycle {
 			handler.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
 		}
 		
+		int acceptorNum = acceptorNum();
+		if(acceptorNum > 1) {
+			//	多个监听socket绑定同一端口, 每次bind会注册到Boss线程组的下一个线程上
+			handler.option(EpollChannelOption.SO_REUSEPORT, true);
+		}
+		
 		try {
-			this.serverBootstrap.bind().sync();
-			log.info("< ============= Rapid Server StartUp On Port: " + this.port + "================ >");
+			for(int i = 0; i < acceptorNum; i++) {
+				this.serverBootstrap.bind().sync();
+			}
+			log.info("< ============= Rapid Server StartUp On Port: " + this.port + ", acceptors: " + acceptorNum + "================ >");
 		} catch (Exception e) {
 			throw new RuntimeException("this.serverBootstrap.bind().sync() fail!", e);
 		}
 	}
 	
+	/**
+	 * <B>方法名称：</B>configureHttp1<BR>
+	 * <B>概要说明：</B>HTTP/1.1处理链路<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:10:36
+	 * @param pipeline
+	 */
+	private void configureHttp1(ChannelPipeline pipeline) {
+		pipeline.addLast(new HttpServerCodec());
+		addHttpHandlers(pipeline, true);
+	}
+	
+	/**
+	 * <B>方法名称：</B>configureCleartext<BR>
+	 * <B>概要说明：</B>明文连接: 同时支持HTTP/1.1、h2c prior knowledge以及HTTP/1.1 Upgrade到h2c<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:12:08
+	 * @param pipeline
+	 */
+	private void configureCleartext(ChannelPipeline pipeline) {
+		final HttpServerCodec sourceCodec = new HttpServerCodec();
+		HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, new UpgradeCodecFactory() {
+			@Override
+			public UpgradeCodec newUpgradeCodec(CharSequence protocol) {
+				if(AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+					return new Http2ServerUpgradeCodec(newHttp2FrameCodec(), newHttp2Handlers());
+				}
+				return null;
+			}
+		}, rapidConfig.getMaxContentLength());
+		pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, 
+				new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) throws Exception {
+						//	prior knowledge: 替换到CleartextHttp2ServerUpgradeHandler的位置, 位于HTTP/1.1处理链路之前
+						Http2FrameCodec frameCodec = newHttp2FrameCodec();
+						ch.pipeline().addAfter(ch.pipeline().context(this).name(), null, frameCodec);
+						String name = ch.pipeline().context(frameCodec).name();
+						ChannelHandler[] handlers = newHttp2Handlers();
+						for(int i = handlers.length - 1; i >= 0; i--) {
+							ch.pipeline().addAfter(name, null, handlers[i]);
+						}
+					}
+				}));
+		addHttpHandlers(pipeline, true);
+	}
+	
+	/**
+	 * <B>方法名称：</B>addHttpHandlers<BR>
+	 * <B>概要说明：</B>HTTP编解码之后的通用处理链路, HTTP/1.1连接与HTTP/2的每个流共用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:15:47
+	 * @param pipeline
+	 * @param connectManager 是否添加连接管理器, HTTP/2的流由父连接管理
+	 */
+	private void addHttpHandlers(ChannelPipeline pipeline, boolean connectManager) {
+		if(rapidConfig.isHttpStreamingEnabled()) {
+			//	流式转发: 必须位于HttpObjectAggregator之前
+			pipeline.addLast(new NettyHttpStreamingHandler(rapidConfig));
+		}
+		pipeline.addLast(
+				new HttpObjectAggregator(rapidConfig.getMaxContentLength()),
+				new HttpServerExpectContinueHandler());
+		if(connectManager) {
+			pipeline.addLast(new NettyServerConnectManagerHandler());
+		}
+		pipeline.addLast(new NettyHttpServerHandler(nettyProcessor));
+	}
+	
+	private Http2FrameCodec newHttp2FrameCodec() {
+		Http2Settings settings = Http2Settings.defaultSettings()
+				.maxConcurrentStreams(rapidConfig.getHttp2MaxConcurrentStreams())
+				.initialWindowSize(rapidConfig.getHttp2InitialWindowSize());
+		return Http2FrameCodecBuilder.forServer().initialSettings(settings).build();
+	}
+	
+	/**
+	 * <B>方法名称：</B>newHttp2Handlers<BR>
+	 * <B>概要说明：</B>位于Http2FrameCodec之后的处理器: 每个流映射为一个子Channel, 走与HTTP/1.1相同的处理链路<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:18:20
+	 * @return ChannelHandler[]
+	 */
+	private ChannelHandler[] newHttp2Handlers() {
+		Http2MultiplexHandler multiplexHandler = new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+				addHttpHandlers(ch.pipeline(), false);
+			}
+		});
+		return new ChannelHandler[] {
+				multiplexHandler, 
+				new Http2ConnectionWindowHandler(rapidConfig.getHttp2ConnectionWindowSize())
+		};
+	}
+	
+	/**
+	 * <B>方法名称：</B>buildSslContext<BR>
+	 * <B>概要说明：</B>配置了证书和私钥时构建SslContext, 开启HTTP/2时通过ALPN协商h2<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:20:51
+	 * @return SslContext 未配置时为null
+	 */
+	private SslContext buildSslContext() {
+		if(StringUtils.isBlank(rapidConfig.getSslCertificatePath()) || StringUtils.isBlank(rapidConfig.getSslPrivateKeyPath())) {
+			return null;
+		}
+		try {
+			SslProvider provider = SslProvider.isAlpnSupported(SslProvider.OPENSSL) ? SslProvider.OPENSSL : SslProvider.JDK;
+			SslContextBuilder builder = SslContextBuilder.forServer(new File(rapidConfig.getSslCertificatePath()), 
+					new File(rapidConfig.getSslPrivateKeyPath())).sslProvider(provider);
+			if(rapidConfig.isHttp2Enabled()) {
+				builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+					.applicationProtocolConfig(new ApplicationProtocolConfig(
+						Protocol.ALPN,
+						SelectorFailureBehavior.NO_ADVERTISE,
+						SelectedListenerFailureBehavior.ACCEPT,
+						ApplicationProtocolNames.HTTP_2,
+						ApplicationProtocolNames.HTTP_1_1));
+			}
+			return builder.build();
+		} catch (SSLException e) {
+			throw new RuntimeException("build SslContext fail!", e);
+		}
+	}
+	
 	/**
 	 * <B>方法名称：</B>shutdown<BR>
 	 * <B>概要说明：</B>关闭<BR>
@@ -181,6 +404,94 @@ public class NettyHttpServer implements LifeCycle {
 	}
 
 
+	/**
+	 * <B>主类名称：</B>NettyProtocolNegotiationHandler<BR>
+	 * <B>概要说明：</B>TLS握手完成后根据ALPN协商结果选择h2或者HTTP/1.1处理链路<BR>
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:25:13
+	 */
+	class NettyProtocolNegotiationHandler extends ApplicationProtocolNegotiationHandler {
+
+		NettyProtocolNegotiationHandler() {
+			super(ApplicationProtocolNames.HTTP_1_1);
+		}
+
+		@Override
+		protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws Exception {
+			if(ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+				ctx.pipeline().addLast(newHttp2FrameCodec());
+				ctx.pipeline().addLast(newHttp2Handlers());
+				ctx.pipeline().addLast(new NettyServerConnectManagerHandler());
+			} else {
+				configureHttp1(ctx.pipeline());
+			}
+		}
+	}
+	
+	/**
+	 * <B>主类名称：</B>Http2ConnectionWindowHandler<BR>
+	 * <B>概要说明：</B>HTTP/2连接级别处理: 调整连接流控窗口, 并吸收未被子Channel处理的连接级别帧<BR>
+	 * 	该处理器添加在Http2FrameCodec之后, 连接已经激活时Http2FrameCodec在添加时就发送了preface, 
+	 * 	Http2ConnectionPrefaceAndSettingsFrameWrittenEvent已经错过, 所以在handlerAdded中直接扩大窗口; 未激活时等待该事件
+	 * @author JiFeng
+	 * @since 2021年12月22日 下午2:28:40
+	 */
+	static class Http2ConnectionWindowHandler extends ChannelInboundHandlerAdapter {
+		
+		private final int connectionWindowSize;
+		
+		Http2ConnectionWindowHandler(int connectionWindowSize) {
+			this.connectionWindowSize = connectionWindowSize;
+		}
+		
+		@Override
+		public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+			if(ctx.channel().isActive()) {
+				expandConnectionWindow(ctx);
+			}
+		}
+		
+		@Override
+		public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+			if(evt instanceof Http2ConnectionPrefaceAndSettingsFrameWrittenEvent) {
+				expandConnectionWindow(ctx);
+			}
+			ctx.fireUserEventTriggered(evt);
+		}
+		
+		/**
+		 * <B>方法名称：</B>expandConnectionWindow<BR>
+		 * <B>概要说明：</B>按连接当前的窗口(Http2FrameCodec可能已经扩大过)补齐到配置值, 由流控器发送WINDOW_UPDATE, 重复调用无副作用<BR>
+		 * @author JiFeng
+		 * @since 2021年12月27日 下午4:10:22
+		 * @param ctx
+		 * @throws Http2Exception
+		 */
+		private void expandConnectionWindow(ChannelHandlerContext ctx) throws Http2Exception {
+			Http2FrameCodec frameCodec = ctx.pipeline().get(Http2FrameCodec.class);
+			if(frameCodec == null) {
+				return;
+			}
+			Http2Stream connectionStream = frameCodec.connection().connectionStream();
+			Http2LocalFlowController flowController = frameCodec.connection().local().flowController();
+			int delta = connectionWindowSize - flowController.initialWindowSize(connectionStream);
+			if(delta > 0) {
+				flowController.incrementWindowSize(connectionStream, delta);
+				ctx.flush();
+			}
+		}
+		
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			if(msg instanceof Http2Frame) {
+				//	SETTINGS/PING/GOAWAY等连接级别帧已由Http2FrameCodec处理
+				ReferenceCountUtil.release(msg);
+				return;
+			}
+			ctx.fireChannelRead(msg);
+		}
+	}
+
 	/**
 	 * <B>主类名称：</B>NettyServerConnectManagerHandler<BR>
 	 * <B>概要说明：</B>连接管理器<BR>
@@ -37,9 +37,7 @@ public class NettyHttpServerHandler extends ChannelInboundHandlerAdapter { // Si
 		
 		if(msg instanceof HttpRequest) {
 			FullHttpRequest request = (FullHttpRequest)msg;
-			HttpRequestWrapper httpRequestWrapper = new HttpRequestWrapper();
-			httpRequestWrapper.setFullHttpRequest(request);
-			httpRequestWrapper.setCtx(ctx);
+			HttpRequestWrapper httpRequestWrapper = HttpRequestWrapper.newInstance(request, ctx);
 			
 			//	processor
 			nettyProcessor.process(httpRequestWrapper);
@@ -0,0 +1,87 @@
+package com.ruyuan.rapid.core.netty;
+
+import java.nio.channels.ClosedChannelException;
+
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.helper.RequestHelper;
+import com.ruyuan.rapid.core.netty.stream.StreamingFullHttpRequest;
+import com.ruyuan.rapid.core.netty.stream.StreamingRequestBody;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>NettyHttpStreamingHandler<BR>
+ * <B>概要说明：</B>流式转发handler, 位于HttpObjectAggregator之前<BR>
+ * 	收到请求头时即判断路由是否为streaming: 是则立刻把请求头交给后续处理链路, 请求体分片直接投递给StreamingRequestBody;
+ * 	否则原样交给HttpObjectAggregator聚合
+ * @author JiFeng
+ * @since 2021年12月20日 下午3:45:10
+ */
+@Slf4j
+public class NettyHttpStreamingHandler extends ChannelInboundHandlerAdapter {
+	
+	private final RapidConfig rapidConfig;
+	
+	//	当前连接上正在流式接收的请求体, 同一连接上请求是串行的
+	private StreamingRequestBody streamingBody;
+	
+	public NettyHttpStreamingHandler(RapidConfig rapidConfig) {
+		this.rapidConfig = rapidConfig;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if(msg instanceof HttpRequest && !(msg instanceof FullHttpRequest)) {
+			HttpRequest request = (HttpRequest)msg;
+			if(request.decoderResult().isSuccess() && RequestHelper.isStreamingRequest(request)) {
+				if(HttpUtil.is100ContinueExpected(request)) {
+					ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, 
+							HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+					request.headers().remove(HttpHeaderNames.EXPECT);
+				}
+				streamingBody = new StreamingRequestBody(ctx, rapidConfig.getHttpStreamingBufferSize());
+				ctx.fireChannelRead(new StreamingFullHttpRequest(request, streamingBody));
+				if(msg instanceof HttpContent) {
+					offer((HttpContent)msg);
+				}
+				return;
+			}
+		}
+		if(streamingBody != null && msg instanceof HttpContent) {
+			offer((HttpContent)msg);
+			return;
+		}
+		ctx.fireChannelRead(msg);
+	}
+	
+	private void offer(HttpContent content) {
+		StreamingRequestBody body = streamingBody;
+		if(content instanceof LastHttpContent) {
+			streamingBody = null;
+		}
+		body.offer(content);
+	}
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		if(streamingBody != null) {
+			log.warn("#NettyHttpStreamingHandler# channelInactive before request body completed");
+			streamingBody.fail(new ClosedChannelException());
+			streamingBody = null;
+		}
+		super.channelInactive(ctx);
+	}
+	
+}
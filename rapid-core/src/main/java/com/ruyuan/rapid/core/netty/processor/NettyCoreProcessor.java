@@ -6,6 +6,7 @@ import com.ruyuan.rapid.common.exception.RapidPathNoMatchedException;
 import com.ruyuan.rapid.common.exception.RapidResponseException;
 import com.ruyuan.rapid.core.context.HttpRequestWrapper;
 import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.helper.FlushBatchHelper;
 import com.ruyuan.rapid.core.helper.RequestHelper;
 import com.ruyuan.rapid.core.helper.ResponseHelper;
 import com.ruyuan.rapid.core.netty.processor.filter.DefaultProcessorFilterFactory;
@@ -38,7 +39,12 @@ public class NettyCoreProcessor implements NettyProcessor {
 			RapidContext rapidContext = RequestHelper.doContext(request, ctx);
 			
 			//	2. 执行整个的过滤器逻辑：FilterChain
-			processorFilterFactory.doFilterChain(rapidContext);
+			try {
+				processorFilterFactory.doFilterChain(rapidContext);
+			} finally {
+				//	3. 处理线程放弃持有, 异步路由在途时由路由回调最后放弃持有
+				rapidContext.release();
+			}
 			
 		} catch (RapidPathNoMatchedException e) {
 			log.error("#NettyCoreProcessor# process 网关资指定路径为匹配异常，快速失败： code: {}, msg: {}", 
@@ -66,6 +72,9 @@ public class NettyCoreProcessor implements NettyProcessor {
 			FullHttpResponse response = ResponseHelper.getHttpResponse(ResponseCode.INTERNAL_ERROR);
 			//	释放资源写回响应
 			doWriteAndRelease(ctx, request, response);
+		} finally {
+			//	包装对象归还对象池
+			event.recycle();
 		}
 	}
 
@@ -79,7 +88,7 @@ public class NettyCoreProcessor implements NettyProcessor {
 	 * @param response
 	 */
 	private void doWriteAndRelease(ChannelHandlerContext ctx, FullHttpRequest request, FullHttpResponse response) {
-		ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		FlushBatchHelper.writeAndFlush(ctx, response).addListener(ChannelFutureListener.CLOSE);
 		boolean release = ReferenceCountUtil.release(request);
 		if(!release) {
 			log.warn("#NettyCoreProcessor# doWriteAndRelease release fail 释放资源失败， request:{}, release:{}", 
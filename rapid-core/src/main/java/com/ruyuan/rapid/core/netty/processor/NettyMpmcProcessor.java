@@ -1,21 +1,27 @@
 package com.ruyuan.rapid.core.netty.processor;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.ruyuan.rapid.common.concurrent.queue.mpmc.MpmcBlockingQueue;
+import com.ruyuan.rapid.common.constants.RapidBufferHelper;
 import com.ruyuan.rapid.common.enums.ResponseCode;
 import com.ruyuan.rapid.core.RapidConfig;
 import com.ruyuan.rapid.core.context.HttpRequestWrapper;
 import com.ruyuan.rapid.core.helper.ResponseHelper;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -40,17 +46,120 @@ public class NettyMpmcProcessor implements NettyProcessor {
 	private volatile boolean isRunning = false;
 	
 	private Thread consumerProcessorThread;
+	
+	//	溢出策略
+	private final String overflowPolicy;
+	
+	//	高水位: 队列长度达到该值时触发溢出策略
+	private final int highWaterMark;
+	
+	//	低水位: pause策略下回落到该值时恢复读取
+	private final int lowWaterMark;
+	
+	//	pause策略下被暂停读取的连接
+	private final ConcurrentLinkedQueue<Channel> pausedChannels = new ConcurrentLinkedQueue<>();
+	
+	//	被拒绝(503)的请求数
+	private final LongAdder rejectedCount = new LongAdder();
+	
+	//	触发暂停读取的次数
+	private final LongAdder pausedCount = new LongAdder();
 
 	public NettyMpmcProcessor(RapidConfig rapidConfig, NettyCoreProcessor nettyCoreProcessor, boolean usedExecutorPool) {
 		this.rapidConfig = rapidConfig;
 		this.nettyCoreProcessor = nettyCoreProcessor;
 		this.mpmcBlockingQueue = new MpmcBlockingQueue<>(rapidConfig.getBufferSize());
 		this.usedExecutorPool = usedExecutorPool;
+		this.overflowPolicy = rapidConfig.getBufferOverflowPolicy();
+		int bufferSize = rapidConfig.getBufferSize();
+		this.highWaterMark = rapidConfig.getBufferHighWaterMark() > 0 ? 
+				Math.min(rapidConfig.getBufferHighWaterMark(), bufferSize) : bufferSize;
+		this.lowWaterMark = rapidConfig.getBufferLowWaterMark() > 0 ? 
+				Math.min(rapidConfig.getBufferLowWaterMark(), highWaterMark) : highWaterMark >> 1;
 	}
 	
+	/**
+	 * <B>方法名称：</B>process<BR>
+	 * <B>概要说明：</B>在Netty的I/O线程上调用: 除了block策略外都不会阻塞I/O线程<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:20:15
+	 * @see com.ruyuan.rapid.core.netty.processor.NettyProcessor#process(com.ruyuan.rapid.core.context.HttpRequestWrapper)
+	 */
 	@Override
 	public void process(HttpRequestWrapper httpRequestWrapper) throws Exception {
-		this.mpmcBlockingQueue.put(httpRequestWrapper);
+		if(RapidBufferHelper.isOverflowReject(overflowPolicy)) {
+			if(mpmcBlockingQueue.size() >= highWaterMark || !mpmcBlockingQueue.offer(httpRequestWrapper)) {
+				reject(httpRequestWrapper);
+			}
+		}
+		else if(RapidBufferHelper.isOverflowPause(overflowPolicy)) {
+			//	当前请求已经读取完成, 只能先放入队列, 队列真正满了才拒绝
+			if(!mpmcBlockingQueue.offer(httpRequestWrapper)) {
+				reject(httpRequestWrapper);
+				return;
+			}
+			if(mpmcBlockingQueue.size() >= highWaterMark) {
+				pause(httpRequestWrapper.getCtx().channel());
+			}
+		}
+		else {
+			this.mpmcBlockingQueue.put(httpRequestWrapper);
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>reject<BR>
+	 * <B>概要说明：</B>快速失败, 返回503<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:25:41
+	 * @param httpRequestWrapper
+	 */
+	private void reject(HttpRequestWrapper httpRequestWrapper) {
+		rejectedCount.increment();
+		FullHttpRequest request = httpRequestWrapper.getFullHttpRequest();
+		ChannelHandlerContext ctx = httpRequestWrapper.getCtx();
+		FullHttpResponse fullHttpResponse = ResponseHelper.getHttpResponse(ResponseCode.SERVICE_UNAVAILABLE);
+		fullHttpResponse.setStatus(ResponseCode.SERVICE_UNAVAILABLE.getStatus());
+		if(!HttpUtil.isKeepAlive(request)) {
+			ctx.writeAndFlush(fullHttpResponse).addListener(ChannelFutureListener.CLOSE);
+		} else {
+			fullHttpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+			ctx.writeAndFlush(fullHttpResponse);
+		}
+		ReferenceCountUtil.release(request);
+	}
+	
+	private void pause(Channel channel) {
+		if(channel.config().isAutoRead()) {
+			channel.config().setAutoRead(false);
+			pausedChannels.offer(channel);
+			pausedCount.increment();
+		}
+		//	消费者可能在暂停之前已经把队列消费到了低水位以下
+		if(mpmcBlockingQueue.size() <= lowWaterMark) {
+			resumePaused();
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>resumePaused<BR>
+	 * <B>概要说明：</B>队列回落到低水位以下, 恢复所有被暂停的连接<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 上午10:31:06
+	 */
+	private void resumePaused() {
+		Channel channel;
+		while((channel = pausedChannels.poll()) != null) {
+			channel.config().setAutoRead(true);
+		}
+	}
+	
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+	
+	public long getPausedCount() {
+		return pausedCount.sum();
 	}
 
 	@Override
@@ -91,6 +200,9 @@ public class NettyMpmcProcessor implements NettyProcessor {
 				HttpRequestWrapper event = null;
 				try {
 					event = mpmcBlockingQueue.take();
+					if(!pausedChannels.isEmpty() && mpmcBlockingQueue.size() <= lowWaterMark) {
+						resumePaused();
+					}
 					nettyCoreProcessor.process(event);
 				} catch (Throwable t) {
 					if(event != null) {
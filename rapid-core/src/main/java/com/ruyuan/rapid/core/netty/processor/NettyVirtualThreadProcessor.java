@@ -0,0 +1,95 @@
+package com.ruyuan.rapid.core.netty.processor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.ruyuan.rapid.common.enums.ResponseCode;
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.helper.ResponseHelper;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>NettyVirtualThreadProcessor<BR>
+ * <B>概要说明：</B>虚拟线程处理器: 每个请求的过滤器链在独立的虚拟线程上执行, PRE过滤器中的阻塞调用不会占满固定的处理线程<BR>
+ * 	网关按JDK8编译, 这里通过反射获取 Executors.newVirtualThreadPerTaskExecutor() (JDK21+);
+ * 	运行在不支持虚拟线程的JDK上时回退为processThread个平台线程的线程池, 行为等同于MPMC模式的消费者线程;
+ * 	对象池按线程本地复用, 每个请求一个新的虚拟线程时无法复用, 因此该模式下RapidRequest/RapidContext不池化(RapidConfig.isContextPoolEnabled)
+ * @author JiFeng
+ * @since 2021年12月24日 下午2:05:33
+ */
+@Slf4j
+public class NettyVirtualThreadProcessor implements NettyProcessor {
+	
+	private RapidConfig rapidConfig;
+	
+	private NettyCoreProcessor nettyCoreProcessor;
+	
+	private ExecutorService executorService;
+	
+	public NettyVirtualThreadProcessor(RapidConfig rapidConfig, NettyCoreProcessor nettyCoreProcessor) {
+		this.rapidConfig = rapidConfig;
+		this.nettyCoreProcessor = nettyCoreProcessor;
+	}
+
+	@Override
+	public void process(HttpRequestWrapper httpRequestWrapper) throws Exception {
+		try {
+			executorService.execute(() -> nettyCoreProcessor.process(httpRequestWrapper));
+		} catch (RejectedExecutionException e) {
+			//	处理器已经关闭
+			log.warn("#NettyVirtualThreadProcessor# process rejected, processor is shutdown");
+			FullHttpResponse response = ResponseHelper.getHttpResponse(ResponseCode.SERVICE_UNAVAILABLE);
+			response.setStatus(ResponseCode.SERVICE_UNAVAILABLE.getStatus());
+			httpRequestWrapper.getCtx().writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+			ReferenceCountUtil.release(httpRequestWrapper.getFullHttpRequest());
+		}
+	}
+
+	@Override
+	public void start() {
+		this.nettyCoreProcessor.start();
+		this.executorService = newVirtualThreadPerTaskExecutor();
+		if(this.executorService == null) {
+			log.warn("#NettyVirtualThreadProcessor# virtual thread is not supported by this JDK, fallback to {} platform threads", 
+					rapidConfig.getProcessThread());
+			this.executorService = Executors.newFixedThreadPool(rapidConfig.getProcessThread(), 
+					new DefaultThreadFactory("NettyVirtualThreadProcessor"));
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		this.nettyCoreProcessor.shutdown();
+		if(this.executorService != null) {
+			this.executorService.shutdown();
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>newVirtualThreadPerTaskExecutor<BR>
+	 * <B>概要说明：</B>反射创建虚拟线程执行器<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午2:12:47
+	 * @return ExecutorService 不支持时返回null
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (Exception e) {
+			log.warn("#NettyVirtualThreadProcessor# create virtual thread executor fail", e);
+			return null;
+		}
+	}
+
+}
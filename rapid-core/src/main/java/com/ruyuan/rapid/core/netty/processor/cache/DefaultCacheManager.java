@@ -6,6 +6,9 @@ import org.apache.dubbo.rpc.service.GenericService;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 
 /**
  * <B>主类名称：</B>DefaultCacheManager<BR>
@@ -33,7 +36,7 @@ public class DefaultCacheManager {
 	
 	/**
 	 * <B>方法名称：</B>create<BR>
-	 * <B>概要说明：</B>根据一个全局的缓存ID 创建一个Caffeine缓存对象<BR>
+	 * <B>概要说明：</B>根据一个全局的缓存ID 创建一个Caffeine缓存对象, 已经存在时返回已有的缓存, 不会替换<BR>
 	 * @author JiFeng
 	 * @since 2021年12月17日 上午12:09:29
 	 * @param <V>
@@ -42,9 +45,54 @@ public class DefaultCacheManager {
 	 */
 	@SuppressWarnings("unchecked")
 	public <V> Cache<String, V> create(String cacheId) {
-		Cache<String, V> cache = Caffeine.newBuilder().build();
-		cacheMap.put(cacheId, cache);
-		return (Cache<String, V>) cacheMap.get(cacheId);
+		return (Cache<String, V>) cacheMap.computeIfAbsent(cacheId, id -> Caffeine.newBuilder().build());
+	}
+	
+	/**
+	 * <B>方法名称：</B>create<BR>
+	 * <B>概要说明：</B>创建一个有容量上限、记录命中统计的Caffeine缓存对象, 已经存在时返回已有的缓存<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午9:20:14
+	 * @param <V>
+	 * @param cacheId
+	 * @param maximumSize 缓存的最大条目数
+	 * @return
+	 */
+	public <V> Cache<String, V> create(String cacheId, long maximumSize) {
+		return create(cacheId, maximumSize, new ConcurrentStatsCounter());
+	}
+	
+	/**
+	 * <B>方法名称：</B>create<BR>
+	 * <B>概要说明：</B>创建一个有容量上限的Caffeine缓存对象, 命中统计记录到调用方提供的计数器, 已经存在时返回已有的缓存<BR>
+	 * 	调用方用Policy.getIfPresentQuietly读取并自行记录命中时使用, 例如缓存值需要再校验的场景<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 下午2:10:36
+	 * @param <V>
+	 * @param cacheId
+	 * @param maximumSize 缓存的最大条目数
+	 * @param statsCounter 命中统计计数器
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> Cache<String, V> create(String cacheId, long maximumSize, StatsCounter statsCounter) {
+		return (Cache<String, V>) cacheMap.computeIfAbsent(cacheId, id -> Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats(() -> statsCounter)
+				.build());
+	}
+	
+	/**
+	 * <B>方法名称：</B>stats<BR>
+	 * <B>概要说明：</B>获取缓存的命中统计, 缓存不存在时返回空统计<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午9:22:41
+	 * @param cacheId
+	 * @return CacheStats
+	 */
+	public CacheStats stats(String cacheId) {
+		Cache<String, ?> cache = cacheMap.get(cacheId);
+		return cache == null ? CacheStats.empty() : cache.stats();
 	}
 	
 	/**
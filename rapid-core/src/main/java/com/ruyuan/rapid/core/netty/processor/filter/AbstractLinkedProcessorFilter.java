@@ -1,5 +1,6 @@
 package com.ruyuan.rapid.core.netty.processor.filter;
 
+import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.Context;
 import com.ruyuan.rapid.core.helper.ResponseHelper;
 
@@ -17,6 +18,13 @@ public abstract class AbstractLinkedProcessorFilter<T> implements ProcessorFilte
 	@Override
 	public void fireNext(Context ctx, Object... args) throws Throwable {
 		
+		//	流水线模式: 由流水线的游标决定继续执行还是交给驱动循环
+		FilterPipeline.Cursor cursor = ctx.getAttribute(AttributeKey.FILTER_CURSOR);
+		if(cursor != null) {
+			cursor.fireNext(ctx);
+			return;
+		}
+		
 		//	上下文生命周期：
 		
 		if(ctx.isTerminated()) {
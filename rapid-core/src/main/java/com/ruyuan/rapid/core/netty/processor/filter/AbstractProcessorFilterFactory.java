@@ -1,5 +1,6 @@
 package com.ruyuan.rapid.core.netty.processor.filter;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,11 @@ public abstract class AbstractProcessorFilterFactory implements ProcessorFilterF
 	 */
 	public Map<String /* filterId */, ProcessorFilter<Context>> processorFilterIdMap = new LinkedHashMap<>();
 	
+	/*
+	 * 	全部带规则配置的过滤器, 下标就是过滤器的序号
+	 */
+	public List<AbstractEntryProcessorFilter<?>> entryFilters = new ArrayList<>();
+	
 	/**
 	 * <B>方法名称：</B>buildFilterChain<BR>
 	 * <B>概要说明：</B>构建过滤器链条<BR>
@@ -107,10 +113,23 @@ public abstract class AbstractProcessorFilterFactory implements ProcessorFilterF
 			processorFilterTypeMap.put(code, filterMap);
 			//	id
 			processorFilterIdMap.put(filterId, processorFilter);
+			
+			//	分配序号: post过滤器会同时加入两条链, 只分配一次
+			if(processorFilter instanceof AbstractEntryProcessorFilter) {
+				AbstractEntryProcessorFilter<?> entryFilter = (AbstractEntryProcessorFilter<?>)processorFilter;
+				if(entryFilter.getOrdinal() < 0) {
+					entryFilter.setOrdinal(entryFilters.size());
+					entryFilters.add(entryFilter);
+				}
+			}
 		}
 		
 	}
 
+	public List<AbstractEntryProcessorFilter<?>> getEntryFilters() {
+		return entryFilters;
+	}
+	
 	public <T> T getFilter(Class<T> t) throws Exception {
 		Filter annotation = t.getAnnotation(Filter.class);
 		if(annotation != null) {
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 
 import com.ruyuan.rapid.common.util.ServiceLoader;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
 import com.ruyuan.rapid.core.context.Context;
 
 import lombok.extern.slf4j.Slf4j;
@@ -88,13 +90,20 @@ public class DefaultProcessorFilterFactory extends AbstractProcessorFilterFactor
 	@Override
 	public void doFilterChain(Context ctx) throws Exception {
 		try {
-			defaultProcessorFilterChain.entry(ctx);
+			if(RapidConfigLoader.getRapidConfig().isFilterPipelineEnabled()) {
+				RuleFilterPlan.of(ctx).getPipeline().execute(ctx);
+			} else {
+				defaultProcessorFilterChain.entry(ctx);
+			}
 		} catch (Throwable e) {
 			log.error("#DefaultProcessorFilterFactory.doFilterChain# ERROR MESSAGE: {}" , e.getMessage(), e);
 			
 			//	设置异常
 			ctx.setThrowable(e);
 			
+			//	请求没有到达路由回调, 释放选中实例的在途请求计数
+			OutstandingRequests.release(ctx);
+			
 			//	执行doFilterChain显示抛出异常时，Context上下文的生命周期为：Context.TERMINATED
 			if(ctx.isTerminated()) {
 				ctx.runned();
@@ -114,7 +123,11 @@ public class DefaultProcessorFilterFactory extends AbstractProcessorFilterFactor
 	@Override
 	public void doErrorFilterChain(Context ctx) throws Exception {
 		try {
-			errorProcessorFilterChain.entry(ctx);
+			if(RapidConfigLoader.getRapidConfig().isFilterPipelineEnabled()) {
+				RuleFilterPlan.of(ctx).getErrorPipeline().execute(ctx);
+			} else {
+				errorProcessorFilterChain.entry(ctx);
+			}
 		} catch (Throwable e) {
 			log.error("#DefaultProcessorFilterFactory.doErrorFilterChain# ERROR MESSAGE: {}" , e.getMessage(), e);
 		}
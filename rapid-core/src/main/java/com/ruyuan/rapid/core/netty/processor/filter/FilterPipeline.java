@@ -0,0 +1,167 @@
+package com.ruyuan.rapid.core.netty.processor.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.helper.ResponseHelper;
+
+/**
+ * <B>主类名称：</B>FilterPipeline<BR>
+ * <B>概要说明：</B>按规则特化的过滤器流水线<BR>
+ * 	规则编译时把过滤器链表展开成只包含该规则启用过滤器的数组, 请求执行时由循环驱动, 不再通过fireNext逐层递归:
+ * 	1. 调用栈深度与过滤器数量无关;
+ * 	2. 规则没有启用的过滤器不在数组中, 不再逐个调用check.
+ * 	过滤器仍然在finally中调用fireNext, 只是fireNext变成了"当前过滤器已完成"的通知:
+ * 	同步调用时由驱动循环继续执行下一个过滤器; 驱动循环已经退出(路由过滤器的异步回调)时, 由回调线程从下一个下标继续驱动.
+ * @author JiFeng
+ * @since 2021年12月25日 下午8:12:40
+ */
+public final class FilterPipeline {
+
+	private final AbstractLinkedProcessorFilter<Context>[] filters;
+
+	//	不是规则配置的过滤器(非AbstractEntryProcessorFilter)无法在编译时确定, 执行时仍然调用check
+	private final boolean[] dynamicCheck;
+
+	private FilterPipeline(AbstractLinkedProcessorFilter<Context>[] filters, boolean[] dynamicCheck) {
+		this.filters = filters;
+		this.dynamicCheck = dynamicCheck;
+	}
+
+	/**
+	 * <B>方法名称：</B>compile<BR>
+	 * <B>概要说明：</B>按执行计划展开过滤器链, 只保留规则启用的过滤器<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午8:15:06
+	 * @param chain
+	 * @param plan
+	 * @return FilterPipeline
+	 */
+	@SuppressWarnings("unchecked")
+	public static FilterPipeline compile(ProcessorFilterChain<Context> chain, RuleFilterPlan plan) {
+		List<AbstractLinkedProcessorFilter<Context>> filters = new ArrayList<>();
+		List<Boolean> dynamicCheck = new ArrayList<>();
+		for(AbstractLinkedProcessorFilter<Context> filter = chain.getNext(); filter != null; filter = filter.getNext()) {
+			if(filter instanceof AbstractEntryProcessorFilter) {
+				if(plan.isEnabled(((AbstractEntryProcessorFilter<?>)filter).getOrdinal())) {
+					filters.add(filter);
+					dynamicCheck.add(Boolean.FALSE);
+				}
+			} else {
+				filters.add(filter);
+				dynamicCheck.add(Boolean.TRUE);
+			}
+		}
+		boolean[] checks = new boolean[dynamicCheck.size()];
+		for(int i = 0; i < checks.length; i++) {
+			checks[i] = dynamicCheck.get(i);
+		}
+		return new FilterPipeline(filters.toArray(new AbstractLinkedProcessorFilter[filters.size()]), checks);
+	}
+
+	/**
+	 * <B>方法名称：</B>execute<BR>
+	 * <B>概要说明：</B>从第一个过滤器开始执行流水线, 游标放入上下文供过滤器的fireNext使用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午8:18:22
+	 * @param ctx
+	 * @throws Throwable
+	 */
+	public void execute(Context ctx) throws Throwable {
+		Cursor cursor = new Cursor(this);
+		ctx.putAttribute(AttributeKey.FILTER_CURSOR, cursor);
+		cursor.drive(ctx, 0);
+	}
+
+	public int size() {
+		return filters.length;
+	}
+
+	public AbstractLinkedProcessorFilter<Context> getFilter(int index) {
+		return filters[index];
+	}
+
+	/**
+	 * <B>主类名称：</B>Cursor<BR>
+	 * <B>概要说明：</B>一次流水线执行的游标<BR>
+	 * 	驱动循环与过滤器的fireNext之间通过一次CAS交接:
+	 * 	RUNNING -> CONTINUE: 过滤器在entry返回前调用了fireNext, 驱动循环继续执行下一个;
+	 * 	RUNNING -> SUSPENDED: entry返回时还没有调用fireNext(异步路由在途), 驱动循环退出, 之后由调用fireNext的线程继续驱动.
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午8:20:51
+	 */
+	public static final class Cursor {
+
+		private static final int RUNNING = 0;
+
+		private static final int CONTINUE = 1;
+
+		private static final int SUSPENDED = 2;
+
+		private static final AtomicIntegerFieldUpdater<Cursor> STATE_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(Cursor.class, "state");
+
+		private final FilterPipeline pipeline;
+
+		//	当前执行的过滤器下标: 在state的volatile写之前赋值, 读取方通过state的CAS可见
+		private int index;
+
+		private volatile int state;
+
+		Cursor(FilterPipeline pipeline) {
+			this.pipeline = pipeline;
+		}
+
+		/**
+		 * <B>方法名称：</B>fireNext<BR>
+		 * <B>概要说明：</B>当前过滤器执行完成, 触发下一个过滤器<BR>
+		 * @author JiFeng
+		 * @since 2021年12月25日 下午8:24:37
+		 * @param ctx
+		 * @throws Throwable
+		 */
+		void fireNext(Context ctx) throws Throwable {
+			if(STATE_UPDATER.compareAndSet(this, RUNNING, CONTINUE)) {
+				return;
+			}
+			//	驱动循环已经退出, 由当前线程(异步回调)从下一个下标继续
+			drive(ctx, index + 1);
+		}
+
+		private void drive(Context ctx, int from) throws Throwable {
+			AbstractLinkedProcessorFilter<Context>[] filters = pipeline.filters;
+			int i = from;
+			for(;;) {
+				//	上下文生命周期：与链表模式的fireNext一致
+				if(ctx.isTerminated()) {
+					return;
+				}
+				if(ctx.isWrittened()) {
+					ResponseHelper.writeResponse(ctx);
+				}
+				if(i >= filters.length) {
+					//	已经执行到最后一个过滤器
+					ctx.terminated();
+					return;
+				}
+				AbstractLinkedProcessorFilter<Context> filter = filters[i];
+				if(pipeline.dynamicCheck[i] && !filter.check(ctx)) {
+					i++;
+					continue;
+				}
+				index = i;
+				state = RUNNING;
+				filter.transformEntry(ctx);
+				if(STATE_UPDATER.compareAndSet(this, RUNNING, SUSPENDED)) {
+					return;
+				}
+				i++;
+			}
+		}
+
+	}
+
+}
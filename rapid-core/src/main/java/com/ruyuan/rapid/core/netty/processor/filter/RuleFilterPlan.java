@@ -0,0 +1,197 @@
+package com.ruyuan.rapid.core.netty.processor.filter;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.util.JSONUtil;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.netty.processor.cache.DefaultCacheManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>RuleFilterPlan<BR>
+ * <B>概要说明：</B>规则预编译的过滤器执行计划<BR>
+ * 	每个过滤器在过滤器工厂加载时分配一个序号(ordinal), 规则编译成:
+ * 	1. 启用的过滤器位图: 过滤器的check变成一次数组读取, 不再遍历filterConfigs做equalsIgnoreCase;
+ * 	2. 解析好的过滤器配置对象数组: 按序号直接取出, 不再拼接ruleId$filterId去缓存中查找.
+ * 	3. 只包含启用过滤器的流水线数组(正常链与异常链各一个), 由FilterPipeline循环驱动执行;
+ * 	规则加载(RegistryManager中putRule)时编译, 请求第一次使用时放入上下文, 之后过滤器链中只读取上下文的数组槽位;
+ * 	执行计划按ruleId缓存在有容量上限、记录命中统计的缓存中, 每个规则只保留版本最新的一个: 规则放入DynamicConfigManager时分配新版本,
+ * 	RegistryManager在规则变更时立即编译新版本并替换旧版本, 变更后的第一个请求不需要解析JSON;
+ * 	仍持有旧规则的在途请求重新编译旧版本时不会覆盖新版本; 缓存命中按规则对象本身判断, 旧规则的重新编译计为未命中,
+ * 	命中统计由RapidContainer按filterConfigCacheStatsInterval定时输出到日志.
+ * @author JiFeng
+ * @since 2021年12月25日 下午4:05:18
+ */
+@Slf4j
+public final class RuleFilterPlan {
+
+	//	命中统计: 缓存中的执行计划属于已被替换的规则对象(需要重新编译)时同样计为未命中
+	private static final StatsCounter STATS = new ConcurrentStatsCounter();
+
+	private static final Cache<String /* ruleId */, RuleFilterPlan> PLANS = DefaultCacheManager.getInstance()
+			.create(DefaultCacheManager.FILTER_CONFIG_CACHE_ID,
+					RapidConfigLoader.getRapidConfig().getFilterConfigCacheMaximumSize(),
+					STATS);
+
+	private final Rule rule;
+
+	//	启用的过滤器位图, 按过滤器序号索引
+	private final long[] enabled;
+
+	//	解析好的过滤器配置, 按过滤器序号索引, 没有配置或解析失败时为null
+	private final Object[] configs;
+	
+	//	pre + route + post 中启用的过滤器
+	private FilterPipeline pipeline;
+	
+	//	error + post 中启用的过滤器
+	private FilterPipeline errorPipeline;
+
+	private RuleFilterPlan(Rule rule, int filterCount) {
+		this.rule = rule;
+		this.enabled = new long[(filterCount + 63) >>> 6];
+		this.configs = new Object[filterCount];
+	}
+
+	/**
+	 * <B>方法名称：</B>getPlan<BR>
+	 * <B>概要说明：</B>获取规则的执行计划, 规则还没有编译或已经被替换时重新编译<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午4:10:32
+	 * @param rule
+	 * @return RuleFilterPlan
+	 */
+	public static RuleFilterPlan getPlan(Rule rule) {
+		//	不经过缓存自身的命中统计读取, 按规则对象是否相同记录命中
+		RuleFilterPlan plan = PLANS.policy().getIfPresentQuietly(rule.getId());
+		if(plan != null && plan.rule == rule) {
+			STATS.recordHits(1);
+			return plan;
+		}
+		STATS.recordMisses(1);
+		RuleFilterPlan compiled = compile(rule);
+		//	只用不低于缓存中版本的执行计划替换, 旧版本的在途请求不会淘汰新版本
+		PLANS.asMap().compute(rule.getId(), (ruleId, cached) ->
+				cached != null && cached.rule.getVersion() > rule.getVersion() ? cached : compiled);
+		return compiled;
+	}
+
+	/**
+	 * <B>方法名称：</B>removePlan<BR>
+	 * <B>概要说明：</B>规则删除时移除该规则的执行计划<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午4:11:05
+	 * @param ruleId
+	 */
+	public static void removePlan(String ruleId) {
+		PLANS.invalidate(ruleId);
+	}
+	
+	/**
+	 * <B>方法名称：</B>stats<BR>
+	 * <B>概要说明：</B>执行计划缓存的命中统计, 未命中次数即请求路径上编译执行计划的次数<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午9:30:18
+	 * @return CacheStats
+	 */
+	public static CacheStats stats() {
+		return STATS.snapshot();
+	}
+	
+	/**
+	 * <B>方法名称：</B>logStats<BR>
+	 * <B>概要说明：</B>输出执行计划缓存的命中统计, 由RapidContainer定时调用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月27日 下午2:16:08
+	 */
+	public static void logStats() {
+		CacheStats stats = stats();
+		log.info("#RuleFilterPlan# plan cache size: {}, hitCount: {}, missCount: {}, hitRate: {}, evictionCount: {}",
+				PLANS.estimatedSize(), stats.hitCount(), stats.missCount(),
+				String.format("%.4f", stats.hitRate()), stats.evictionCount());
+	}
+
+	/**
+	 * <B>方法名称：</B>of<BR>
+	 * <B>概要说明：</B>获取上下文对应规则的执行计划, 每个请求只查找一次<BR>
+	 * @author JiFeng
+	 * @since 2021年12月25日 下午4:12:40
+	 * @param ctx
+	 * @return RuleFilterPlan
+	 */
+	public static RuleFilterPlan of(Context ctx) {
+		RuleFilterPlan plan = ctx.getAttribute(AttributeKey.FILTER_PLAN);
+		if(plan == null) {
+			plan = getPlan(ctx.getRule());
+			ctx.putAttribute(AttributeKey.FILTER_PLAN, plan);
+		}
+		return plan;
+	}
+
+	private static RuleFilterPlan compile(Rule rule) {
+		DefaultProcessorFilterFactory factory = DefaultProcessorFilterFactory.getInstance();
+		List<AbstractEntryProcessorFilter<?>> filters = factory.getEntryFilters();
+		RuleFilterPlan plan = new RuleFilterPlan(rule, filters.size());
+		for(Rule.FilterConfig filterConfig : rule.getFilterConfigs()) {
+			for(AbstractEntryProcessorFilter<?> filter : filters) {
+				int ordinal = filter.getOrdinal();
+				//	filterId忽略大小写, 同一个过滤器配置多次时只取第一个
+				if(!filter.getFilterId().equalsIgnoreCase(filterConfig.getId()) || plan.isEnabled(ordinal)) {
+					continue;
+				}
+				plan.enabled[ordinal >>> 6] |= 1L << ordinal;
+				plan.configs[ordinal] = parseConfig(filter, filterConfig);
+			}
+		}
+		plan.pipeline = FilterPipeline.compile(factory.defaultProcessorFilterChain, plan);
+		plan.errorPipeline = FilterPipeline.compile(factory.errorProcessorFilterChain, plan);
+		return plan;
+	}
+
+	private static Object parseConfig(AbstractEntryProcessorFilter<?> filter, Rule.FilterConfig filterConfig) {
+		String configStr = filterConfig.getConfig();
+		if(StringUtils.isEmpty(configStr)) {
+			return null;
+		}
+		try {
+			return JSONUtil.parse(configStr, filter.filterConfigClass);
+		} catch (Exception e) {
+			log.error("#RuleFilterPlan# compile filterId: {}, config parse error: {}",
+					filter.getFilterId(),
+					configStr,
+					e);
+			return null;
+		}
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	public boolean isEnabled(int ordinal) {
+		return (enabled[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+
+	public Object getConfig(int ordinal) {
+		return configs[ordinal];
+	}
+	
+	public FilterPipeline getPipeline() {
+		return pipeline;
+	}
+	
+	public FilterPipeline getErrorPipeline() {
+		return errorPipeline;
+	}
+
+}
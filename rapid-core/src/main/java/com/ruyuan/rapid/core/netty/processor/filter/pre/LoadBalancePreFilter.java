@@ -1,16 +1,18 @@
 package com.ruyuan.rapid.core.netty.processor.filter.pre;
 
-import java.util.Set;
-
 import com.ruyuan.rapid.common.config.DynamicConfigManager;
 import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
 import com.ruyuan.rapid.common.constants.ProcessorFilterConstants;
 import com.ruyuan.rapid.common.constants.RapidProtocol;
+import com.ruyuan.rapid.common.enums.HashKeySource;
 import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
 import com.ruyuan.rapid.common.enums.ResponseCode;
 import com.ruyuan.rapid.common.exception.RapidResponseException;
 import com.ruyuan.rapid.core.balance.LoadBalance;
 import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.balance.OutlierDetector;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
 import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.Context;
 import com.ruyuan.rapid.core.context.RapidContext;
@@ -47,6 +49,8 @@ public class LoadBalancePreFilter extends AbstractEntryProcessorFilter<LoadBalan
 			RapidContext rapidContext = (RapidContext)ctx;
 			LoadBalancePreFilter.Config config = (LoadBalancePreFilter.Config)args[0];
 			LoadBalanceStrategy loadBalanceStrategy = config.getBalanceStrategy();
+			//	负载均衡配置放入上下文, 负载均衡实现和路由回调读取其中的参数
+			rapidContext.putAttribute(AttributeKey.LOADBALANCE_CONFIG, config);
 			String protocol = rapidContext.getProtocol();
 			switch (protocol) {
 				case RapidProtocol.HTTP:
@@ -66,10 +70,10 @@ public class LoadBalancePreFilter extends AbstractEntryProcessorFilter<LoadBalan
 	private void doHttpLoadBalance(RapidContext rapidContext, LoadBalanceStrategy loadBalanceStrategy) {
 		RapidRequest rapidRequest = rapidContext.getRequest();
 		String uniqueId = rapidRequest.getUniqueId();
-		Set<ServiceInstance> serviceInstances = DynamicConfigManager.getInstance()
-				.getServiceInstanceByUniqueId(uniqueId);
+		ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance()
+				.getServiceInstanceSnapshot(uniqueId);
 		
-		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, serviceInstances);
+		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, snapshot);
 		
 		//	通过负载均衡枚举值获取负载均衡实例对象
 		LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(loadBalanceStrategy);
@@ -82,6 +86,11 @@ public class LoadBalancePreFilter extends AbstractEntryProcessorFilter<LoadBalan
 			throw new RapidResponseException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
 		}
 		
+		//	依赖实时负载的策略: 选中的实例在途请求数加一, 路由回调完成时减一
+		if(OutstandingRequests.isTracked(loadBalanceStrategy)) {
+			OutstandingRequests.acquire(rapidContext, serviceInstance);
+		}
+		
 		//	这一步非常关键：设置可修改的服务host，为当前选择的实例对象的address
 		rapidContext.getRequestMutale().setModifyHost(serviceInstance.getAddress());
 	}
@@ -111,6 +120,17 @@ public class LoadBalancePreFilter extends AbstractEntryProcessorFilter<LoadBalan
 		
 		private LoadBalanceStrategy balanceStrategy = LoadBalanceStrategy.ROUND_ROBIN;
 		
+		//	P2C_PEAK_EWMA策略: 往返时延峰值EWMA的衰减时间常数(ms), 越小对实例恢复反应越快
+		private long ewmaDecayTime = LoadBalance.DEFAULT_EWMA_DECAY_TIME;
+		
+		//	CONSISTENT_HASH策略: 哈希键来源, 以及请求头或cookie的名称
+		private HashKeySource hashKeySource = HashKeySource.CLIENT_IP;
+		
+		private String hashKeyName;
+		
+		//	异常实例摘除: 连续失败、失败率或慢调用率达到阈值的实例临时跳过, 默认关闭
+		private OutlierDetector.Config outlierDetection = new OutlierDetector.Config();
+		
 	}
 	
 
@@ -12,6 +12,8 @@ import com.ruyuan.rapid.common.exception.RapidResponseException;
 import com.ruyuan.rapid.common.util.FastJsonConvertUtil;
 import com.ruyuan.rapid.common.util.TimeUtil;
 import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.balance.OutlierDetector;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
 import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.Context;
 import com.ruyuan.rapid.core.context.DubboRequest;
@@ -80,6 +82,8 @@ public class DubboRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 		rapidContext.setRSTime(TimeUtil.currentTimeMillis());
 		
 		CompletableFuture<Object> future = DubboReferenceHelper.getInstance().$invokeAsync(rapidContext, dubboRequest);
+		//	请求在途期间由回调持有上下文, complete中放弃持有
+		rapidContext.retain();
 		
 		//	双异步和单异步模式
 		boolean whenComplete = RapidConfigLoader.getRapidConfig().isWhenComplete();
@@ -117,6 +121,10 @@ public class DubboRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 		try {
 			//	设置RR:
 			rapidContext.setRRTime(TimeUtil.currentTimeMillis());
+			//	释放选中实例的在途请求计数(同时记录往返时延)
+			OutstandingRequests.complete(rapidContext);
+			//	记录选中实例的调用结果
+			OutlierDetector.record(rapidContext, throwable, 0);
 			
 			if(Objects.nonNull(throwable)) {
 				DubboConnectException dubboConnectException = new DubboConnectException(throwable,
@@ -145,7 +153,9 @@ public class DubboRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 				//	兜底处理，把异常信息放入上下文
 				rapidContext.setThrowable(new RapidResponseException(ResponseCode.INTERNAL_ERROR));
 				log.error("#DubboRouteFilter# fireNext出现异常", t);
-			}			
+			}
+			//	3.	回调放弃持有上下文
+			rapidContext.release();
 		}
 	}
 
@@ -5,12 +5,18 @@ import java.util.concurrent.CompletableFuture;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.Response;
 
+import com.ruyuan.rapid.common.config.HttpServiceInvoker;
+import com.ruyuan.rapid.common.config.ServiceInvoker;
 import com.ruyuan.rapid.common.constants.ProcessorFilterConstants;
 import com.ruyuan.rapid.common.enums.ResponseCode;
 import com.ruyuan.rapid.common.exception.RapidConnectException;
 import com.ruyuan.rapid.common.exception.RapidResponseException;
 import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.RapidConfig;
 import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.balance.OutlierDetector;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
+import com.ruyuan.rapid.core.context.AttributeKey;
 import com.ruyuan.rapid.core.context.Context;
 import com.ruyuan.rapid.core.context.RapidContext;
 import com.ruyuan.rapid.core.context.RapidResponse;
@@ -19,7 +25,9 @@ import com.ruyuan.rapid.core.netty.processor.filter.AbstractEntryProcessorFilter
 import com.ruyuan.rapid.core.netty.processor.filter.Filter;
 import com.ruyuan.rapid.core.netty.processor.filter.FilterConfig;
 import com.ruyuan.rapid.core.netty.processor.filter.ProcessorFilterType;
+import com.ruyuan.rapid.core.netty.stream.StreamingResponseHandler;
 
+import io.netty.channel.EventLoop;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -49,24 +57,54 @@ public class HttpRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 		//	设置RS:
 		rapidContext.setRSTime(TimeUtil.currentTimeMillis());
 		
-		CompletableFuture<Response> future = AsyncHttpHelper.getInstance().executeRequest(request);
-		
-		//	双异步和单异步模式
-		boolean whenComplete = RapidConfigLoader.getRapidConfig().isWhenComplete();
+		RapidConfig rapidConfig = RapidConfigLoader.getRapidConfig();
+		//	线程亲和模式下使用当前连接所在EventLoop的客户端转发
+		EventLoop eventLoop = rapidContext.getNettyCtx().channel().eventLoop();
+		CompletableFuture<Response> future;
+		StreamingResponseHandler streamingHandler = null;
+		//	响应流式转发模式
+		if(rapidConfig.isHttpResponseStreamingEnabled()) {
+			streamingHandler = new StreamingResponseHandler(rapidContext.getNettyCtx(),
+					rapidContext.isKeepAlive(),
+					rapidConfig.getHttpResponseStreamingThreshold(),
+					isStreamingInvoker(rapidContext));
+			AsyncHttpHelper.getInstance().executeRequest(eventLoop, request, streamingHandler);
+			future = streamingHandler.getFuture();
+		} else {
+			future = AsyncHttpHelper.getInstance().executeRequest(eventLoop, request);
+		}
+		final StreamingResponseHandler handler = streamingHandler;
+		//	请求在途期间由回调持有上下文, complete中放弃持有
+		rapidContext.retain();
 		
+		//	线程亲和模式: 响应在EventLoop上直接回调; 超时由共享的定时器线程触发, 不在EventLoop上时切回接入请求的EventLoop
+		if(rapidConfig.isEventLoopAffinityEnabled()) {
+			future.whenComplete((response, throwable) -> {
+				if(eventLoop.inEventLoop()) {
+					complete(request, response, throwable, rapidContext, handler, args);
+				} else {
+					eventLoop.execute(() -> complete(request, response, throwable, rapidContext, handler, args));
+				}
+			});
+		}
 		//	单异步模式
-		if(whenComplete) {
+		else if(rapidConfig.isWhenComplete()) {
 			future.whenComplete((response, throwable) -> {
-				complete(request, response, throwable, rapidContext, args);
+				complete(request, response, throwable, rapidContext, handler, args);
 			});
 		}
 		//	双异步模式
 		else {
 			future.whenCompleteAsync((response, throwable) -> {
-				complete(request, response, throwable, rapidContext, args);
+				complete(request, response, throwable, rapidContext, handler, args);
 			});					
 		}
 	}
+	
+	private boolean isStreamingInvoker(RapidContext rapidContext) {
+		ServiceInvoker serviceInvoker = rapidContext.getAttribute(AttributeKey.HTTP_INVOKER);
+		return serviceInvoker instanceof HttpServiceInvoker && ((HttpServiceInvoker)serviceInvoker).isStreaming();
+	}
 
 	/**
 	 * <B>方法名称：</B>complete<BR>
@@ -77,19 +115,24 @@ public class HttpRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 	 * @param response
 	 * @param throwable
 	 * @param rapidContext
+	 * @param streamingHandler 非流式模式为null
 	 * @param args
 	 */
 	private void complete(Request request, 
 			Response response,
 			Throwable throwable,
 			RapidContext rapidContext,
+			StreamingResponseHandler streamingHandler,
 			Object... args) {
 		try {
 			//	设置RR:
 			rapidContext.setRRTime(TimeUtil.currentTimeMillis());
 			
-			//	1. 释放请求资源
+			//	1. 释放请求资源, 以及选中实例的在途请求计数(同时记录往返时延)
 			rapidContext.releaseRequest();
+			OutstandingRequests.complete(rapidContext);
+			//	记录选中实例的调用结果, 由异常实例摘除配置决定哪些结果计为失败
+			OutlierDetector.record(rapidContext, throwable, response == null ? 0 : response.getStatusCode());
 			//	2. 判断是否有异常产生
 			if(java.util.Objects.nonNull(throwable)) {
 				String url = request.getUrl();
@@ -124,8 +167,13 @@ public class HttpRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 			log.error("#HttpRouteFilter# complete catch到未知异常", t);
 		} finally {
 			try {
-				//	1.	设置写回标记
-				rapidContext.writtened();
+				//	1.	设置写回标记: 流式转发的响应已经写回客户端, 直接标记为完成
+				if(streamingHandler != null && streamingHandler.isStreamed()) {
+					rapidContext.setSSTime(TimeUtil.currentTimeMillis());
+					rapidContext.completed();
+				} else {
+					rapidContext.writtened();
+				}
 				
 				//	2. 	让异步线程内部自己进行触发下一个节点执行
 				super.fireNext(rapidContext, args);
@@ -134,6 +182,8 @@ public class HttpRouteFilter extends AbstractEntryProcessorFilter<FilterConfig>
 				rapidContext.setThrowable(new RapidResponseException(ResponseCode.INTERNAL_ERROR));
 				log.error("#HttpRouteFilter# fireNext出现异常", t);
 			}
+			//	3.	回调放弃持有上下文
+			rapidContext.release();
 		}
 	}
 
@@ -0,0 +1,130 @@
+package com.ruyuan.rapid.core.netty.stream;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import org.asynchttpclient.request.body.Body;
+import org.asynchttpclient.request.body.generator.BodyGenerator;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * <B>主类名称：</B>RetainedBodyGenerator<BR>
+ * <B>概要说明：</B>聚合请求体的零拷贝转发: 把客户端请求的ByteBuf(通常是CompositeByteBuf)原样交给下游连接写出<BR>
+ * 	所有权约定:
+ * 	1. 构造时retain一次请求体, 由持有者(RapidRequest)在请求释放时调用release()归还, 只生效一次;
+ * 	2. AHC每次发送(含重试)都会调用createBody(), 下游连接上的RetainedBodyHandler再为这次写出retain一个duplicate,
+ * 		作为HttpContent写出, 写出完成或失败后由netty释放, 同样只释放一次;
+ * 	3. 连接建立失败等Body从未被写出的情况不会retain, 也就无需释放.
+ * 	因此下游的写出即使晚于网关侧的请求释放(例如超时), 请求体内存也不会被提前归还.
+ * 	注意: 下游客户端必须安装RetainedBodyHandler, AHC 2.0.x自带的BodyChunkedInput/BodyFileRegion基于netty 4.0编译,
+ * 	在netty 4.1上缺少readChunk(ByteBufAllocator)/touch等方法, 无法写出BodyGenerator类型的请求体.
+ * @author JiFeng
+ * @since 2021年12月24日 下午3:05:12
+ */
+public class RetainedBodyGenerator implements BodyGenerator {
+
+	private final ByteBuf content;
+
+	private final long contentLength;
+
+	private boolean released;
+
+	public RetainedBodyGenerator(ByteBuf content) {
+		this.content = content.retain();
+		this.contentLength = content.readableBytes();
+	}
+
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	@Override
+	public Body createBody() {
+		return new RetainedBody();
+	}
+
+	/**
+	 * <B>方法名称：</B>release<BR>
+	 * <B>概要说明：</B>归还构造时持有的引用, 之后新的写出会失败, 已经在写出中的请求体不受影响<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:08:40
+	 * @return 本次调用是否真正释放
+	 */
+	public synchronized boolean release() {
+		if(released) {
+			return false;
+		}
+		released = true;
+		content.release();
+		return true;
+	}
+
+	public synchronized boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * <B>方法名称：</B>retainedContent<BR>
+	 * <B>概要说明：</B>为一次写出retain一个独立读写指针的duplicate, 所有权交给调用方<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:10:05
+	 * @return ByteBuf
+	 * @throws IOException 请求已经释放
+	 */
+	synchronized ByteBuf retainedContent() throws IOException {
+		if(released) {
+			throw new ClosedChannelException();
+		}
+		return content.retainedDuplicate();
+	}
+
+	/**
+	 * <B>主类名称：</B>RetainedBody<BR>
+	 * <B>概要说明：</B>一次发送对应的请求体, 只在下游连接的EventLoop上使用<BR>
+	 * @author JiFeng
+	 * @since 2021年12月24日 下午3:11:26
+	 */
+	class RetainedBody implements Body {
+
+		//	按Body接口分块读取时使用的duplicate: 读指针即写出进度
+		private ByteBuf buffer;
+
+		private boolean closed;
+
+		RetainedBodyGenerator generator() {
+			return RetainedBodyGenerator.this;
+		}
+
+		@Override
+		public long getContentLength() {
+			return contentLength;
+		}
+
+		@Override
+		public BodyState transferTo(ByteBuf target) throws IOException {
+			if(closed) {
+				throw new ClosedChannelException();
+			}
+			if(buffer == null) {
+				buffer = retainedContent();
+			}
+			int length = Math.min(buffer.readableBytes(), target.writableBytes());
+			target.writeBytes(buffer, length);
+			return buffer.isReadable() ? BodyState.CONTINUE : BodyState.STOP;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			if(buffer != null) {
+				buffer.release();
+				buffer = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.ruyuan.rapid.core.netty.stream;
+
+import org.asynchttpclient.netty.NettyResponseFuture;
+import org.asynchttpclient.netty.channel.Channels;
+import org.asynchttpclient.netty.request.NettyRequest;
+import org.asynchttpclient.netty.request.body.BodyChunkedInput;
+import org.asynchttpclient.netty.request.body.NettyBody;
+import org.asynchttpclient.netty.request.body.NettyBodyBody;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+
+/**
+ * <B>主类名称：</B>RetainedBodyHandler<BR>
+ * <B>概要说明：</B>下游连接上的请求体零拷贝写出, 通过AHC的AdditionalChannelInitializer加到pipeline末尾<BR>
+ * 	AHC把BodyGenerator类型的请求体包装成BodyChunkedInput, 原本交给ChunkedWriteHandler逐块拷贝到新分配的ByteBuf
+ * 	(AHC 2.0.x的BodyChunkedInput基于netty 4.0编译, 在netty 4.1上会抛AbstractMethodError);
+ * 	这里把RetainedBodyGenerator产生的BodyChunkedInput替换为引用请求体的HttpContent, 原promise不变,
+ * 	由HttpObjectEncoder直接把CompositeByteBuf的各个分片写入socket, 写出完成或失败后netty负责释放.
+ * @author JiFeng
+ * @since 2021年12月24日 下午3:32:18
+ */
+@Sharable
+public class RetainedBodyHandler extends ChannelOutboundHandlerAdapter {
+
+	public static final RetainedBodyHandler INSTANCE = new RetainedBodyHandler();
+
+	private RetainedBodyHandler() {
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if(msg instanceof BodyChunkedInput) {
+			RetainedBodyGenerator.RetainedBody body = retainedBody(ctx);
+			if(body != null) {
+				BodyChunkedInput input = (BodyChunkedInput)msg;
+				ByteBuf content;
+				try {
+					content = body.generator().retainedContent();
+				} catch (Exception e) {
+					input.close();
+					promise.setFailure(e);
+					return;
+				}
+				input.close();
+				ctx.write(new DefaultHttpContent(content), promise);
+				return;
+			}
+		}
+		ctx.write(msg, promise);
+	}
+
+	private RetainedBodyGenerator.RetainedBody retainedBody(ChannelHandlerContext ctx) {
+		Object attribute = Channels.getAttribute(ctx.channel());
+		if(!(attribute instanceof NettyResponseFuture)) {
+			return null;
+		}
+		NettyRequest nettyRequest = ((NettyResponseFuture<?>)attribute).getNettyRequest();
+		NettyBody nettyBody = nettyRequest == null ? null : nettyRequest.getBody();
+		if(nettyBody instanceof NettyBodyBody &&
+				((NettyBodyBody)nettyBody).getBody() instanceof RetainedBodyGenerator.RetainedBody) {
+			return (RetainedBodyGenerator.RetainedBody)((NettyBodyBody)nettyBody).getBody();
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.ruyuan.rapid.core.netty.stream;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+
+/**
+ * <B>主类名称：</B>StreamingFullHttpRequest<BR>
+ * <B>概要说明：</B>流式请求: 只携带请求行和请求头, 请求体通过StreamingRequestBody异步到达<BR>
+ * 	继承FullHttpRequest以便沿用原有的处理链路, content()始终为空
+ * @author JiFeng
+ * @since 2021年12月20日 下午3:35:27
+ */
+public class StreamingFullHttpRequest extends DefaultFullHttpRequest {
+
+	private final StreamingRequestBody body;
+	
+	private final long contentLength;
+	
+	public StreamingFullHttpRequest(HttpRequest request, StreamingRequestBody body) {
+		super(request.protocolVersion(), request.method(), request.uri(), Unpooled.buffer(0),
+				request.headers(), EmptyHttpHeaders.INSTANCE);
+		this.body = body;
+		this.contentLength = HttpUtil.getContentLength(request, -1L);
+	}
+	
+	public StreamingRequestBody getBody() {
+		return body;
+	}
+	
+	/**
+	 * 	请求体长度, -1表示未知(chunked)
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+	
+	@Override
+	public boolean release() {
+		body.discard();
+		return super.release();
+	}
+	
+	@Override
+	public boolean release(int decrement) {
+		body.discard();
+		return super.release(decrement);
+	}
+	
+}
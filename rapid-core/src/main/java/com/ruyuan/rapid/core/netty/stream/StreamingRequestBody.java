@@ -0,0 +1,236 @@
+package com.ruyuan.rapid.core.netty.stream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * <B>主类名称：</B>StreamingRequestBody<BR>
+ * <B>概要说明：</B>流式请求体: 将客户端连接上陆续到达的HttpContent发布给下游AsyncHttpClient<BR>
+ * 	所有状态只在客户端连接所在的EventLoop上修改, 下游的request(n)驱动消费,
+ * 	积压超过bufferSize时关闭客户端连接的autoRead, 回落到一半以下时再恢复, 以此把背压传导给客户端
+ * @author JiFeng
+ * @since 2021年12月20日 下午3:12:40
+ */
+public class StreamingRequestBody implements Publisher<ByteBuffer> {
+
+	private final ChannelHandlerContext ctx;
+	
+	private final EventExecutor executor;
+	
+	private final int bufferSize;
+	
+	private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+	
+	private int pendingBytes;
+	
+	private Subscriber<? super ByteBuffer> subscriber;
+	
+	private long demand;
+	
+	//	客户端请求体已经全部到达
+	private boolean completed;
+	
+	//	已经结束(下游完成/取消/请求被释放), 之后到达的数据直接丢弃
+	private boolean terminated;
+	
+	private boolean paused;
+	
+	private Throwable failure;
+	
+	public StreamingRequestBody(ChannelHandlerContext ctx, int bufferSize) {
+		this.ctx = ctx;
+		this.executor = ctx.executor();
+		this.bufferSize = bufferSize;
+	}
+	
+	@Override
+	public void subscribe(final Subscriber<? super ByteBuffer> s) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				if(subscriber != null || terminated) {
+					s.onSubscribe(NOOP_SUBSCRIPTION);
+					s.onError(new IllegalStateException("streaming request body can only be subscribed once"));
+					return;
+				}
+				subscriber = s;
+				s.onSubscribe(new BodySubscription());
+				drain();
+			}
+		});
+	}
+	
+	/**
+	 * <B>方法名称：</B>offer<BR>
+	 * <B>概要说明：</B>EventLoop上调用: 接收客户端的一段请求体, 拷贝后立即释放原始ByteBuf<BR>
+	 * @author JiFeng
+	 * @since 2021年12月20日 下午3:20:11
+	 * @param content
+	 */
+	public void offer(HttpContent content) {
+		try {
+			if(content instanceof LastHttpContent) {
+				completed = true;
+			}
+			if(terminated) {
+				return;
+			}
+			ByteBuf buf = content.content();
+			if(buf.isReadable()) {
+				ByteBuffer copy = ByteBuffer.allocate(buf.readableBytes());
+				buf.readBytes(copy);
+				copy.flip();
+				pending.add(copy);
+				pendingBytes += copy.remaining();
+			}
+		} finally {
+			content.release();
+		}
+		drain();
+		if(!completed && !terminated && !paused && pendingBytes >= bufferSize) {
+			paused = true;
+			ctx.channel().config().setAutoRead(false);
+		}
+	}
+	
+	/**
+	 * <B>方法名称：</B>fail<BR>
+	 * <B>概要说明：</B>EventLoop上调用: 客户端连接异常中断<BR>
+	 * @author JiFeng
+	 * @since 2021年12月20日 下午3:22:45
+	 * @param cause
+	 */
+	public void fail(Throwable cause) {
+		if(terminated || completed) {
+			return;
+		}
+		failure = cause;
+		drain();
+	}
+	
+	/**
+	 * <B>方法名称：</B>discard<BR>
+	 * <B>概要说明：</B>丢弃剩余的请求体(请求已结束或被释放), 并恢复客户端连接的读取<BR>
+	 * @author JiFeng
+	 * @since 2021年12月20日 下午3:25:02
+	 */
+	public void discard() {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				terminate();
+			}
+		});
+	}
+	
+	private void drain() {
+		if(subscriber == null || terminated) {
+			return;
+		}
+		while(demand > 0 && !pending.isEmpty()) {
+			ByteBuffer buffer = pending.poll();
+			pendingBytes -= buffer.remaining();
+			demand--;
+			subscriber.onNext(buffer);
+			if(terminated) {
+				return;
+			}
+		}
+		if(pending.isEmpty()) {
+			if(completed) {
+				Subscriber<? super ByteBuffer> s = subscriber;
+				terminate();
+				s.onComplete();
+				return;
+			}
+			if(failure != null) {
+				Subscriber<? super ByteBuffer> s = subscriber;
+				terminate();
+				s.onError(failure);
+				return;
+			}
+		}
+		if(paused && pendingBytes <= bufferSize >>> 1) {
+			resume();
+		}
+	}
+	
+	private void terminate() {
+		terminated = true;
+		pending.clear();
+		pendingBytes = 0;
+		resume();
+	}
+	
+	private void resume() {
+		if(paused) {
+			paused = false;
+			ctx.channel().config().setAutoRead(true);
+		}
+	}
+	
+	private void execute(Runnable task) {
+		if(executor.inEventLoop()) {
+			task.run();
+		} else {
+			executor.execute(task);
+		}
+	}
+	
+	/**
+	 * <B>主类名称：</B>BodySubscription<BR>
+	 * <B>概要说明：</B>下游订阅关系, 所有回调都切回客户端连接的EventLoop执行<BR>
+	 * @author JiFeng
+	 * @since 2021年12月20日 下午3:28:19
+	 */
+	private class BodySubscription implements Subscription {
+
+		@Override
+		public void request(final long n) {
+			execute(new Runnable() {
+				@Override
+				public void run() {
+					if(terminated) {
+						return;
+					}
+					if(n <= 0) {
+						Subscriber<? super ByteBuffer> s = subscriber;
+						terminate();
+						s.onError(new IllegalArgumentException("request(n) must be positive, n: " + n));
+						return;
+					}
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+					drain();
+				}
+			});
+		}
+
+		@Override
+		public void cancel() {
+			discard();
+		}
+		
+	}
+	
+	private static final Subscription NOOP_SUBSCRIPTION = new Subscription() {
+		
+		@Override
+		public void request(long n) {
+		}
+		
+		@Override
+		public void cancel() {
+		}
+	};
+	
+}
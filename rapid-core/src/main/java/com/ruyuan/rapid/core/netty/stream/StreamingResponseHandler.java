@@ -0,0 +1,260 @@
+package com.ruyuan.rapid.core.netty.stream;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <B>主类名称：</B>StreamingResponseHandler<BR>
+ * <B>概要说明：</B>下游响应的流式转发处理器<BR>
+ * 	收到响应头时决定是否流式转发: SSE、未知长度或超过阈值的响应, 立即写回响应头, 之后每个body分片到达即写回客户端;
+ * 	其余响应仍然聚合为完整的Response, 沿用原有的写回流程.
+ * 	流控: 每次只向下游请求一个分片, 客户端连接不可写时等上一次写出完成后再请求下一个分片.
+ * 	注意: 以getFuture()为准, 分片通过Publisher异步投递, AHC自身的onCompleted可能早于最后一个分片.
+ * @author JiFeng
+ * @since 2021年12月21日 上午10:15:32
+ */
+@Slf4j
+public class StreamingResponseHandler implements StreamedAsyncHandler<Response> {
+	
+	private static final String TEXT_EVENT_STREAM = "text/event-stream";
+	
+	private final ChannelHandlerContext nettyCtx;
+	
+	private final boolean keepAlive;
+	
+	//	超过该长度的响应走流式转发
+	private final long threshold;
+	
+	//	路由强制流式转发
+	private final boolean forceStreaming;
+	
+	private final Response.ResponseBuilder builder = new Response.ResponseBuilder();
+	
+	private final CompletableFuture<Response> future = new CompletableFuture<Response>();
+	
+	private volatile HttpResponseStatus status;
+	
+	//	是否已经走了流式转发(响应头已经写回客户端)
+	private volatile boolean streamed;
+	
+	//	body是否通过onStream的Publisher投递
+	private volatile boolean subscribed;
+	
+	public StreamingResponseHandler(ChannelHandlerContext nettyCtx, boolean keepAlive, long threshold, boolean forceStreaming) {
+		this.nettyCtx = nettyCtx;
+		this.keepAlive = keepAlive;
+		this.threshold = threshold;
+		this.forceStreaming = forceStreaming;
+	}
+	
+	public CompletableFuture<Response> getFuture() {
+		return future;
+	}
+	
+	public boolean isStreamed() {
+		return streamed;
+	}
+
+	@Override
+	public State onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+		this.status = responseStatus;
+		builder.accumulate(responseStatus);
+		return State.CONTINUE;
+	}
+
+	@Override
+	public State onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+		builder.accumulate(headers);
+		if(!headers.isTrailling() && shouldStream(headers.getHeaders())) {
+			streamed = true;
+			//	立即flush: SSE、长轮询的第一个分片可能很久才到, 客户端需要先拿到响应头
+			nettyCtx.writeAndFlush(buildHttpResponse(headers.getHeaders()));
+		}
+		return State.CONTINUE;
+	}
+	
+	private boolean shouldStream(HttpHeaders headers) {
+		if(forceStreaming) {
+			return true;
+		}
+		String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+		if(contentType != null && contentType.startsWith(TEXT_EVENT_STREAM)) {
+			return true;
+		}
+		String contentLength = headers.get(HttpHeaderNames.CONTENT_LENGTH);
+		if(contentLength == null) {
+			//	chunked或者以关闭连接结束的响应, 长度未知
+			return true;
+		}
+		try {
+			return Long.parseLong(contentLength.trim()) > threshold;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	private HttpResponse buildHttpResponse(HttpHeaders headers) {
+		HttpResponse httpResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, 
+				io.netty.handler.codec.http.HttpResponseStatus.valueOf(status.getStatusCode()));
+		httpResponse.headers().add(headers);
+		if(!HttpUtil.isContentLengthSet(httpResponse)) {
+			HttpUtil.setTransferEncodingChunked(httpResponse, true);
+		}
+		if(keepAlive) {
+			httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+		} else {
+			httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+		}
+		return httpResponse;
+	}
+
+	@Override
+	public State onStream(Publisher<HttpResponseBodyPart> publisher) {
+		subscribed = true;
+		if(streamed) {
+			publisher.subscribe(new WriteSubscriber());
+		} else {
+			publisher.subscribe(new AccumulateSubscriber());
+		}
+		return State.CONTINUE;
+	}
+	
+	@Override
+	public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+		//	StreamedAsyncHandler的body分片都通过onStream的Publisher投递
+		builder.accumulate(bodyPart);
+		return State.CONTINUE;
+	}
+
+	@Override
+	public void onThrowable(Throwable t) {
+		if(streamed && nettyCtx.channel().isActive()) {
+			//	响应头已经写出, 只能中断客户端连接
+			nettyCtx.close();
+		}
+		future.completeExceptionally(t);
+	}
+
+	@Override
+	public Response onCompleted() throws Exception {
+		//	有Publisher时以订阅者的onComplete为准
+		if(!subscribed) {
+			complete();
+		}
+		return null;
+	}
+	
+	private void complete() {
+		if(streamed) {
+			ChannelFuture writeFuture = nettyCtx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+			if(!keepAlive) {
+				writeFuture.addListener(ChannelFutureListener.CLOSE);
+			}
+		}
+		future.complete(builder.build());
+	}
+	
+	/**
+	 * <B>主类名称：</B>AccumulateSubscriber<BR>
+	 * <B>概要说明：</B>非流式: 聚合所有分片<BR>
+	 * @author JiFeng
+	 * @since 2021年12月21日 上午10:32:05
+	 */
+	private class AccumulateSubscriber implements Subscriber<HttpResponseBodyPart> {
+		
+		@Override
+		public void onSubscribe(Subscription s) {
+			s.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(HttpResponseBodyPart bodyPart) {
+			builder.accumulate(bodyPart);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			future.completeExceptionally(t);
+		}
+
+		@Override
+		public void onComplete() {
+			complete();
+		}
+	}
+	
+	/**
+	 * <B>主类名称：</B>WriteSubscriber<BR>
+	 * <B>概要说明：</B>流式: 分片到达即写回客户端<BR>
+	 * @author JiFeng
+	 * @since 2021年12月21日 上午10:35:48
+	 */
+	private class WriteSubscriber implements Subscriber<HttpResponseBodyPart> {
+		
+		private Subscription subscription;
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			this.subscription = s;
+			s.request(1);
+		}
+
+		@Override
+		public void onNext(HttpResponseBodyPart bodyPart) {
+			ChannelFuture writeFuture = nettyCtx.writeAndFlush(
+					new DefaultHttpContent(Unpooled.wrappedBuffer(bodyPart.getBodyByteBuffer())));
+			if(nettyCtx.channel().isWritable()) {
+				subscription.request(1);
+			} else {
+				writeFuture.addListener(new ChannelFutureListener() {
+					@Override
+					public void operationComplete(ChannelFuture f) throws Exception {
+						if(f.isSuccess()) {
+							subscription.request(1);
+						} else {
+							log.warn("#StreamingResponseHandler# write to client failed, cancel upstream", f.cause());
+							subscription.cancel();
+							future.completeExceptionally(f.cause() != null ? f.cause() : new ClosedChannelException());
+						}
+					}
+				});
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			nettyCtx.close();
+			future.completeExceptionally(t);
+		}
+
+		@Override
+		public void onComplete() {
+			complete();
+		}
+	}
+
+}
@@ -355,12 +355,10 @@ public class RollingNumber {
                 	//	获取最后一个桶的统计值, 计数到对应的类型匹配的LongAdder
                     long sum = lastBucket.getAdder(type).sum();
                     getAdder(type).add(sum);
-                    if (sum != 0) {
+                    //	每次上报数据的时机: 只统计不上报的RollingNumber(例如按实例的异常检测)不需要输出
+                    if (sum != 0 && blockingQueue != null) {
                     	System.err.println("========>>> QPS: " + sum);
-                    	//	每次上报数据的时机
-                    	if(blockingQueue != null) {
-                    		blockingQueue.add(new Pair<String, Long>(type.name(), sum));
-                    	}
+                    	blockingQueue.add(new Pair<String, Long>(type.name(), sum));
                     }
                 }
                 if (type.isMaxUpdater()) {
@@ -0,0 +1,62 @@
+package com.ruyuan.rapid.ant;
+
+import com.ruyuan.rapid.common.util.AntPathMatcher;
+import com.ruyuan.rapid.common.util.PathPatternMatcher;
+
+/**
+ * 	路径匹配对比压测: AntPathMatcher.match(每次切分pattern/path) vs PathPatternMatcher(服务定义加载时预编译)
+ * 	每组pattern/path先预热, 再单线程循环统计每次匹配的耗时
+ * 	用法: PathMatcherBenchmark [每组循环次数, 默认5000000]
+ */
+public class PathMatcherBenchmark {
+	
+	private static final String[][] CASES = {
+			{"/order/create", "/order/create"},
+			{"/order/**", "/order/detail/12345"},
+			{"/order/*/detail", "/order/12345/detail"},
+			{"/static/**/*.js", "/static/js/vendor/app.min.js"},
+			{"/user/{id}/profile", "/user/10086/profile"},
+			{"/order/**", "/user/detail/12345"}
+	};
+	
+	private static volatile boolean sink;
+	
+	public static void main(String[] args) {
+		int loops = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		AntPathMatcher antPathMatcher = new AntPathMatcher();
+		for(String[] c : CASES) {
+			String pattern = c[0];
+			String path = c[1];
+			PathPatternMatcher compiled = PathPatternMatcher.compile(pattern);
+			for(int round = 0; round < 2; round++) {
+				long ant = runAnt(antPathMatcher, pattern, path, loops);
+				long pre = runCompiled(compiled, path, loops);
+				if(round == 1) {
+					System.out.println(String.format("%-22s %-32s ant: %6.1f ns/op   compiled: %6.1f ns/op   x%.1f", 
+							pattern, path, ant / (double)loops, pre / (double)loops, ant / (double)pre));
+				}
+			}
+		}
+	}
+	
+	private static long runAnt(AntPathMatcher matcher, String pattern, String path, int loops) {
+		long begin = System.nanoTime();
+		boolean ret = false;
+		for(int i = 0; i < loops; i++) {
+			ret ^= matcher.match(pattern, path);
+		}
+		sink = ret;
+		return System.nanoTime() - begin;
+	}
+	
+	private static long runCompiled(PathPatternMatcher matcher, String path, int loops) {
+		long begin = System.nanoTime();
+		boolean ret = false;
+		for(int i = 0; i < loops; i++) {
+			ret ^= matcher.match(path);
+		}
+		sink = ret;
+		return System.nanoTime() - begin;
+	}
+	
+}
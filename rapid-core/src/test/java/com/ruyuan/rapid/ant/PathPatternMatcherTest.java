@@ -0,0 +1,100 @@
+package com.ruyuan.rapid.ant;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.ServiceDefinition;
+import com.ruyuan.rapid.common.util.AntPathMatcher;
+import com.ruyuan.rapid.common.util.PathPatternMatcher;
+
+/**
+ * 	预编译匹配器与AntPathMatcher.match的结果必须完全一致
+ */
+public class PathPatternMatcherTest {
+
+	private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+	
+	private static final String[] PATTERNS = {
+			"/**", "/*", "/", "", "*", "**", "/aa/bb/*", "/aa/bb/**", "/aa/bb/?x?", "/aa/*.html", "/test*",
+			"/aa/**/cc", "/aa/**/cc/**/ee", "/**/ee", "/aa/**/**/ee", "/aa//bb", "/aa/bb/", "aa/bb",
+			"/user/{id}", "/user/{id:\\d+}/detail", "/a*b?c/**", "/**/*.js", "/aa/bb", "/a?/**/c*d/e",
+			"/hello/**", "/hello/*/", "/{a}-{b}/*"
+	};
+	
+	private static final String[] PATHS = {
+			"/", "", "/aa", "/aa/", "/aa/bb", "/aa/bb/", "/aa/bb/cc", "/aa/bb/cc/", "/aa/bb/cc/dd/ee/ff", "/aa/bb/xxx",
+			"/aa/login.html", "/test?name=1234", "/test", "/aa/cc", "/aa/x/y/cc", "/aa/x/cc/y/ee", "/x/y/ee", 
+			"aa/bb", "//aa//bb//", "/user/123", "/user/abc/detail", "/user/123/detail", "/axxbyc/d", "/abyc", 
+			"/static/js/app.js", "/a1/x/y/cXXd/e", "/hello", "/hello/world", "/hello/world/", "/x-y/z", "/aa/b\nb/cc",
+			"/aa/bb/😀x😀"
+	};
+	
+	@Test
+	public void testSameAsAnt() {
+		for(String pattern : PATTERNS) {
+			PathPatternMatcher matcher = PathPatternMatcher.compile(pattern);
+			for(String path : PATHS) {
+				Assert.assertEquals(pattern + " <-> " + path, ANT_PATH_MATCHER.match(pattern, path), matcher.match(path));
+			}
+		}
+	}
+	
+	@Test
+	public void testRandom() {
+		String[] patternParts = {"aa", "bb", "*", "**", "?b", "a*", "*b*", "a?*", "{v}", ""};
+		String[] pathParts = {"aa", "bb", "ab", "ba", "abb", "b", "", "a\nb"};
+		Random random = new Random(20211224);
+		for(int i = 0; i < 20000; i++) {
+			String pattern = random(random, patternParts);
+			String path = random(random, pathParts);
+			Assert.assertEquals(pattern + " <-> " + path, 
+					ANT_PATH_MATCHER.match(pattern, path), PathPatternMatcher.compile(pattern).match(path));
+		}
+	}
+	
+	private static String random(Random random, String[] parts) {
+		StringBuilder sb = new StringBuilder();
+		if(random.nextInt(5) > 0) {
+			sb.append('/');
+		}
+		int count = random.nextInt(6);
+		for(int i = 0; i < count; i++) {
+			if(i > 0) {
+				sb.append('/');
+			}
+			sb.append(parts[random.nextInt(parts.length)]);
+		}
+		if(random.nextInt(5) == 0) {
+			sb.append('/');
+		}
+		return sb.toString();
+	}
+	
+	@Test
+	public void testInvalidate() {
+		DynamicConfigManager manager = DynamicConfigManager.getInstance();
+		ServiceDefinition serviceDefinition = new ServiceDefinition();
+		serviceDefinition.setUniqueId("matcher:1.0.0");
+		serviceDefinition.setPatternPath("/aa/**");
+		manager.putServiceDefinition("matcher:1.0.0", serviceDefinition);
+		PathPatternMatcher matcher = manager.getPathMatcher("matcher:1.0.0", serviceDefinition);
+		Assert.assertSame(matcher, manager.getPathMatcher("matcher:1.0.0", serviceDefinition));
+		Assert.assertTrue(matcher.match("/aa/bb"));
+		
+		//	直接修改patternPath也会重新编译
+		serviceDefinition.setPatternPath("/bb/**");
+		Assert.assertFalse(manager.getPathMatcher("matcher:1.0.0", serviceDefinition).match("/aa/bb"));
+		Assert.assertTrue(manager.getPathMatcher("matcher:1.0.0", serviceDefinition).match("/bb/aa"));
+		
+		ServiceDefinition changed = new ServiceDefinition();
+		changed.setUniqueId("matcher:1.0.0");
+		changed.setPatternPath("/cc/*");
+		manager.putServiceDefinition("matcher:1.0.0", changed);
+		Assert.assertEquals("/cc/*", manager.getPathMatcher("matcher:1.0.0", changed).getPattern());
+		manager.removeServiceDefinition("matcher:1.0.0");
+	}
+	
+}
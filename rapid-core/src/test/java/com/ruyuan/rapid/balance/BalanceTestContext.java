@@ -0,0 +1,75 @@
+package com.ruyuan.rapid.balance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * 	负载均衡测试共用: 在同一个EmbeddedChannel上创建携带服务实例快照的请求上下文, close时统一释放
+ */
+public class BalanceTestContext implements AutoCloseable {
+
+	private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+
+	private final List<FullHttpRequest> requests = new ArrayList<>();
+
+	public static ServiceInstance instance(String uniqueId, String address, int weight, long registerTime) {
+		return new ServiceInstance(address, uniqueId, address, null, weight, registerTime, true, "1.0.0");
+	}
+
+	public RapidContext newContext(ServiceInstanceSnapshot snapshot) {
+		return newContext(snapshot, "127.0.0.1", "/hello", null);
+	}
+
+	public RapidContext newContext(ServiceInstanceSnapshot snapshot, LoadBalancePreFilter.Config config) {
+		return newContext(snapshot, "127.0.0.1", "/hello", config);
+	}
+
+	public RapidContext newContext(ServiceInstanceSnapshot snapshot, String clientIp, String uri) {
+		return newContext(snapshot, clientIp, uri, null);
+	}
+
+	/**
+	 * 	config不为null时作为规则的负载均衡过滤器配置放入上下文
+	 */
+	public RapidContext newContext(ServiceInstanceSnapshot snapshot, String clientIp, String uri, LoadBalancePreFilter.Config config) {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+		requests.add(request);
+		RapidRequest rapidRequest = new RapidRequest(snapshot.getUniqueId(), StandardCharsets.UTF_8, clientIp,
+				"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+		RapidContext rapidContext = new RapidContext.Builder()
+				.setProtocol("http")
+				.setNettyCtx(channel.pipeline().firstContext())
+				.setRapidRequest(rapidRequest)
+				.setRule(new Rule())
+				.build();
+		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, snapshot);
+		if(config != null) {
+			rapidContext.putAttribute(AttributeKey.LOADBALANCE_CONFIG, config);
+		}
+		return rapidContext;
+	}
+
+	@Override
+	public void close() {
+		requests.forEach(FullHttpRequest::release);
+		requests.clear();
+		channel.finishAndReleaseAll();
+	}
+
+}
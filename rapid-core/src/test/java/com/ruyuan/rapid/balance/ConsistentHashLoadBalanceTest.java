@@ -0,0 +1,132 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.HashKeySource;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+
+/**
+ * 	Maglev一致性哈希: 同一个键落到同一个实例、分布均匀、实例变化时只迁移少量键
+ */
+public class ConsistentHashLoadBalanceTest {
+
+	private static final String UNIQUE_ID = "maglev:1.0.0";
+
+	private static final int KEYS = 20000;
+
+	private static final String CLIENT_IP = "192.168.1.10";
+
+	private static ServiceInstanceSnapshot snapshot(long version, int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			instances.add(BalanceTestContext.instance(UNIQUE_ID, "10.0.0." + i + ":8080", 100, 0L));
+		}
+		return new ServiceInstanceSnapshot(UNIQUE_ID, version, instances);
+	}
+
+	private static LoadBalancePreFilter.Config config(HashKeySource hashKeySource, String hashKeyName) {
+		LoadBalancePreFilter.Config config = new LoadBalancePreFilter.Config();
+		config.setBalanceStrategy(LoadBalanceStrategy.CONSISTENT_HASH);
+		config.setHashKeySource(hashKeySource);
+		config.setHashKeyName(hashKeyName);
+		return config;
+	}
+
+	private static Map<String, String> assign(ServiceInstanceSnapshot snapshot) {
+		LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.CONSISTENT_HASH);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, CLIENT_IP, "/hello", config(HashKeySource.HEADER, "X-User-Id"));
+			Map<String, String> assignment = new HashMap<>();
+			for(int i = 0; i < KEYS; i++) {
+				String user = "user-" + i;
+				rapidContext.getRequest().getHeaders().set("X-User-Id", user);
+				assignment.put(user, loadBalance.select(rapidContext).getAddress());
+			}
+			return assignment;
+		}
+	}
+
+	@Test
+	public void testDistributionAndDisruption() {
+		Map<String, String> before = assign(snapshot(1L, 10));
+		//	同一个键结果稳定
+		Assert.assertEquals(before, assign(snapshot(1L, 10)));
+		Map<String, Integer> counts = new HashMap<>();
+		before.values().forEach(address -> counts.merge(address, 1, Integer::sum));
+		Assert.assertEquals(10, counts.size());
+		for(int count : counts.values()) {
+			Assert.assertEquals(KEYS / 10, count, KEYS / 10 * 0.15);
+		}
+
+		//	下线最后一个实例: 原本在其他实例上的键几乎不迁移
+		Map<String, String> after = assign(snapshot(2L, 9));
+		String removed = "10.0.0.9:8080";
+		int moved = 0;
+		for(Map.Entry<String, String> entry : before.entrySet()) {
+			Assert.assertNotEquals(removed, after.get(entry.getKey()));
+			if(!removed.equals(entry.getValue()) && !entry.getValue().equals(after.get(entry.getKey()))) {
+				moved++;
+			}
+		}
+		Assert.assertTrue("moved: " + moved, moved < KEYS * 0.03);
+	}
+
+	@Test
+	public void testCookieAndClientIp() {
+		LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.CONSISTENT_HASH);
+		ServiceInstanceSnapshot snapshot = snapshot(3L, 10);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext session = testContext.newContext(snapshot, CLIENT_IP, "/hello", config(HashKeySource.COOKIE, "session"));
+			session.getRequest().getHeaders().set(HttpHeaderNames.COOKIE, "theme=dark; session=abc123");
+			ServiceInstance selected = loadBalance.select(session);
+			for(int i = 0; i < 10; i++) {
+				Assert.assertSame(selected, loadBalance.select(session));
+			}
+			//	没有对应的cookie时按客户端IP哈希, 同样稳定
+			RapidContext missing = testContext.newContext(snapshot, CLIENT_IP, "/hello", config(HashKeySource.COOKIE, "missing"));
+			missing.getRequest().getHeaders().set(HttpHeaderNames.COOKIE, "theme=dark; session=abc123");
+			RapidContext clientIp = testContext.newContext(snapshot, CLIENT_IP, "/hello", config(HashKeySource.CLIENT_IP, null));
+			Assert.assertSame(loadBalance.select(missing), loadBalance.select(clientIp));
+		}
+	}
+
+	@Test
+	public void testUnversionedSnapshot() {
+		LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.CONSISTENT_HASH);
+		ServiceInstanceSnapshot first = snapshot(ServiceInstanceSnapshot.UNVERSIONED, 5);
+		//	地址相同但实例对象不同、顺序相反的临时快照: 复用查找表, 但返回当前快照中的实例
+		List<ServiceInstance> reversed = new ArrayList<>();
+		for(ServiceInstance instance : snapshot(ServiceInstanceSnapshot.UNVERSIONED, 5).getInstances()) {
+			reversed.add(0, instance);
+		}
+		ServiceInstanceSnapshot second = new ServiceInstanceSnapshot(UNIQUE_ID, ServiceInstanceSnapshot.UNVERSIONED, reversed);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			LoadBalancePreFilter.Config config = config(HashKeySource.HEADER, "X-User-Id");
+			RapidContext firstContext = testContext.newContext(first, CLIENT_IP, "/hello", config);
+			RapidContext secondContext = testContext.newContext(second, CLIENT_IP, "/hello", config);
+			for(int i = 0; i < 100; i++) {
+				firstContext.getRequest().getHeaders().set("X-User-Id", "user-" + i);
+				secondContext.getRequest().getHeaders().set("X-User-Id", "user-" + i);
+				ServiceInstance before = loadBalance.select(firstContext);
+				ServiceInstance after = loadBalance.select(secondContext);
+				Assert.assertEquals(before.getAddress(), after.getAddress());
+				Assert.assertTrue(reversed.stream().anyMatch(instance -> instance == after));
+			}
+		}
+	}
+
+}
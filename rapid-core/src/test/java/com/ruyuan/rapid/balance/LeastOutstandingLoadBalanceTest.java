@@ -0,0 +1,63 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
+import com.ruyuan.rapid.core.context.RapidContext;
+
+/**
+ * 	最少在途请求: 绕开在途请求堆积的实例, 按权重折算, 计数只释放一次
+ */
+public class LeastOutstandingLoadBalanceTest {
+
+	private static final String UNIQUE_ID = "outstanding:1.0.0";
+
+	@Test
+	public void testLeastOutstanding() {
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.LEAST_OUTSTANDING);
+			ServiceInstance slow = BalanceTestContext.instance(UNIQUE_ID, "127.0.0.1:9001", 100, 0L);
+			ServiceInstance fast = BalanceTestContext.instance(UNIQUE_ID, "127.0.0.1:9002", 100, 0L);
+			ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot(UNIQUE_ID, 1L, Arrays.asList(slow, fast));
+
+			//	慢实例上堆积了3个在途请求
+			List<RapidContext> inFlight = new ArrayList<>();
+			for(int i = 0; i < 3; i++) {
+				RapidContext rapidContext = testContext.newContext(snapshot);
+				OutstandingRequests.acquire(rapidContext, slow);
+				inFlight.add(rapidContext);
+			}
+			Assert.assertEquals(3, OutstandingRequests.get(slow.getAddress()));
+			for(int i = 0; i < 100; i++) {
+				Assert.assertSame(fast, loadBalance.select(testContext.newContext(snapshot)));
+			}
+
+			//	重复释放只减一次
+			for(RapidContext rapidContext : inFlight) {
+				OutstandingRequests.release(rapidContext);
+				OutstandingRequests.release(rapidContext);
+			}
+			Assert.assertEquals(0, OutstandingRequests.get(slow.getAddress()));
+
+			//	权重300的实例有1个在途请求, 仍然优于权重100的空闲实例: 2/300 < 1/100
+			ServiceInstance heavy = BalanceTestContext.instance(UNIQUE_ID, "127.0.0.1:9003", 300, 0L);
+			ServiceInstance light = BalanceTestContext.instance(UNIQUE_ID, "127.0.0.1:9004", 100, 0L);
+			ServiceInstanceSnapshot weighted = new ServiceInstanceSnapshot(UNIQUE_ID, 2L, Arrays.asList(heavy, light));
+			RapidContext rapidContext = testContext.newContext(weighted);
+			OutstandingRequests.acquire(rapidContext, heavy);
+			Assert.assertSame(heavy, loadBalance.select(testContext.newContext(weighted)));
+			OutstandingRequests.release(rapidContext);
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.ruyuan.rapid.balance;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import org.apache.dubbo.rpc.RpcException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.common.util.JSONUtil;
+import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.balance.OutlierDetector;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+
+/**
+ * 	异常实例摘除: 连续失败/失败率触发摘除、选择时跳过、最大摘除比例、指数退避
+ */
+public class OutlierDetectorTest {
+
+	private static ServiceInstanceSnapshot snapshot(String uniqueId, String prefix, int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			String address = prefix + i + ":8080";
+			instances.add(BalanceTestContext.instance(uniqueId, address, 100, 0L));
+		}
+		return new ServiceInstanceSnapshot(uniqueId, 1L, instances);
+	}
+
+	private static LoadBalancePreFilter.Config config(OutlierDetector.Config outlierConfig) {
+		LoadBalancePreFilter.Config config = new LoadBalancePreFilter.Config();
+		config.setOutlierDetection(outlierConfig);
+		return config;
+	}
+
+	//	失败按503响应记录
+	private static void record(RapidContext rapidContext, ServiceInstance instance, boolean failure, int times) {
+		record(rapidContext, instance, null, failure ? 503 : 200, times);
+	}
+
+	private static void record(RapidContext rapidContext, ServiceInstance instance, Throwable throwable, int statusCode, int times) {
+		rapidContext.putAttribute(AttributeKey.LOAD_INSTANCE, instance);
+		long now = TimeUtil.currentTimeMillis();
+		rapidContext.setRSTime(now - 5);
+		rapidContext.setRRTime(now);
+		for(int i = 0; i < times; i++) {
+			OutlierDetector.record(rapidContext, throwable, statusCode);
+		}
+	}
+
+	@Test
+	public void testEjectAndSkip() {
+		ServiceInstanceSnapshot snapshot = snapshot("outlier:1.0.0", "10.1.0.", 10);
+		OutlierDetector.Config outlierConfig = new OutlierDetector.Config();
+		outlierConfig.setEnabled(true);
+		outlierConfig.setConsecutiveErrors(3);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config(outlierConfig));
+			ServiceInstance bad = snapshot.getInstances()[3];
+			//	中间有成功调用时连续失败计数清零
+			record(rapidContext, bad, true, 2);
+			record(rapidContext, bad, false, 1);
+			record(rapidContext, bad, true, 2);
+			Assert.assertFalse(OutlierDetector.isEjected(bad.getAddress()));
+			record(rapidContext, bad, true, 1);
+			Assert.assertTrue(OutlierDetector.isEjected(bad.getAddress()));
+
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.ROUND_ROBIN);
+			for(int i = 0; i < 1000; i++) {
+				Assert.assertNotEquals(bad.getAddress(), loadBalance.select(rapidContext).getAddress());
+			}
+
+			//	10个实例最多摘除10%: 第二个异常实例不会被摘除
+			ServiceInstance other = snapshot.getInstances()[7];
+			record(rapidContext, other, true, 10);
+			Assert.assertFalse(OutlierDetector.isEjected(other.getAddress()));
+		}
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		ServiceInstanceSnapshot snapshot = snapshot("disabled:1.0.0", "10.5.0.", 10);
+		//	规则的负载均衡过滤器配置中没有outlierDetection
+		LoadBalancePreFilter.Config config = JSONUtil.parse("{\"balanceStrategy\":\"ROUND_ROBIN\"}", LoadBalancePreFilter.Config.class);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config);
+			ServiceInstance bad = snapshot.getInstances()[0];
+			record(rapidContext, bad, new ConnectException("Connection refused"), 0, 100);
+			record(rapidContext, bad, null, 503, 100);
+			Assert.assertFalse(OutlierDetector.isEjected(bad.getAddress()));
+		}
+	}
+
+	@Test
+	public void testGatewayErrorsOnly() {
+		ServiceInstanceSnapshot snapshot = snapshot("gateway:1.0.0", "10.6.0.", 10);
+		OutlierDetector.Config outlierConfig = new OutlierDetector.Config();
+		outlierConfig.setEnabled(true);
+		outlierConfig.setConsecutiveErrors(3);
+		outlierConfig.setMaxEjectionPercent(50);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config(outlierConfig));
+			//	应用返回的500和dubbo业务异常默认不计为失败
+			ServiceInstance application = snapshot.getInstances()[0];
+			record(rapidContext, application, null, 500, 10);
+			record(rapidContext, application, new CompletionException(new IllegalStateException("biz")), 0, 10);
+			Assert.assertFalse(OutlierDetector.isEjected(application.getAddress()));
+			//	连接异常、超时和502/503/504计为失败
+			ServiceInstance refused = snapshot.getInstances()[1];
+			record(rapidContext, refused, new ConnectException("Connection refused"), 0, 3);
+			Assert.assertTrue(OutlierDetector.isEjected(refused.getAddress()));
+			ServiceInstance timeout = snapshot.getInstances()[2];
+			record(rapidContext, timeout, new RpcException(RpcException.TIMEOUT_EXCEPTION, "timeout"), 0, 3);
+			Assert.assertTrue(OutlierDetector.isEjected(timeout.getAddress()));
+			ServiceInstance badGateway = snapshot.getInstances()[3];
+			record(rapidContext, badGateway, null, 502, 3);
+			Assert.assertTrue(OutlierDetector.isEjected(badGateway.getAddress()));
+
+			//	开启countApplicationErrors后所有5xx都计为失败
+			outlierConfig.setCountApplicationErrors(true);
+			ServiceInstance internalError = snapshot.getInstances()[4];
+			record(rapidContext, internalError, null, 500, 3);
+			Assert.assertTrue(OutlierDetector.isEjected(internalError.getAddress()));
+		}
+	}
+
+	@Test
+	public void testFailureRate() {
+		ServiceInstanceSnapshot snapshot = snapshot("rate:1.0.0", "10.2.0.", 4);
+		OutlierDetector.Config outlierConfig = new OutlierDetector.Config();
+		outlierConfig.setEnabled(true);
+		outlierConfig.setConsecutiveErrors(Integer.MAX_VALUE);
+		outlierConfig.setMinimumRequests(20);
+		outlierConfig.setMaxEjectionPercent(50);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config(outlierConfig));
+			ServiceInstance flaky = snapshot.getInstances()[0];
+			//	失败率50%, 请求数不足20时不摘除
+			for(int i = 0; i < 9; i++) {
+				record(rapidContext, flaky, false, 1);
+				record(rapidContext, flaky, true, 1);
+			}
+			Assert.assertFalse(OutlierDetector.isEjected(flaky.getAddress()));
+			record(rapidContext, flaky, false, 1);
+			record(rapidContext, flaky, true, 1);
+			Assert.assertTrue(OutlierDetector.isEjected(flaky.getAddress()));
+		}
+	}
+
+	@Test
+	public void testExponentialBackoff() throws InterruptedException {
+		ServiceInstanceSnapshot snapshot = snapshot("backoff:1.0.0", "10.3.0.", 3);
+		OutlierDetector.Config outlierConfig = new OutlierDetector.Config();
+		outlierConfig.setEnabled(true);
+		outlierConfig.setConsecutiveErrors(1);
+		outlierConfig.setBaseEjectionTime(100);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config(outlierConfig));
+			ServiceInstance bad = snapshot.getInstances()[1];
+			String address = bad.getAddress();
+
+			record(rapidContext, bad, true, 1);
+			long first = OutlierDetector.getEjectedUntil(address) - TimeUtil.currentTimeMillis();
+			Assert.assertTrue("first: " + first, first > 50 && first <= 100);
+			while(OutlierDetector.isEjected(address)) {
+				Thread.sleep(10);
+			}
+			//	恢复后再次失败, 摘除时长翻倍
+			record(rapidContext, bad, true, 1);
+			long second = OutlierDetector.getEjectedUntil(address) - TimeUtil.currentTimeMillis();
+			Assert.assertTrue("second: " + second, second > 150 && second <= 200);
+		}
+	}
+
+	@Test
+	public void testRemoveInstances() {
+		ServiceInstanceSnapshot snapshot = snapshot("removed:1.0.0", "10.4.0.", 3);
+		OutlierDetector.Config outlierConfig = new OutlierDetector.Config();
+		outlierConfig.setEnabled(true);
+		outlierConfig.setConsecutiveErrors(1);
+		outlierConfig.setMaxEjectionPercent(100);
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot, config(outlierConfig));
+			ServiceInstance shared = snapshot.getInstances()[0];
+			ServiceInstance removed = snapshot.getInstances()[1];
+			record(rapidContext, shared, true, 1);
+			record(rapidContext, removed, true, 1);
+			OutstandingRequests.acquire(rapidContext, removed);
+			Assert.assertTrue(OutlierDetector.isEjected(shared.getAddress()));
+			Assert.assertTrue(OutlierDetector.isEjected(removed.getAddress()));
+
+			//	地址仍被注册中心中其他服务的实例使用时保留统计, 否则清理
+			DynamicConfigManager.getInstance().addServiceInstance("shared:1.0.0", shared);
+			try {
+				LoadBalanceFactory.removeInstances(Arrays.asList(shared, removed));
+				Assert.assertTrue(OutlierDetector.isEjected(shared.getAddress()));
+				Assert.assertFalse(OutlierDetector.isEjected(removed.getAddress()));
+				Assert.assertEquals(0L, OutstandingRequests.get(removed.getAddress()));
+			} finally {
+				DynamicConfigManager.getInstance().removeServiceInstancesByUniqueId("shared:1.0.0");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.balance.InstanceLoad;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.balance.OutstandingRequests;
+import com.ruyuan.rapid.core.context.RapidContext;
+
+/**
+ * 	P2C + 峰值EWMA: 峰值立即生效、按时间衰减、绕开变慢的实例
+ */
+public class PeakEwmaLoadBalanceTest {
+
+	@Test
+	public void testPeakEwma() {
+		long decayTime = 1000;
+		InstanceLoad load = new InstanceLoad();
+		load.observe(100, 1000, decayTime);
+		Assert.assertEquals(100, load.getCost(1000, decayTime), 0.001);
+		//	同一时刻更小的观测值不会拉低峰值
+		load.observe(10, 1000, decayTime);
+		Assert.assertEquals(100, load.getCost(1000, decayTime), 0.001);
+		//	经过一个时间常数: 100 * e^-1 + 10 * (1 - e^-1)
+		load.observe(10, 2000, decayTime);
+		Assert.assertEquals(100 * Math.exp(-1) + 10 * (1 - Math.exp(-1)), load.getCost(2000, decayTime), 0.001);
+		//	读取时按时间衰减, 在途请求数放大得分
+		InstanceLoad busy = new InstanceLoad();
+		busy.observe(50, 1000, decayTime);
+		Assert.assertEquals(50 * Math.exp(-1), busy.getCost(2000, decayTime), 0.001);
+	}
+
+	@Test
+	public void testRouteAroundSlowInstance() {
+		ServiceInstance slow = BalanceTestContext.instance("ewma:1.0.0", "127.0.0.1:9101", 100, 0L);
+		ServiceInstance fast = BalanceTestContext.instance("ewma:1.0.0", "127.0.0.1:9102", 100, 0L);
+		ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot("ewma:1.0.0", 1L, Arrays.asList(slow, fast));
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot);
+
+			//	各完成一次请求: 慢实例往返200ms, 快实例往返5ms
+			long now = TimeUtil.currentTimeMillis();
+			OutstandingRequests.acquire(rapidContext, slow);
+			rapidContext.setRSTime(now - 200);
+			rapidContext.setRRTime(now);
+			OutstandingRequests.complete(rapidContext);
+			OutstandingRequests.acquire(rapidContext, fast);
+			rapidContext.setRSTime(now - 5);
+			rapidContext.setRRTime(now);
+			OutstandingRequests.complete(rapidContext);
+			Assert.assertEquals(0, OutstandingRequests.get(slow.getAddress()));
+			Assert.assertEquals(0, OutstandingRequests.get(fast.getAddress()));
+
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.P2C_PEAK_EWMA);
+			for(int i = 0; i < 100; i++) {
+				Assert.assertSame(fast, loadBalance.select(rapidContext));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.common.util.TimeUtil;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.context.RapidContext;
+
+/**
+ * 	别名表加权随机: 选择比例与(预热)权重一致
+ */
+public class RandomLoadBalanceTest {
+
+	private static Map<String, Integer> sample(ServiceInstanceSnapshot snapshot, int times) {
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			RapidContext rapidContext = testContext.newContext(snapshot);
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.RANDOM);
+			Map<String, Integer> counts = new HashMap<>();
+			for(int i = 0; i < times; i++) {
+				counts.merge(loadBalance.select(rapidContext).getAddress(), 1, Integer::sum);
+			}
+			return counts;
+		}
+	}
+
+	@Test
+	public void testWeight() {
+		String uniqueId = "random:1.0.0";
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8001", 100, 0L));
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8002", 50, 0L));
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8003", 50, 0L));
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8004", 0, 0L));
+		ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot(uniqueId, 1L, instances);
+		int times = 200000;
+		Map<String, Integer> counts = sample(snapshot, times);
+		Assert.assertEquals(0.5, counts.get("127.0.0.1:8001") / (double)times, 0.01);
+		Assert.assertEquals(0.25, counts.get("127.0.0.1:8002") / (double)times, 0.01);
+		Assert.assertEquals(0.25, counts.get("127.0.0.1:8003") / (double)times, 0.01);
+		//	权重为0的实例不会被选中
+		Assert.assertNull(counts.get("127.0.0.1:8004"));
+	}
+
+	@Test
+	public void testWarmup() {
+		String uniqueId = "warmup:1.0.0";
+		List<ServiceInstance> instances = new ArrayList<>();
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8001", 100, 0L));
+		//	预热到一半, 权重约为50
+		instances.add(BalanceTestContext.instance(uniqueId, "127.0.0.1:8002", 100,
+				TimeUtil.currentTimeMillis() - LoadBalance.DEFAULT_WARMUP / 2));
+		ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot(uniqueId, 2L, instances);
+		int times = 200000;
+		Map<String, Integer> counts = sample(snapshot, times);
+		Assert.assertEquals(2.0 / 3, counts.get("127.0.0.1:8001") / (double)times, 0.01);
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.balance.LoadBalance;
+import com.ruyuan.rapid.core.balance.LoadBalanceFactory;
+import com.ruyuan.rapid.core.context.RapidContext;
+
+/**
+ * 	平滑加权轮询: 按服务共用游标, 并发下比例精确, 序列平滑交错
+ */
+public class RoundRobinLoadBalanceTest {
+
+	private static ServiceInstanceSnapshot snapshot(String uniqueId, long version, int... weights) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for(int i = 0; i < weights.length; i++) {
+			String address = "127.0.0.1:" + (8000 + i);
+			instances.add(BalanceTestContext.instance(uniqueId, address, weights[i], 0L));
+		}
+		return new ServiceInstanceSnapshot(uniqueId, version, instances);
+	}
+
+	@Test
+	public void testSmooth() {
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			ServiceInstanceSnapshot snapshot = snapshot("smooth:1.0.0", 1L, 500, 100, 100);
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.ROUND_ROBIN);
+			//	不同路径共用同一个服务的游标: 交替请求两个路径, 每7次仍然是5:1:1, 且权重小的实例不会连续出现
+			RapidContext first = testContext.newContext(snapshot, "127.0.0.1", "/a");
+			RapidContext second = testContext.newContext(snapshot, "127.0.0.1", "/b");
+			for(int round = 0; round < 10; round++) {
+				int[] counts = new int[3];
+				String last = null;
+				for(int i = 0; i < 7; i++) {
+					String address = loadBalance.select(i % 2 == 0 ? first : second).getAddress();
+					counts[address.charAt(address.length() - 1) - '0']++;
+					if(!address.endsWith("0")) {
+						Assert.assertNotEquals(last, address);
+					}
+					last = address;
+				}
+				Assert.assertArrayEquals(new int[] { 5, 1, 1 }, counts);
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		try(BalanceTestContext testContext = new BalanceTestContext()) {
+			ServiceInstanceSnapshot snapshot = snapshot("concurrent:1.0.0", 2L, 100, 50, 50, 0);
+			RapidContext rapidContext = testContext.newContext(snapshot);
+			LoadBalance loadBalance = LoadBalanceFactory.getLoadBalance(LoadBalanceStrategy.ROUND_ROBIN);
+			int threads = 8;
+			int times = 20000;
+			Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+			CountDownLatch latch = new CountDownLatch(threads);
+			for(int t = 0; t < threads; t++) {
+				new Thread(() -> {
+					for(int i = 0; i < times; i++) {
+						counts.computeIfAbsent(loadBalance.select(rapidContext).getAddress(), k -> new AtomicInteger()).incrementAndGet();
+					}
+					latch.countDown();
+				}).start();
+			}
+			latch.await();
+			//	总次数是序列长度(4)的整数倍, 并发下比例仍然精确
+			Assert.assertEquals(threads * times / 2, counts.get("127.0.0.1:8000").get());
+			Assert.assertEquals(threads * times / 4, counts.get("127.0.0.1:8001").get());
+			Assert.assertEquals(threads * times / 4, counts.get("127.0.0.1:8002").get());
+			//	权重为0的实例不会被选中
+			Assert.assertNull(counts.get("127.0.0.1:8003"));
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.ruyuan.rapid.balance;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.ServiceInstance;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+
+/**
+ * 	服务实例快照: 禁用实例过滤、版本单调递增、变更与读取并发
+ */
+public class ServiceInstanceSnapshotTest {
+
+	private static ServiceInstance instance(String uniqueId, int index, boolean enable) {
+		String address = "127.0.0.1:" + (8000 + index);
+		return new ServiceInstance(address, uniqueId, address, null, 100, 0L, enable, "1.0.0");
+	}
+
+	@Test
+	public void testSnapshot() {
+		String uniqueId = "snapshot:1.0.0";
+		DynamicConfigManager manager = DynamicConfigManager.getInstance();
+		manager.addServiceInstance(uniqueId, new HashSet<>(Arrays.asList(instance(uniqueId, 1, true), instance(uniqueId, 2, false))));
+		ServiceInstanceSnapshot first = manager.getServiceInstanceSnapshot(uniqueId);
+		Assert.assertEquals(1, first.size());
+		Assert.assertEquals(2, first.getAllInstances().size());
+
+		//	启用实例2: 生成新快照, 旧快照不变
+		manager.updateServiceInstance(uniqueId, instance(uniqueId, 2, true));
+		ServiceInstanceSnapshot second = manager.getServiceInstanceSnapshot(uniqueId);
+		Assert.assertEquals(2, second.size());
+		Assert.assertEquals(1, first.size());
+		Assert.assertTrue(second.getVersion() > first.getVersion());
+
+		manager.addServiceInstance(uniqueId, instance(uniqueId, 3, true));
+		manager.removeServiceInstance(uniqueId, "127.0.0.1:8001");
+		ServiceInstanceSnapshot third = manager.getServiceInstanceSnapshot(uniqueId);
+		Assert.assertEquals(2, third.size());
+		Assert.assertTrue(third.getVersion() > second.getVersion() + 1);
+		for(ServiceInstance serviceInstance : third.getInstances()) {
+			Assert.assertNotEquals("127.0.0.1:8001", serviceInstance.getServiceInstanceId());
+		}
+
+		manager.removeServiceInstancesByUniqueId(uniqueId);
+		Assert.assertNull(manager.getServiceInstanceSnapshot(uniqueId));
+		//	没有实例时新增单个实例
+		manager.addServiceInstance(uniqueId, instance(uniqueId, 4, true));
+		Assert.assertEquals(1, manager.getServiceInstanceSnapshot(uniqueId).size());
+		manager.removeServiceInstancesByUniqueId(uniqueId);
+	}
+
+	@Test
+	public void testConcurrentChange() throws Exception {
+		String uniqueId = "concurrent:1.0.0";
+		DynamicConfigManager manager = DynamicConfigManager.getInstance();
+		manager.addServiceInstance(uniqueId, new HashSet<>(Arrays.asList(instance(uniqueId, 0, true))));
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch(1);
+		Thread[] readers = new Thread[4];
+		for(int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				long version = 0;
+				try {
+					while(done.getCount() > 0) {
+						ServiceInstanceSnapshot snapshot = manager.getServiceInstanceSnapshot(uniqueId);
+						Assert.assertTrue(snapshot.getVersion() >= version);
+						version = snapshot.getVersion();
+						for(ServiceInstance serviceInstance : snapshot.getInstances()) {
+							Assert.assertTrue(serviceInstance.isEnable());
+						}
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			});
+			readers[i].start();
+		}
+		for(int i = 0; i < 20000; i++) {
+			int index = 1 + i % 50;
+			switch (i % 3) {
+				case 0:
+					manager.addServiceInstance(uniqueId, instance(uniqueId, index, i % 2 == 0));
+					break;
+				case 1:
+					manager.updateServiceInstance(uniqueId, instance(uniqueId, index, i % 2 == 0));
+					break;
+				default:
+					manager.removeServiceInstance(uniqueId, "127.0.0.1:" + (8000 + index));
+					break;
+			}
+		}
+		done.countDown();
+		for(Thread reader : readers) {
+			reader.join();
+		}
+		manager.removeServiceInstancesByUniqueId(uniqueId);
+		Assert.assertNull(error.get());
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.ruyuan.rapid.context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.config.ServiceInstanceSnapshot;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class AttributeTest {
+
+	@Test
+	public void testAttribute() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		RapidRequest rapidRequest = new RapidRequest("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1", 
+				"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+		RapidContext rapidContext = new RapidContext.Builder()
+				.setProtocol("http")
+				.setNettyCtx(channel.pipeline().firstContext())
+				.setRapidRequest(rapidRequest)
+				.setRule(new Rule())
+				.build();
+		
+		//	数组槽位
+		Assert.assertNull(rapidContext.getAttribute(AttributeKey.DUBBO_LOADBALANCE_STRATEGY));
+		Assert.assertNull(rapidContext.putAttribute(AttributeKey.DUBBO_LOADBALANCE_STRATEGY, LoadBalanceStrategy.RANDOM));
+		Assert.assertEquals(LoadBalanceStrategy.RANDOM, rapidContext.getAttribute(AttributeKey.DUBBO_LOADBALANCE_STRATEGY));
+		
+		//	设置为null与没有设置的区别
+		ServiceInstanceSnapshot emptySnapshot = new ServiceInstanceSnapshot("hello:1.0.0", 
+				ServiceInstanceSnapshot.UNVERSIONED, Collections.emptySet());
+		Assert.assertSame(emptySnapshot, 
+				rapidContext.getAttributeOrDefault(AttributeKey.MATCH_INSTANCES, emptySnapshot));
+		rapidContext.putAttribute(AttributeKey.DUBBO_ATTACHMENT, null);
+		Assert.assertNull(rapidContext.getAttributeOrDefault(AttributeKey.DUBBO_ATTACHMENT, Collections.emptyMap()));
+		
+		//	超出数组槽位的动态key存放在溢出map中
+		AttributeKey<String> spillKey = null;
+		for(int i = 0; i <= AttributeKey.SLOT_SIZE; i++) {
+			spillKey = AttributeKey.create(String.class);
+		}
+		Assert.assertTrue(spillKey.index() >= AttributeKey.SLOT_SIZE);
+		Assert.assertEquals("default", rapidContext.getAttributeOrDefault(spillKey, "default"));
+		rapidContext.putAttribute(spillKey, "spill");
+		Assert.assertEquals("spill", rapidContext.getAttribute(spillKey));
+		Assert.assertEquals("spill", rapidContext.putAttribute(spillKey, "spill2"));
+		
+		request.release();
+		channel.finishAndReleaseAll();
+	}
+	
+}
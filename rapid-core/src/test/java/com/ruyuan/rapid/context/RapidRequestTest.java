@@ -0,0 +1,57 @@
+package com.ruyuan.rapid.context;
+
+import java.nio.charset.StandardCharsets;
+
+import org.asynchttpclient.Request;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.netty.stream.RetainedBodyGenerator;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+public class RapidRequestTest {
+	
+	private static RapidRequest newRequest(FullHttpRequest request) {
+		return new RapidRequest("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1", "127.0.0.1:8080", 
+				request.uri(), request.method(), "application/json", request.headers(), request);
+	}
+
+	@Test
+	public void testPath() {
+		for(String uri : new String[] {"/hello", "/hello/world?a=1&b=2", "/he%20llo+x?a=%20", "/hello#top", "/a?b#c", "?a=1"}) {
+			FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+			Assert.assertEquals(uri, new QueryStringDecoder(uri, StandardCharsets.UTF_8).path(), newRequest(request).getPath());
+			request.release();
+		}
+	}
+	
+	@Test
+	public void testLazyBuild() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/hello?a=1&a=2", 
+				Unpooled.copiedBuffer("{}".getBytes()));
+		RapidRequest rapidRequest = newRequest(request);
+		Assert.assertEquals(2, rapidRequest.getQueryParametersMultiple("a").size());
+		
+		rapidRequest.setModifyHost("127.0.0.1:9090");
+		rapidRequest.addHeader("x-test", "1");
+		Request upstream = rapidRequest.build();
+		Assert.assertEquals("http://127.0.0.1:9090/hello?a=1&a=2", upstream.getUrl());
+		Assert.assertEquals("POST", upstream.getMethod());
+		Assert.assertEquals("1", upstream.getHeaders().get("x-test"));
+		//	请求体不再拷贝成ByteBuffer, 而是持有引用直接转发
+		Assert.assertTrue(upstream.getBodyGenerator() instanceof RetainedBodyGenerator);
+		Assert.assertEquals(2, ((RetainedBodyGenerator)upstream.getBodyGenerator()).getContentLength());
+		Assert.assertEquals(2, request.refCnt());
+		rapidRequest.releaseBody();
+		request.release();
+		Assert.assertEquals(0, request.refCnt());
+	}
+	
+}
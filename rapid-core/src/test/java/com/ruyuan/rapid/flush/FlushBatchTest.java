@@ -0,0 +1,183 @@
+package com.ruyuan.rapid.flush;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.enums.ResponseCode;
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.helper.FlushBatchHelper;
+import com.ruyuan.rapid.core.helper.ResponseHelper;
+import com.ruyuan.rapid.core.netty.processor.NettyBatchEventProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyCoreProcessor;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class FlushBatchTest {
+
+	@Test
+	public void testBatchFlush() throws Exception {
+		AtomicInteger flushes = new AtomicInteger();
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+			@Override
+			public void flush(ChannelHandlerContext ctx) throws Exception {
+				flushes.incrementAndGet();
+				super.flush(ctx);
+			}
+		}, new ChannelInboundHandlerAdapter());
+		
+		//	第一个请求阻塞住消费线程, 让后续请求在队列中堆积成一个批次
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch processed = new CountDownLatch(6);
+		NettyCoreProcessor coreProcessor = new NettyCoreProcessor() {
+			@Override
+			public void process(HttpRequestWrapper event) {
+				try {
+					blocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				FlushBatchHelper.writeAndFlush(event.getCtx(), ResponseHelper.getHttpResponse(ResponseCode.SUCCESS));
+				processed.countDown();
+			}
+		};
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setProcessThread(1);
+		rapidConfig.setBufferSize(16);
+		NettyBatchEventProcessor processor = new NettyBatchEventProcessor(rapidConfig, coreProcessor);
+		processor.start();
+		try {
+			for(int i = 0; i < 6; i++) {
+				HttpRequestWrapper wrapper = new HttpRequestWrapper();
+				wrapper.setCtx(channel.pipeline().lastContext());
+				processor.process(wrapper);
+			}
+			blocked.countDown();
+			Assert.assertTrue(processed.await(5, TimeUnit.SECONDS));
+			
+			long deadline = System.currentTimeMillis() + 5000;
+			while(channel.outboundMessages().size() < 6 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(6, channel.outboundMessages().size());
+			//	第一个请求最多单独成批, 其余请求合并为一次flush
+			Assert.assertTrue(flushes.get() <= 2);
+		} finally {
+			processor.shutdown();
+			channel.finishAndReleaseAll();
+		}
+	}
+	
+	@Test
+	public void testFlushUnderBacklog() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		//	队列积压时不等批次结束: 每积攒4次写出就flush一次
+		RapidConfig globalConfig = RapidConfigLoader.getRapidConfig();
+		int maxFlushes = globalConfig.getFlushConsolidationMaxFlushes();
+		globalConfig.setFlushConsolidationMaxFlushes(4);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch processed = new CountDownLatch(12);
+		AtomicInteger flushedBeforeLast = new AtomicInteger(-1);
+		NettyCoreProcessor coreProcessor = new NettyCoreProcessor() {
+			@Override
+			public void process(HttpRequestWrapper event) {
+				try {
+					blocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if(processed.getCount() == 1) {
+					flushedBeforeLast.set(channel.outboundMessages().size());
+				}
+				FlushBatchHelper.writeAndFlush(event.getCtx(), ResponseHelper.getHttpResponse(ResponseCode.SUCCESS));
+				processed.countDown();
+			}
+		};
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setProcessThread(1);
+		rapidConfig.setBufferSize(16);
+		NettyBatchEventProcessor processor = new NettyBatchEventProcessor(rapidConfig, coreProcessor);
+		processor.start();
+		try {
+			for(int i = 0; i < 12; i++) {
+				HttpRequestWrapper wrapper = new HttpRequestWrapper();
+				wrapper.setCtx(channel.pipeline().lastContext());
+				processor.process(wrapper);
+			}
+			blocked.countDown();
+			Assert.assertTrue(processed.await(5, TimeUnit.SECONDS));
+			//	处理最后一个请求之前, 同一连接前面的响应已经被flush
+			Assert.assertTrue("flushed: " + flushedBeforeLast.get(), flushedBeforeLast.get() >= 8);
+		} finally {
+			globalConfig.setFlushConsolidationMaxFlushes(maxFlushes);
+			processor.shutdown();
+			channel.finishAndReleaseAll();
+		}
+	}
+	
+	@Test
+	public void testFlushAfterMaxDelay() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		//	写次数远未达到上限: 第一次写出超过最大等待时间后, 处理下一个事件之前就flush, 不等下一次写出
+		RapidConfig globalConfig = RapidConfigLoader.getRapidConfig();
+		long maxDelayMicros = globalConfig.getFlushConsolidationMaxDelayMicros();
+		globalConfig.setFlushConsolidationMaxDelayMicros(1000);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch processed = new CountDownLatch(2);
+		AtomicInteger flushedBeforeSecond = new AtomicInteger(-1);
+		NettyCoreProcessor coreProcessor = new NettyCoreProcessor() {
+			@Override
+			public void process(HttpRequestWrapper event) {
+				try {
+					blocked.await();
+					if(processed.getCount() == 2) {
+						FlushBatchHelper.writeAndFlush(event.getCtx(), ResponseHelper.getHttpResponse(ResponseCode.SUCCESS));
+						TimeUnit.MILLISECONDS.sleep(20);
+					} else {
+						//	第二个事件不写出, 只记录此时第一个响应是否已经flush
+						flushedBeforeSecond.set(channel.outboundMessages().size());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				processed.countDown();
+			}
+		};
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setProcessThread(1);
+		rapidConfig.setBufferSize(16);
+		NettyBatchEventProcessor processor = new NettyBatchEventProcessor(rapidConfig, coreProcessor);
+		processor.start();
+		try {
+			for(int i = 0; i < 2; i++) {
+				HttpRequestWrapper wrapper = new HttpRequestWrapper();
+				wrapper.setCtx(channel.pipeline().lastContext());
+				processor.process(wrapper);
+			}
+			blocked.countDown();
+			Assert.assertTrue(processed.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals(1, flushedBeforeSecond.get());
+		} finally {
+			globalConfig.setFlushConsolidationMaxDelayMicros(maxDelayMicros);
+			processor.shutdown();
+			channel.finishAndReleaseAll();
+		}
+	}
+	
+	@Test
+	public void testWithoutBatch() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		FlushBatchHelper.writeAndFlush(channel.pipeline().lastContext(), ResponseHelper.getHttpResponse(ResponseCode.SUCCESS));
+		Assert.assertEquals(1, channel.outboundMessages().size());
+		channel.finishAndReleaseAll();
+	}
+	
+}
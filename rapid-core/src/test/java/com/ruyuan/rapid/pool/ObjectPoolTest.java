@@ -0,0 +1,125 @@
+package com.ruyuan.rapid.pool;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.constants.RapidBufferHelper;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.context.AttributeKey;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class ObjectPoolTest {
+	
+	private EmbeddedChannel channel;
+	
+	@Before
+	public void before() {
+		RapidConfigLoader.getRapidConfig().setObjectPoolEnabled(true);
+		channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+	}
+	
+	@After
+	public void after() {
+		RapidConfigLoader.getRapidConfig().setObjectPoolEnabled(false);
+		channel.finishAndReleaseAll();
+	}
+	
+	private RapidContext newContext(FullHttpRequest request) {
+		RapidRequest rapidRequest = RapidRequest.newInstance("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1", 
+				"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+		return RapidContext.newInstance("http", channel.pipeline().firstContext(), true, rapidRequest, new Rule());
+	}
+
+	@Test
+	public void testContextRecycle() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello?a=1");
+		RapidContext rapidContext = newContext(request);
+		RapidRequest rapidRequest = rapidContext.getRequest();
+		rapidContext.putAttribute(AttributeKey.MATCH_INSTANCES, null);
+		rapidContext.writtened();
+		
+		//	模拟异步路由在途: 处理线程先放弃持有, 上下文不能被回收
+		rapidContext.retain();
+		rapidContext.release();
+		Assert.assertSame(rapidRequest, rapidContext.getRequest());
+		Assert.assertEquals(1, request.refCnt());
+		
+		//	路由回调最后放弃持有: 请求被释放, 对象归还对象池
+		rapidContext.release();
+		Assert.assertEquals(0, request.refCnt());
+		Assert.assertNull(rapidContext.getRequest());
+		
+		//	同一线程再次获取复用同一对象, 且状态已经重置
+		RapidContext reused = newContext(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/world"));
+		Assert.assertSame(rapidContext, reused);
+		Assert.assertSame(rapidRequest, reused.getRequest());
+		Assert.assertTrue(reused.isRunning());
+		Assert.assertEquals("/world", reused.getRequest().getPath());
+		reused.release();
+	}
+	
+	@Test
+	public void testWrapperRecycle() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		HttpRequestWrapper wrapper = HttpRequestWrapper.newInstance(request, channel.pipeline().firstContext());
+		wrapper.recycle();
+		Assert.assertNull(wrapper.getFullHttpRequest());
+		Assert.assertSame(wrapper, HttpRequestWrapper.newInstance(request, channel.pipeline().firstContext()));
+		request.release();
+	}
+	
+	@Test
+	public void testDisabled() {
+		RapidConfigLoader.getRapidConfig().setObjectPoolEnabled(false);
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		RapidContext rapidContext = newContext(request);
+		rapidContext.release();
+		//	非对象池模式保持原有行为: 不回收, 也不额外释放请求
+		Assert.assertNotNull(rapidContext.getRequest());
+		Assert.assertEquals(1, request.refCnt());
+		request.release();
+	}
+	
+	@Test
+	public void testVirtualThreadBuffer() {
+		//	VIRTUAL模式每个请求一个新的虚拟线程, 处理线程上获取的RapidRequest/RapidContext不池化, EventLoop上的HttpRequestWrapper仍然池化
+		RapidConfigLoader.getRapidConfig().setBufferType(RapidBufferHelper.VIRTUAL);
+		try {
+			FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+			RapidContext rapidContext = newContext(request);
+			rapidContext.release();
+			Assert.assertNotNull(rapidContext.getRequest());
+			Assert.assertEquals(1, request.refCnt());
+			Assert.assertNotSame(rapidContext, newContext(request));
+			
+			HttpRequestWrapper wrapper = HttpRequestWrapper.newInstance(request, channel.pipeline().firstContext());
+			wrapper.recycle();
+			HttpRequestWrapper reused = HttpRequestWrapper.newInstance(request, channel.pipeline().firstContext());
+			Assert.assertSame(wrapper, reused);
+			reused.recycle();
+			
+			//	线程亲和模式下请求在EventLoop上处理, 忽略bufferType, 仍然池化
+			RapidConfigLoader.getRapidConfig().setEventLoopAffinityEnabled(true);
+			Assert.assertTrue(RapidConfigLoader.getRapidConfig().isContextPoolEnabled());
+			request.release();
+		} finally {
+			RapidConfigLoader.getRapidConfig().setEventLoopAffinityEnabled(false);
+			RapidConfigLoader.getRapidConfig().setBufferType(RapidBufferHelper.MPMC);
+		}
+	}
+	
+}
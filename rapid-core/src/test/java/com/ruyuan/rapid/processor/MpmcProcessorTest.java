@@ -0,0 +1,69 @@
+package com.ruyuan.rapid.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.constants.RapidBufferHelper;
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.netty.processor.NettyMpmcProcessor;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class MpmcProcessorTest {
+	
+	private static HttpRequestWrapper newWrapper(EmbeddedChannel channel) {
+		HttpRequestWrapper wrapper = new HttpRequestWrapper();
+		wrapper.setFullHttpRequest(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test"));
+		wrapper.setCtx(channel.pipeline().firstContext());
+		return wrapper;
+	}
+	
+	private static RapidConfig newConfig(String overflowPolicy) {
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setBufferSize(8);
+		rapidConfig.setBufferHighWaterMark(2);
+		rapidConfig.setBufferOverflowPolicy(overflowPolicy);
+		return rapidConfig;
+	}
+
+	@Test
+	public void testReject() throws Exception {
+		//	不启动消费者, 队列只进不出
+		NettyMpmcProcessor processor = new NettyMpmcProcessor(newConfig(RapidBufferHelper.OVERFLOW_REJECT), null, true);
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		processor.process(newWrapper(channel));
+		processor.process(newWrapper(channel));
+		Assert.assertNull(channel.readOutbound());
+		
+		HttpRequestWrapper rejected = newWrapper(channel);
+		processor.process(rejected);
+		FullHttpResponse response = channel.readOutbound();
+		Assert.assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status());
+		Assert.assertEquals(0, rejected.getFullHttpRequest().refCnt());
+		Assert.assertEquals(1, processor.getRejectedCount());
+		response.release();
+		channel.finishAndReleaseAll();
+	}
+	
+	@Test
+	public void testPause() throws Exception {
+		NettyMpmcProcessor processor = new NettyMpmcProcessor(newConfig(RapidBufferHelper.OVERFLOW_PAUSE), null, true);
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		processor.process(newWrapper(channel));
+		Assert.assertTrue(channel.config().isAutoRead());
+		processor.process(newWrapper(channel));
+		Assert.assertFalse(channel.config().isAutoRead());
+		Assert.assertEquals(1, processor.getPausedCount());
+		Assert.assertEquals(0, processor.getRejectedCount());
+		Assert.assertNull(channel.readOutbound());
+		channel.finishAndReleaseAll();
+	}
+	
+}
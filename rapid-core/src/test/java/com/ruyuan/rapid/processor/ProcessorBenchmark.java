@@ -0,0 +1,79 @@
+package com.ruyuan.rapid.processor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.netty.processor.NettyBatchEventProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyCoreProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyMpmcProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyProcessor;
+import com.ruyuan.rapid.core.netty.processor.NettyVirtualThreadProcessor;
+
+/**
+ * 	处理器模式对比压测: MPMC / FLUSHER(Disruptor) / VIRTUAL(虚拟线程)
+ * 	用模拟的核心处理器代替过滤器链, 每个请求阻塞指定毫秒数(模拟PRE过滤器中的鉴权、配置查询等阻塞调用)
+ * 	用法: ProcessorBenchmark [请求数, 默认20000] [阻塞毫秒数, 默认1]
+ * 	VIRTUAL模式需要JDK21+运行, 低版本JDK会回退为平台线程池
+ */
+public class ProcessorBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		long blockingMillis = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		
+		for(String mode : new String[] {"MPMC", "FLUSHER", "VIRTUAL"}) {
+			RapidConfig rapidConfig = new RapidConfig();
+			BlockingCoreProcessor coreProcessor = new BlockingCoreProcessor(requests, blockingMillis);
+			NettyProcessor processor;
+			switch (mode) {
+				case "MPMC":
+					processor = new NettyMpmcProcessor(rapidConfig, coreProcessor, true);
+					break;
+				case "FLUSHER":
+					processor = new NettyBatchEventProcessor(rapidConfig, coreProcessor);
+					break;
+				default:
+					processor = new NettyVirtualThreadProcessor(rapidConfig, coreProcessor);
+					break;
+			}
+			processor.start();
+			long begin = System.nanoTime();
+			for(int i = 0; i < requests; i++) {
+				processor.process(new HttpRequestWrapper());
+			}
+			boolean finished = coreProcessor.latch.await(5, TimeUnit.MINUTES);
+			double elapsed = (System.nanoTime() - begin) / 1e9;
+			System.out.printf("%-8s requests=%d  blocking=%dms  elapsed=%.2fs  qps=%.0f%s%n", 
+					mode, requests, blockingMillis, elapsed, requests / elapsed, finished ? "" : "  (timeout)");
+			processor.shutdown();
+		}
+		System.exit(0);
+	}
+	
+	static class BlockingCoreProcessor extends NettyCoreProcessor {
+		
+		final CountDownLatch latch;
+		
+		final long blockingMillis;
+		
+		BlockingCoreProcessor(int requests, long blockingMillis) {
+			this.latch = new CountDownLatch(requests);
+			this.blockingMillis = blockingMillis;
+		}
+
+		@Override
+		public void process(HttpRequestWrapper event) {
+			try {
+				if(blockingMillis > 0) {
+					Thread.sleep(blockingMillis);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			latch.countDown();
+		}
+	}
+	
+}
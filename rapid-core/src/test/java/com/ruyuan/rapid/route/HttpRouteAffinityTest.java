@@ -0,0 +1,164 @@
+package com.ruyuan.rapid.route;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.exception.RapidResponseException;
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.RapidConfigLoader;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.helper.AsyncHttpHelper;
+import com.ruyuan.rapid.core.netty.NettyHttpClient;
+import com.ruyuan.rapid.core.netty.processor.filter.route.HttpRouteFilter;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * 	线程亲和模式: 正常响应和超时的路由回调都在接入请求的EventLoop上执行
+ */
+public class HttpRouteAffinityTest {
+
+	private final RapidConfig globalConfig = RapidConfigLoader.getRapidConfig();
+
+	private NioEventLoopGroup workGroup;
+
+	private NioEventLoopGroup backendGroup;
+
+	private Channel backend;
+
+	private NettyHttpClient nettyHttpClient;
+
+	@Before
+	public void before() throws Exception {
+		globalConfig.setEventLoopAffinityEnabled(true);
+		workGroup = new NioEventLoopGroup(2);
+		backendGroup = new NioEventLoopGroup(1);
+		//	下游服务: /ok 立即响应, /slow 从不响应
+		backend = new ServerBootstrap()
+				.group(backendGroup)
+				.channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel ch) {
+						ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(1024),
+								new SimpleChannelInboundHandler<FullHttpRequest>() {
+							@Override
+							protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+								if(request.uri().startsWith("/ok")) {
+									FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+									response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+									ctx.writeAndFlush(response);
+								}
+							}
+						});
+					}
+				})
+				.bind("127.0.0.1", 0).sync().channel();
+
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setEventLoopAffinityEnabled(true);
+		rapidConfig.setHttpRequestTimeout(200);
+		nettyHttpClient = new NettyHttpClient(rapidConfig, workGroup);
+		nettyHttpClient.start();
+	}
+
+	@After
+	public void after() {
+		globalConfig.setEventLoopAffinityEnabled(false);
+		AsyncHttpHelper.getInstance().initializedAffinity(Collections.emptyMap());
+		nettyHttpClient.shutdown();
+		backend.close().syncUninterruptibly();
+		backendGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+		workGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+	}
+
+	private Context route(String path) throws Throwable {
+		//	接入连接注册在某个EventLoop上, 路由在EventLoop之外的线程发起
+		EventLoop eventLoop = workGroup.next();
+		Channel inbound = new NioSocketChannel();
+		inbound.pipeline().addLast(new ChannelInboundHandlerAdapter());
+		eventLoop.register(inbound).sync();
+		try {
+			//	路由回调第一步释放请求资源, 记录释放时是否在接入连接的EventLoop上
+			BlockingQueue<Boolean> inEventLoop = new LinkedBlockingQueue<>();
+			FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path) {
+				@Override
+				public boolean release() {
+					inEventLoop.add(eventLoop.inEventLoop());
+					return super.release();
+				}
+			};
+			RapidRequest rapidRequest = new RapidRequest("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1",
+					"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+			InetSocketAddress address = (InetSocketAddress)backend.localAddress();
+			rapidRequest.setModifyHost("127.0.0.1:" + address.getPort());
+			RapidContext rapidContext = new RapidContext.Builder()
+					.setProtocol("http")
+					.setNettyCtx(inbound.pipeline().firstContext())
+					.setRapidRequest(rapidRequest)
+					.setRule(new Rule())
+					.build();
+			new HttpRouteFilter().entry(rapidContext);
+			Boolean result = inEventLoop.poll(5, TimeUnit.SECONDS);
+			Assert.assertNotNull(result);
+			Assert.assertTrue(result);
+			//	等待回调设置好响应或异常
+			long deadline = System.currentTimeMillis() + 5000;
+			while(rapidContext.getResponse() == null && rapidContext.getThrowable() == null 
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			return rapidContext;
+		} finally {
+			inbound.close().sync();
+		}
+	}
+
+	@Test
+	public void testResponse() throws Throwable {
+		Context rapidContext = route("/ok");
+		Assert.assertNull(rapidContext.getThrowable());
+		Assert.assertNotNull(rapidContext.getResponse());
+	}
+
+	@Test
+	public void testTimeout() throws Throwable {
+		//	超时由线程亲和客户端共享的定时器线程触发
+		Context rapidContext = route("/slow");
+		Assert.assertTrue(rapidContext.getThrowable() instanceof RapidResponseException);
+		Assert.assertNull(rapidContext.getResponse());
+	}
+
+}
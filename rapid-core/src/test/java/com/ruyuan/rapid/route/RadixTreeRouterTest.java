@@ -0,0 +1,137 @@
+package com.ruyuan.rapid.route;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.HttpServiceInvoker;
+import com.ruyuan.rapid.common.config.RadixTreeRouter;
+import com.ruyuan.rapid.common.config.ServiceDefinition;
+import com.ruyuan.rapid.common.config.ServiceInvoker;
+
+/**
+ * 	路径路由: 通配符优先级、回溯、多版本冲突以及增量更新
+ */
+public class RadixTreeRouterTest {
+
+	private static ServiceDefinition definition(String uniqueId, String... paths) {
+		Map<String, ServiceInvoker> invokerMap = new HashMap<>();
+		for(String path : paths) {
+			HttpServiceInvoker invoker = new HttpServiceInvoker();
+			invoker.setInvokerPath(path);
+			invokerMap.put(path, invoker);
+		}
+		ServiceDefinition serviceDefinition = new ServiceDefinition();
+		serviceDefinition.setUniqueId(uniqueId);
+		serviceDefinition.setInvokerMap(invokerMap);
+		return serviceDefinition;
+	}
+
+	private static String lookup(RadixTreeRouter router, String path) {
+		RadixTreeRouter.Route route = router.lookup(path);
+		return route == null ? null : route.getUniqueId() + route.getServiceInvoker().getInvokerPath();
+	}
+
+	@Test
+	public void testWildcard() {
+		RadixTreeRouter router = new RadixTreeRouter();
+		router.put("order:1.0.0", definition("order:1.0.0", "/order/create", "/order/cancel", "/order/{id}", "/order/{id}/detail", "/order/**"));
+		router.put("user:1.0.0", definition("user:1.0.0", "/user/*/profile", "/user/list", "/users", "/static/*.js", "/"));
+
+		Assert.assertEquals("order:1.0.0/order/create", lookup(router, "/order/create"));
+		Assert.assertEquals("order:1.0.0/order/cancel", lookup(router, "/order/cancel"));
+		Assert.assertEquals("order:1.0.0/order/{id}", lookup(router, "/order/123"));
+		Assert.assertEquals("order:1.0.0/order/{id}", lookup(router, "/order/c"));
+		Assert.assertEquals("order:1.0.0/order/{id}/detail", lookup(router, "/order/create/detail"));
+		//	静态与变量都匹配失败, 回溯到 **
+		Assert.assertEquals("order:1.0.0/order/**", lookup(router, "/order/create/x"));
+		Assert.assertEquals("order:1.0.0/order/**", lookup(router, "/order/"));
+		Assert.assertEquals("order:1.0.0/order/**", lookup(router, "/order/1/2/3"));
+		Assert.assertNull(lookup(router, "/order"));
+
+		Assert.assertEquals("user:1.0.0/user/*/profile", lookup(router, "/user/10086/profile"));
+		Assert.assertEquals("user:1.0.0/user/list", lookup(router, "/user/list"));
+		Assert.assertEquals("user:1.0.0/users", lookup(router, "/users"));
+		Assert.assertNull(lookup(router, "/user//profile"));
+		Assert.assertNull(lookup(router, "/user/1/profile/"));
+		Assert.assertNull(lookup(router, "/user"));
+		//	段内通配符按普通字符串处理
+		Assert.assertEquals("user:1.0.0/static/*.js", lookup(router, "/static/*.js"));
+		Assert.assertNull(lookup(router, "/static/app.js"));
+		Assert.assertEquals("user:1.0.0/", lookup(router, "/"));
+		Assert.assertNull(lookup(router, ""));
+		Assert.assertNull(lookup(router, "/x"));
+	}
+
+	@Test
+	public void testVersionAndUpdate() {
+		RadixTreeRouter router = new RadixTreeRouter();
+		router.put("hello:2.0.0", definition("hello:2.0.0", "/hello/say", "/hello/v2"));
+		router.put("hello:1.0.0", definition("hello:1.0.0", "/hello/say", "/hello/v1"));
+		//	与注册顺序无关, uniqueId大的生效
+		Assert.assertEquals("hello:2.0.0/hello/say", lookup(router, "/hello/say"));
+		Assert.assertEquals("hello:1.0.0/hello/v1", lookup(router, "/hello/v1"));
+
+		router.put("hello:2.0.0", definition("hello:2.0.0", "/hello/say"));
+		Assert.assertEquals("hello:2.0.0/hello/say", lookup(router, "/hello/say"));
+		Assert.assertNull(lookup(router, "/hello/v2"));
+
+		router.remove("hello:2.0.0");
+		Assert.assertEquals("hello:1.0.0/hello/say", lookup(router, "/hello/say"));
+
+		ServiceDefinition disabled = definition("hello:1.0.0", "/hello/say");
+		disabled.setEnable(false);
+		router.put("hello:1.0.0", disabled);
+		Assert.assertNull(lookup(router, "/hello/say"));
+		Assert.assertNull(lookup(router, "/hello/v1"));
+	}
+
+	@Test
+	public void testRandom() {
+		String[] parts = {"a", "b", "ab", "abc", "ba", "{id}", "x"};
+		Random random = new Random(20211225);
+		RadixTreeRouter router = new RadixTreeRouter();
+		Map<String, String[]> definitions = new HashMap<>();
+		for(int round = 0; round < 2000; round++) {
+			String uniqueId = "s" + random.nextInt(20);
+			if(random.nextInt(4) == 0) {
+				router.remove(uniqueId);
+				definitions.remove(uniqueId);
+			} else {
+				String[] paths = new String[1 + random.nextInt(5)];
+				for(int i = 0; i < paths.length; i++) {
+					StringBuilder sb = new StringBuilder();
+					int segments = 1 + random.nextInt(4);
+					for(int j = 0; j < segments; j++) {
+						sb.append('/').append(parts[random.nextInt(parts.length)]);
+					}
+					paths[i] = sb.toString();
+				}
+				router.put(uniqueId, definition(uniqueId, paths));
+				definitions.put(uniqueId, paths);
+			}
+			//	注册过的路径按字面查找, 必须命中字面相同的路由中uniqueId最大的那个
+			TreeMap<String, String> expected = new TreeMap<>();
+			for(Map.Entry<String, String[]> entry : definitions.entrySet()) {
+				for(String path : entry.getValue()) {
+					String current = expected.get(path);
+					if(current == null || current.compareTo(entry.getKey()) < 0) {
+						expected.put(path, entry.getKey());
+					}
+				}
+			}
+			for(Map.Entry<String, String> entry : expected.entrySet()) {
+				Assert.assertEquals(entry.getValue() + entry.getKey(), lookup(router, entry.getKey()));
+			}
+		}
+		for(String uniqueId : definitions.keySet().toArray(new String[0])) {
+			router.remove(uniqueId);
+		}
+		Assert.assertNull(lookup(router, "/a"));
+	}
+
+}
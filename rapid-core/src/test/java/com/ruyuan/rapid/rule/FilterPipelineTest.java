@@ -0,0 +1,184 @@
+package com.ruyuan.rapid.rule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.constants.ProcessorFilterConstants;
+import com.ruyuan.rapid.core.context.Context;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.netty.processor.filter.AbstractLinkedProcessorFilter;
+import com.ruyuan.rapid.core.netty.processor.filter.DefaultProcessorFilterChain;
+import com.ruyuan.rapid.core.netty.processor.filter.DefaultProcessorFilterFactory;
+import com.ruyuan.rapid.core.netty.processor.filter.FilterPipeline;
+import com.ruyuan.rapid.core.netty.processor.filter.RuleFilterPlan;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.TimeoutPreFilter;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * 	按规则特化的过滤器流水线: 只包含启用的过滤器、循环驱动、异步回调从下一个下标继续
+ */
+public class FilterPipelineTest {
+
+	private static Rule newRule() {
+		Rule rule = new Rule();
+		rule.setId("pipeline-rule");
+		Rule.FilterConfig timeout = new Rule.FilterConfig();
+		timeout.setId(ProcessorFilterConstants.TIMEOUT_PRE_FILTER_ID);
+		rule.addFilterConfig(timeout);
+		Rule.FilterConfig loadBalance = new Rule.FilterConfig();
+		loadBalance.setId(ProcessorFilterConstants.LOADBALANCE_PRE_FILTER_ID);
+		rule.addFilterConfig(loadBalance);
+		return rule;
+	}
+
+	private static RapidContext newContext(EmbeddedChannel channel, FullHttpRequest request, Rule rule) {
+		RapidRequest rapidRequest = new RapidRequest("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1",
+				"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+		return new RapidContext.Builder()
+				.setProtocol("http")
+				.setNettyCtx(channel.pipeline().firstContext())
+				.setRapidRequest(rapidRequest)
+				.setRule(rule)
+				.build();
+	}
+
+	/**
+	 * 	记录执行顺序和调用栈深度, async为true时在其他线程中回调fireNext
+	 */
+	private static class RecordFilter extends AbstractLinkedProcessorFilter<Context> {
+
+		private final String name;
+
+		private final boolean enabled;
+
+		private final boolean async;
+
+		private final List<String> records;
+
+		RecordFilter(String name, boolean enabled, boolean async, List<String> records) {
+			this.name = name;
+			this.enabled = enabled;
+			this.async = async;
+			this.records = records;
+		}
+
+		@Override
+		public boolean check(Context ctx) throws Throwable {
+			return enabled;
+		}
+
+		@Override
+		public void entry(Context ctx, Object... args) throws Throwable {
+			records.add(name + ":" + Thread.currentThread().getStackTrace().length);
+			if(async) {
+				CompletableFuture.runAsync(() -> {
+					try {
+						TimeUnit.MILLISECONDS.sleep(20);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}).whenComplete((v, t) -> {
+					try {
+						super.fireNext(ctx, args);
+					} catch (Throwable e) {
+						ctx.setThrowable(e);
+					}
+				});
+				return;
+			}
+			super.fireNext(ctx, args);
+		}
+
+	}
+
+	@Test
+	public void testCompile() throws Throwable {
+		DefaultProcessorFilterFactory factory = DefaultProcessorFilterFactory.getInstance();
+		RuleFilterPlan plan = RuleFilterPlan.getPlan(newRule());
+		FilterPipeline pipeline = plan.getPipeline();
+		//	只保留启用的过滤器, 顺序与过滤器链一致(与规则中的配置顺序无关)
+		Assert.assertEquals(2, pipeline.size());
+		Assert.assertSame(factory.getFilter(LoadBalancePreFilter.class), pipeline.getFilter(0));
+		Assert.assertSame(factory.getFilter(TimeoutPreFilter.class), pipeline.getFilter(1));
+		Assert.assertEquals(0, plan.getErrorPipeline().size());
+		RuleFilterPlan.removePlan(plan.getRule().getId());
+	}
+
+	@Test
+	public void testAsyncResume() throws Throwable {
+		List<String> records = Collections.synchronizedList(new ArrayList<>());
+		DefaultProcessorFilterChain chain = new DefaultProcessorFilterChain("test");
+		chain.addLast(new RecordFilter("a", true, false, records));
+		chain.addLast(new RecordFilter("disabled", false, false, records));
+		chain.addLast(new RecordFilter("route", true, true, records));
+		chain.addLast(new RecordFilter("b", true, false, records));
+		chain.addLast(new RecordFilter("c", true, false, records));
+		Rule rule = newRule();
+		FilterPipeline pipeline = FilterPipeline.compile(chain, RuleFilterPlan.getPlan(rule));
+
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		RapidContext rapidContext = newContext(channel, request, rule);
+		pipeline.execute(rapidContext);
+		//	异步过滤器在途时驱动循环退出, 上下文还没有结束
+		Assert.assertFalse(rapidContext.isTerminated());
+		long deadline = System.currentTimeMillis() + 5000;
+		while(!rapidContext.isTerminated() && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(5);
+		}
+		Assert.assertTrue(rapidContext.isTerminated());
+		Assert.assertNull(rapidContext.getThrowable());
+		Assert.assertEquals(4, records.size());
+		Assert.assertTrue(records.get(0).startsWith("a:"));
+		Assert.assertTrue(records.get(1).startsWith("route:"));
+		Assert.assertTrue(records.get(2).startsWith("b:"));
+		Assert.assertTrue(records.get(3).startsWith("c:"));
+		//	同步执行的过滤器调用栈深度相同, 不随过滤器数量增长
+		Assert.assertEquals(records.get(0).split(":")[1], records.get(1).split(":")[1]);
+		Assert.assertEquals(records.get(2).split(":")[1], records.get(3).split(":")[1]);
+
+		RuleFilterPlan.removePlan(rule.getId());
+		request.release();
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void testLongChain() throws Throwable {
+		List<String> records = Collections.synchronizedList(new ArrayList<>());
+		DefaultProcessorFilterChain chain = new DefaultProcessorFilterChain("long");
+		for(int i = 0; i < 20000; i++) {
+			chain.addLast(new RecordFilter(String.valueOf(i), true, false, records));
+		}
+		Rule rule = newRule();
+		FilterPipeline pipeline = FilterPipeline.compile(chain, RuleFilterPlan.getPlan(rule));
+
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		RapidContext rapidContext = newContext(channel, request, rule);
+		//	链表递归模式下会StackOverflowError
+		pipeline.execute(rapidContext);
+		Assert.assertTrue(rapidContext.isTerminated());
+		Assert.assertEquals(20000, records.size());
+
+		RuleFilterPlan.removePlan(rule.getId());
+		request.release();
+		channel.finishAndReleaseAll();
+	}
+
+}
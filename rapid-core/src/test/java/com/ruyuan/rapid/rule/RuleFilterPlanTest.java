@@ -0,0 +1,142 @@
+package com.ruyuan.rapid.rule;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ruyuan.rapid.common.config.DynamicConfigManager;
+import com.ruyuan.rapid.common.config.Rule;
+import com.ruyuan.rapid.common.constants.ProcessorFilterConstants;
+import com.ruyuan.rapid.common.enums.LoadBalanceStrategy;
+import com.ruyuan.rapid.core.context.RapidContext;
+import com.ruyuan.rapid.core.context.RapidRequest;
+import com.ruyuan.rapid.core.netty.processor.filter.DefaultProcessorFilterFactory;
+import com.ruyuan.rapid.core.netty.processor.filter.RuleFilterPlan;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.LoadBalancePreFilter;
+import com.ruyuan.rapid.core.netty.processor.filter.pre.TimeoutPreFilter;
+import com.ruyuan.rapid.core.netty.processor.filter.route.HttpRouteFilter;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * 	规则预编译的过滤器执行计划
+ */
+public class RuleFilterPlanTest {
+
+	private static Rule newRule(String balanceStrategy) {
+		Rule rule = new Rule();
+		rule.setId("plan-rule");
+		Rule.FilterConfig loadBalance = new Rule.FilterConfig();
+		//	filterId忽略大小写
+		loadBalance.setId(ProcessorFilterConstants.LOADBALANCE_PRE_FILTER_ID.toUpperCase());
+		loadBalance.setConfig("{\"balanceStrategy\":\"" + balanceStrategy + "\"}");
+		rule.addFilterConfig(loadBalance);
+		Rule.FilterConfig timeout = new Rule.FilterConfig();
+		timeout.setId(ProcessorFilterConstants.TIMEOUT_PRE_FILTER_ID);
+		rule.addFilterConfig(timeout);
+		return rule;
+	}
+
+	@Test
+	public void testPlan() throws Throwable {
+		DefaultProcessorFilterFactory factory = DefaultProcessorFilterFactory.getInstance();
+		LoadBalancePreFilter loadBalance = factory.getFilter(LoadBalancePreFilter.class);
+		TimeoutPreFilter timeout = factory.getFilter(TimeoutPreFilter.class);
+		HttpRouteFilter httpRoute = factory.getFilter(HttpRouteFilter.class);
+
+		Rule rule = newRule("RANDOM");
+		RuleFilterPlan plan = RuleFilterPlan.getPlan(rule);
+		Assert.assertSame(plan, RuleFilterPlan.getPlan(rule));
+		Assert.assertTrue(plan.isEnabled(loadBalance.getOrdinal()));
+		Assert.assertTrue(plan.isEnabled(timeout.getOrdinal()));
+		Assert.assertFalse(plan.isEnabled(httpRoute.getOrdinal()));
+		//	配置在编译时已经解析成对应的类型, 没有配置的过滤器为null
+		Assert.assertEquals(LoadBalanceStrategy.RANDOM,
+				((LoadBalancePreFilter.Config)plan.getConfig(loadBalance.getOrdinal())).getBalanceStrategy());
+		Assert.assertNull(plan.getConfig(timeout.getOrdinal()));
+
+		//	规则整体替换后重新编译
+		Rule newRule = newRule("ROUND_ROBIN");
+		RuleFilterPlan newPlan = RuleFilterPlan.getPlan(newRule);
+		Assert.assertNotSame(plan, newPlan);
+		Assert.assertEquals(LoadBalanceStrategy.ROUND_ROBIN,
+				((LoadBalancePreFilter.Config)newPlan.getConfig(loadBalance.getOrdinal())).getBalanceStrategy());
+
+		//	过滤器的check只读取上下文中的执行计划
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+		RapidRequest rapidRequest = new RapidRequest("hello:1.0.0", StandardCharsets.UTF_8, "127.0.0.1",
+				"127.0.0.1:8080", request.uri(), request.method(), "application/json", request.headers(), request);
+		RapidContext rapidContext = new RapidContext.Builder()
+				.setProtocol("http")
+				.setNettyCtx(channel.pipeline().firstContext())
+				.setRapidRequest(rapidRequest)
+				.setRule(newRule)
+				.build();
+		Assert.assertTrue(loadBalance.check(rapidContext));
+		Assert.assertFalse(httpRoute.check(rapidContext));
+		Assert.assertSame(newPlan, RuleFilterPlan.of(rapidContext));
+
+		RuleFilterPlan.removePlan(newRule.getId());
+		request.release();
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void testVersion() throws Throwable {
+		DefaultProcessorFilterFactory factory = DefaultProcessorFilterFactory.getInstance();
+		LoadBalancePreFilter loadBalance = factory.getFilter(LoadBalancePreFilter.class);
+		DynamicConfigManager manager = DynamicConfigManager.getInstance();
+
+		Rule rule = newRule("RANDOM");
+		manager.putRule(rule.getId(), rule);
+		Assert.assertTrue(rule.getVersion() > 0);
+		RuleFilterPlan plan = RuleFilterPlan.getPlan(rule);
+		CacheStats before = RuleFilterPlan.stats();
+		Assert.assertSame(plan, RuleFilterPlan.getPlan(rule));
+		Assert.assertEquals(before.hitCount() + 1, RuleFilterPlan.stats().hitCount());
+
+		//	规则变更: 先分配新版本并编译, 再发布, 之后取到的执行计划不需要再解析
+		Rule newRule = newRule("ROUND_ROBIN");
+		newRule.setVersion(manager.nextRuleVersion());
+		RuleFilterPlan newPlan = RuleFilterPlan.getPlan(newRule);
+		manager.putRule(newRule.getId(), newRule);
+		Assert.assertTrue(newRule.getVersion() > rule.getVersion());
+		before = RuleFilterPlan.stats();
+		Assert.assertSame(newPlan, RuleFilterPlan.getPlan(manager.getRule(newRule.getId())));
+		Assert.assertEquals(before.missCount(), RuleFilterPlan.stats().missCount());
+		Assert.assertEquals(LoadBalanceStrategy.ROUND_ROBIN,
+				((LoadBalancePreFilter.Config)newPlan.getConfig(loadBalance.getOrdinal())).getBalanceStrategy());
+
+		//	每个规则只缓存一个执行计划, 旧版本已经被新版本替换, 旧规则重新编译计为未命中
+		before = RuleFilterPlan.stats();
+		Assert.assertNotSame(plan, RuleFilterPlan.getPlan(rule));
+		Assert.assertEquals(before.missCount() + 1, RuleFilterPlan.stats().missCount());
+		Assert.assertEquals(before.hitCount(), RuleFilterPlan.stats().hitCount());
+		//	持有旧规则的在途请求重新编译后, 新版本的执行计划仍然在缓存中
+		before = RuleFilterPlan.stats();
+		Assert.assertSame(newPlan, RuleFilterPlan.getPlan(newRule));
+		Assert.assertEquals(before.hitCount() + 1, RuleFilterPlan.stats().hitCount());
+
+		//	ruleId互为前缀的规则互不影响
+		Rule prefixed = newRule("RANDOM");
+		prefixed.setId(rule.getId() + "$" + newRule.getVersion());
+		manager.putRule(prefixed.getId(), prefixed);
+		RuleFilterPlan prefixedPlan = RuleFilterPlan.getPlan(prefixed);
+		Assert.assertSame(newPlan, RuleFilterPlan.getPlan(newRule));
+		Assert.assertSame(prefixedPlan, RuleFilterPlan.getPlan(prefixed));
+		manager.removeRule(prefixed.getId());
+		RuleFilterPlan.removePlan(prefixed.getId());
+
+		manager.removeRule(rule.getId());
+		RuleFilterPlan.removePlan(rule.getId());
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.ruyuan.rapid.stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+import org.asynchttpclient.netty.NettyResponseStatus;
+import org.asynchttpclient.uri.Uri;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.ruyuan.rapid.core.netty.stream.StreamingResponseHandler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * 	下游响应的流式转发: SSE、未知长度、超过阈值的响应立即写回并flush响应头, 其余响应聚合
+ */
+public class StreamingResponseHandlerTest {
+
+	private static final long THRESHOLD = 1024;
+
+	private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+
+	private StreamingResponseHandler newHandler(HttpHeaders headers) throws Exception {
+		StreamingResponseHandler handler = new StreamingResponseHandler(channel.pipeline().firstContext(), true, THRESHOLD, false);
+		handler.onStatusReceived(new NettyResponseStatus(Uri.create("http://127.0.0.1:8080/stream"), null,
+				new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK), null));
+		handler.onHeadersReceived(new HttpResponseHeaders(headers));
+		return handler;
+	}
+
+	private static HttpHeaders headers(CharSequence contentType, Long contentLength) {
+		HttpHeaders headers = new DefaultHttpHeaders();
+		headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+		if(contentLength != null) {
+			headers.set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+		}
+		return headers;
+	}
+
+	//	响应头必须已经flush到客户端, 不需要等第一个分片
+	private HttpResponse readHead() {
+		Object head = channel.readOutbound();
+		Assert.assertTrue(String.valueOf(head), head instanceof HttpResponse);
+		Assert.assertNull(channel.readOutbound());
+		return (HttpResponse)head;
+	}
+
+	private static String content(HttpContent httpContent) {
+		try {
+			return httpContent.content().toString(StandardCharsets.UTF_8);
+		} finally {
+			httpContent.release();
+		}
+	}
+
+	@After
+	public void release() {
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void testEventStream() throws Exception {
+		//	SSE即使声明了很小的长度也走流式转发
+		StreamingResponseHandler handler = newHandler(headers("text/event-stream;charset=UTF-8", 10L));
+		Assert.assertTrue(handler.isStreamed());
+		HttpResponse head = readHead();
+		Assert.assertEquals(HttpResponseStatus.OK, head.status());
+		Assert.assertEquals(HttpHeaderValues.KEEP_ALIVE.toString(), head.headers().get(HttpHeaderNames.CONNECTION));
+
+		handler.onStream(new PartPublisher("data: 1\n\n", "data: 2\n\n"));
+		Assert.assertEquals("data: 1\n\n", content(channel.readOutbound()));
+		Assert.assertEquals("data: 2\n\n", content(channel.readOutbound()));
+		Assert.assertTrue(channel.readOutbound() instanceof LastHttpContent);
+		Assert.assertTrue(handler.getFuture().isDone());
+	}
+
+	@Test
+	public void testUnknownLength() throws Exception {
+		StreamingResponseHandler handler = newHandler(headers(HttpHeaderValues.APPLICATION_JSON, null));
+		Assert.assertTrue(handler.isStreamed());
+		Assert.assertTrue(HttpUtil.isTransferEncodingChunked(readHead()));
+	}
+
+	@Test
+	public void testOverThreshold() throws Exception {
+		StreamingResponseHandler handler = newHandler(headers(HttpHeaderValues.APPLICATION_OCTET_STREAM, THRESHOLD + 1));
+		Assert.assertTrue(handler.isStreamed());
+		HttpResponse head = readHead();
+		Assert.assertEquals(String.valueOf(THRESHOLD + 1), head.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+		Assert.assertFalse(HttpUtil.isTransferEncodingChunked(head));
+	}
+
+	@Test
+	public void testUnderThreshold() throws Exception {
+		StreamingResponseHandler handler = newHandler(headers(HttpHeaderValues.APPLICATION_JSON, 11L));
+		Assert.assertFalse(handler.isStreamed());
+		Assert.assertNull(channel.readOutbound());
+
+		//	未流式转发的响应聚合为完整的Response, 不写回客户端
+		handler.onStream(new PartPublisher("{\"a\":", "1}"));
+		Assert.assertNull(channel.readOutbound());
+		Response response = handler.getFuture().get();
+		Assert.assertEquals(200, response.getStatusCode());
+		Assert.assertEquals("{\"a\":1}", response.getResponseBody(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 	按需求逐个投递分片, 投递完成后onComplete
+	 */
+	private static class PartPublisher implements Publisher<HttpResponseBodyPart> {
+
+		private final Deque<String> parts;
+
+		PartPublisher(String... parts) {
+			this.parts = new ArrayDeque<>(Arrays.asList(parts));
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super HttpResponseBodyPart> subscriber) {
+			subscriber.onSubscribe(new Subscription() {
+
+				private boolean emitting;
+
+				private boolean completed;
+
+				private long requested;
+
+				@Override
+				public void request(long n) {
+					requested += n;
+					if(emitting) {
+						return;
+					}
+					emitting = true;
+					while(requested > 0 && !parts.isEmpty()) {
+						requested--;
+						String part = parts.poll();
+						subscriber.onNext(new LazyResponseBodyPart(
+								Unpooled.copiedBuffer(part, StandardCharsets.UTF_8), parts.isEmpty()));
+					}
+					emitting = false;
+					if(parts.isEmpty() && !completed) {
+						completed = true;
+						subscriber.onComplete();
+					}
+				}
+
+				@Override
+				public void cancel() {
+					parts.clear();
+				}
+			});
+		}
+
+	}
+
+}
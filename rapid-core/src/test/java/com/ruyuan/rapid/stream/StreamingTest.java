@@ -0,0 +1,94 @@
+package com.ruyuan.rapid.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.ruyuan.rapid.core.netty.stream.StreamingRequestBody;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+
+public class StreamingTest {
+
+	private static HttpContent content(String str) {
+		return new DefaultHttpContent(Unpooled.copiedBuffer(str, StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testBackpressure() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		ChannelHandlerContext ctx = channel.pipeline().firstContext();
+		StreamingRequestBody body = new StreamingRequestBody(ctx, 8);
+		
+		List<String> received = new ArrayList<>();
+		Subscription[] subscription = new Subscription[1];
+		boolean[] completed = new boolean[1];
+		body.subscribe(new Subscriber<ByteBuffer>() {
+			@Override
+			public void onSubscribe(Subscription s) {
+				subscription[0] = s;
+			}
+			@Override
+			public void onNext(ByteBuffer t) {
+				received.add(StandardCharsets.UTF_8.decode(t).toString());
+			}
+			@Override
+			public void onError(Throwable t) {
+				Assert.fail(t.getMessage());
+			}
+			@Override
+			public void onComplete() {
+				completed[0] = true;
+			}
+		});
+		
+		//	没有需求时积压超过bufferSize, 暂停读取
+		HttpContent c1 = content("12345");
+		HttpContent c2 = content("67890");
+		body.offer(c1);
+		Assert.assertTrue(channel.config().isAutoRead());
+		body.offer(c2);
+		Assert.assertFalse(channel.config().isAutoRead());
+		Assert.assertEquals(0, c1.refCnt());
+		Assert.assertEquals(0, c2.refCnt());
+		
+		//	下游请求后恢复读取
+		subscription[0].request(2);
+		Assert.assertTrue(channel.config().isAutoRead());
+		Assert.assertEquals(2, received.size());
+		
+		body.offer(new DefaultLastHttpContent(Unpooled.copiedBuffer("end", StandardCharsets.UTF_8)));
+		Assert.assertFalse(completed[0]);
+		subscription[0].request(1);
+		Assert.assertEquals("end", received.get(2));
+		Assert.assertTrue(completed[0]);
+		channel.finishAndReleaseAll();
+	}
+	
+	@Test
+	public void testDiscard() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		StreamingRequestBody body = new StreamingRequestBody(channel.pipeline().firstContext(), 4);
+		body.offer(content("123456"));
+		Assert.assertFalse(channel.config().isAutoRead());
+		body.discard();
+		Assert.assertTrue(channel.config().isAutoRead());
+		HttpContent late = content("789");
+		body.offer(late);
+		Assert.assertEquals(0, late.refCnt());
+		channel.finishAndReleaseAll();
+	}
+	
+}
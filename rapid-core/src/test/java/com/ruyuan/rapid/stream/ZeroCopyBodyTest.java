@@ -0,0 +1,204 @@
+package com.ruyuan.rapid.stream;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.Dsl;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.Response;
+import org.asynchttpclient.netty.request.body.BodyChunkedInput;
+import org.asynchttpclient.request.body.Body;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ruyuan.rapid.core.netty.stream.RetainedBodyGenerator;
+import com.ruyuan.rapid.core.netty.stream.RetainedBodyHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.util.ResourceLeakDetector;
+
+/**
+ * 	零拷贝转发请求体: 泄漏检测开到PARANOID, 大请求体由多个池化direct分片组成(与HttpObjectAggregator的聚合结果一致)
+ */
+public class ZeroCopyBodyTest {
+
+	private static final int CHUNK_SIZE = 256 * 1024;
+
+	private ResourceLeakDetector.Level level;
+
+	@Before
+	public void setUp() {
+		level = ResourceLeakDetector.getLevel();
+		ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+	}
+
+	@After
+	public void tearDown() {
+		ResourceLeakDetector.setLevel(level);
+	}
+
+	private static CompositeByteBuf newBody(int chunks) {
+		CompositeByteBuf body = PooledByteBufAllocator.DEFAULT.compositeDirectBuffer(chunks);
+		for(int i = 0; i < chunks; i++) {
+			//	PARANOID下每次访问都会记录调用栈, 整块写入
+			byte[] bytes = new byte[CHUNK_SIZE];
+			for(int j = 0; j < CHUNK_SIZE; j++) {
+				bytes[j] = (byte)(i * 31 + j);
+			}
+			ByteBuf chunk = PooledByteBufAllocator.DEFAULT.directBuffer(CHUNK_SIZE);
+			chunk.writeBytes(bytes);
+			body.addComponent(true, chunk);
+		}
+		return body;
+	}
+
+	private static long crc(ByteBuf buf) {
+		CRC32 crc = new CRC32();
+		crc.update(buf.nioBuffer());
+		return crc.getValue();
+	}
+
+	@Test
+	public void testOwnership() throws Exception {
+		CompositeByteBuf content = newBody(4);
+		RetainedBodyGenerator generator = new RetainedBodyGenerator(content);
+		Body body = generator.createBody();
+		//	还没写出时Body不持有引用
+		Assert.assertEquals(2, content.refCnt());
+		
+		ByteBuf target = Unpooled.buffer(CHUNK_SIZE);
+		Assert.assertEquals(Body.BodyState.CONTINUE, body.transferTo(target));
+		Assert.assertEquals(3, content.refCnt());
+
+		//	请求先释放(例如超时), 写出中的Body仍然持有引用
+		Assert.assertTrue(generator.release());
+		Assert.assertFalse(generator.release());
+		content.release();
+		Assert.assertEquals(1, content.refCnt());
+		body.close();
+		body.close();
+		Assert.assertEquals(0, content.refCnt());
+		target.release();
+		
+		//	释放之后的发送直接失败, 不会再引用已经归还的内存
+		try {
+			generator.createBody().transferTo(Unpooled.buffer(16));
+			Assert.fail();
+		} catch (ClosedChannelException e) {
+		}
+	}
+
+	private static HttpServer newServer() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/echo", exchange -> {
+			CRC32 crc = new CRC32();
+			long length = 0;
+			byte[] buffer = new byte[8192];
+			try(InputStream in = exchange.getRequestBody()) {
+				int n;
+				while((n = in.read(buffer)) > 0) {
+					crc.update(buffer, 0, n);
+					length += n;
+				}
+			}
+			byte[] response = (length + ":" + crc.getValue()).getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, response.length);
+			try(OutputStream out = exchange.getResponseBody()) {
+				out.write(response);
+			}
+		});
+		server.start();
+		return server;
+	}
+	
+	@Test
+	public void testZeroCopy() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		AtomicReference<Consumer<ByteBuf>> onWrite = new AtomicReference<>();
+		AsyncHttpClient client = Dsl.asyncHttpClient(new DefaultAsyncHttpClientConfig.Builder()
+				.setHttpAdditionalChannelInitializer(channel -> {
+					//	RetainedBodyHandler之后(更靠近编码器)记录实际写出的请求体
+					channel.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+						@Override
+						public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+							Assert.assertFalse(msg instanceof BodyChunkedInput);
+							super.write(ctx, msg, promise);
+							if(msg instanceof HttpContent && ((HttpContent)msg).content().isReadable()) {
+								written.incrementAndGet();
+								Consumer<ByteBuf> consumer = onWrite.getAndSet(null);
+								if(consumer != null) {
+									consumer.accept(((HttpContent)msg).content());
+								}
+							}
+						}
+					});
+					channel.pipeline().addLast(RetainedBodyHandler.INSTANCE);
+				}));
+		HttpServer server = newServer();
+		try {
+			for(int i = 0; i < 8; i++) {
+				CompositeByteBuf content = newBody(16);
+				String expected = content.readableBytes() + ":" + crc(content);
+				RetainedBodyGenerator generator = new RetainedBodyGenerator(content);
+				AtomicBoolean shared = new AtomicBoolean();
+				onWrite.set(out -> {
+					//	写往下游的就是请求体本身(duplicate): 修改请求体, 写出的buffer可见, 没有拷贝
+					byte first = content.getByte(0);
+					content.setByte(0, first + 1);
+					shared.set(out.nioBufferCount() == content.nioBufferCount() && out.getByte(out.readerIndex()) == (byte)(first + 1));
+					content.setByte(0, first);
+					//	请求体还在出站缓冲区中(尚未flush), 网关侧就释放了请求
+					generator.release();
+					content.release();
+				});
+				Response response = client.executeRequest(newRequest(server, generator)).get(10, TimeUnit.SECONDS);
+				Assert.assertEquals(expected, response.getResponseBody());
+				Assert.assertTrue(shared.get());
+				Assert.assertEquals(i + 1, written.get());
+				assertReleased(content);
+			}
+		} finally {
+			client.close();
+			server.stop(0);
+		}
+	}
+	
+	private static Request newRequest(HttpServer server, RetainedBodyGenerator generator) {
+		return new RequestBuilder("POST")
+				.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/echo")
+				.setBody(generator)
+				.build();
+	}
+	
+	private static void assertReleased(ByteBuf content) throws InterruptedException {
+		//	写出完成的回调在下游EventLoop上, 可能略晚于响应
+		long deadline = System.currentTimeMillis() + 2000;
+		while(content.refCnt() != 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assert.assertEquals(0, content.refCnt());
+	}
+
+}
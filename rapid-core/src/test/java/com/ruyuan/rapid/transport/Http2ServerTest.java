@@ -0,0 +1,264 @@
+package com.ruyuan.rapid.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.netty.NettyHttpServer;
+import com.ruyuan.rapid.core.netty.processor.NettyProcessor;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2FrameLogger;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.logging.LogLevel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 	明文HTTP/2: h2c prior knowledge、HTTP/1.1 Upgrade到h2c、同一连接上的并发流、连接级别流控窗口
+ */
+public class Http2ServerTest {
+
+	private static final int CONNECTION_WINDOW_SIZE = 4 * 1024 * 1024;
+
+	//	NettyProcessor收到的请求, 攒够expected个之后才统一响应
+	private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+	private final List<Runnable> pending = new ArrayList<>();
+
+	private volatile int expected = 1;
+
+	private int port;
+
+	private NettyHttpServer server;
+
+	private EventLoopGroup clientGroup;
+
+	@Before
+	public void before() throws Exception {
+		try(ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setPort(port);
+		rapidConfig.setUseEPoll(false);
+		rapidConfig.setEventLoopGroupWorkNum(1);
+		rapidConfig.setHttp2Enabled(true);
+		rapidConfig.setHttp2ConnectionWindowSize(CONNECTION_WINDOW_SIZE);
+		server = new NettyHttpServer(rapidConfig, new RecordingProcessor());
+		server.start();
+		clientGroup = new NioEventLoopGroup(1);
+	}
+
+	@After
+	public void after() {
+		clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+		server.shutdown();
+	}
+
+	private Channel connect(Http2FrameLogger frameLogger) throws Exception {
+		Http2FrameCodec frameCodec = Http2FrameCodecBuilder.forClient().frameLogger(frameLogger).build();
+		return new Bootstrap().group(clientGroup).channel(NioSocketChannel.class)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) throws Exception {
+						ch.pipeline().addLast(frameCodec, new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+					}
+				})
+				.connect("127.0.0.1", port).sync().channel()
+				//	客户端的preface和SETTINGS写出后不会自己flush
+				.flush();
+	}
+
+	private Http2StreamChannel request(Channel channel, String uri, BlockingQueue<FullHttpResponse> responses) throws Exception {
+		Http2StreamChannel stream = new Http2StreamChannelBootstrap(channel)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) throws Exception {
+						ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false),
+								new HttpObjectAggregator(1024),
+								new SimpleChannelInboundHandler<FullHttpResponse>() {
+									@Override
+									protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+										responses.add(msg.retainedDuplicate());
+									}
+								});
+					}
+				})
+				.open().sync().getNow();
+		DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+		request.headers().set(HttpHeaderNames.HOST, "127.0.0.1:" + port);
+		stream.writeAndFlush(request).sync();
+		return stream;
+	}
+
+	private static String content(FullHttpResponse response) {
+		try {
+			Assert.assertEquals(HttpResponseStatus.OK, response.status());
+			return response.content().toString(StandardCharsets.UTF_8);
+		} finally {
+			response.release();
+		}
+	}
+
+	@Test
+	public void testPriorKnowledgeConcurrentStreams() throws Exception {
+		//	两个流都到达NettyProcessor之后才响应: 同一连接上的流是并发的, 不会互相阻塞
+		expected = 2;
+		Channel channel = connect(new Http2FrameLogger(LogLevel.DEBUG));
+		try {
+			BlockingQueue<FullHttpResponse> responses = new LinkedBlockingQueue<>();
+			Http2StreamChannel first = request(channel, "/first", responses);
+			Http2StreamChannel second = request(channel, "/second", responses);
+			Assert.assertNotEquals(first.stream().id(), second.stream().id());
+
+			List<String> uris = new ArrayList<>();
+			uris.add(received.poll(5, TimeUnit.SECONDS));
+			uris.add(received.poll(5, TimeUnit.SECONDS));
+			Assert.assertTrue(uris.toString(), uris.contains("/first") && uris.contains("/second"));
+
+			List<String> bodies = new ArrayList<>();
+			bodies.add(content(responses.poll(5, TimeUnit.SECONDS)));
+			bodies.add(content(responses.poll(5, TimeUnit.SECONDS)));
+			Assert.assertTrue(bodies.toString(), bodies.contains("/first") && bodies.contains("/second"));
+		} finally {
+			channel.close().sync();
+		}
+	}
+
+	@Test
+	public void testConnectionWindowUpdate() throws Exception {
+		//	客户端收到的连接级别WINDOW_UPDATE累计后, 连接窗口等于配置的http2ConnectionWindowSize
+		AtomicInteger connectionWindow = new AtomicInteger(65535);
+		Channel channel = connect(new Http2FrameLogger(LogLevel.DEBUG) {
+			@Override
+			public void logWindowsUpdate(Direction direction, ChannelHandlerContext ctx, int streamId, int windowSizeIncrement) {
+				if(direction == Direction.INBOUND && streamId == 0) {
+					connectionWindow.addAndGet(windowSizeIncrement);
+				}
+			}
+		});
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			while(connectionWindow.get() < CONNECTION_WINDOW_SIZE && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(CONNECTION_WINDOW_SIZE, connectionWindow.get());
+		} finally {
+			channel.close().sync();
+		}
+	}
+
+	@Test
+	public void testUpgrade() throws Exception {
+		try(Socket socket = new Socket("127.0.0.1", port)) {
+			socket.setSoTimeout(5000);
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /upgrade HTTP/1.1\r\n"
+					+ "Host: 127.0.0.1:" + port + "\r\n"
+					+ "Connection: Upgrade, HTTP2-Settings\r\n"
+					+ "Upgrade: h2c\r\n"
+					+ "HTTP2-Settings: AAMAAABkAARAAAAAAAIAAAAA\r\n"
+					+ "\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			//	101之后连接切换为HTTP/2, 升级前的请求作为流1交给NettyProcessor
+			String head = readHead(socket.getInputStream());
+			Assert.assertTrue(head, head.startsWith("HTTP/1.1 101"));
+			Assert.assertTrue(head, head.toLowerCase().contains("upgrade: h2c"));
+			Assert.assertEquals("/upgrade", received.poll(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private static String readHead(InputStream in) throws Exception {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		int b;
+		while((b = in.read()) != -1) {
+			head.write(b);
+			byte[] bytes = head.toByteArray();
+			int length = bytes.length;
+			if(length >= 4 && bytes[length - 4] == '\r' && bytes[length - 3] == '\n'
+					&& bytes[length - 2] == '\r' && bytes[length - 1] == '\n') {
+				break;
+			}
+		}
+		return new String(head.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * 	记录收到的请求, 攒够expected个之后统一以请求uri作为响应体返回
+	 */
+	private class RecordingProcessor implements NettyProcessor {
+
+		@Override
+		public void process(HttpRequestWrapper httpRequestWrapper) throws Exception {
+			String uri = httpRequestWrapper.getFullHttpRequest().uri();
+			ChannelHandlerContext ctx = httpRequestWrapper.getCtx();
+			ReferenceCountUtil.release(httpRequestWrapper.getFullHttpRequest());
+			List<Runnable> ready = null;
+			synchronized (pending) {
+				pending.add(() -> {
+					FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+							Unpooled.copiedBuffer(uri, StandardCharsets.UTF_8));
+					response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+					ctx.writeAndFlush(response);
+				});
+				received.add(uri);
+				if(pending.size() >= expected) {
+					ready = new ArrayList<>(pending);
+					pending.clear();
+				}
+			}
+			if(ready != null) {
+				ready.forEach(Runnable::run);
+			}
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.ruyuan.rapid.transport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ruyuan.rapid.core.RapidConfig;
+import com.ruyuan.rapid.core.context.HttpRequestWrapper;
+import com.ruyuan.rapid.core.netty.IoUringTransport;
+import com.ruyuan.rapid.core.netty.NettyHttpServer;
+import com.ruyuan.rapid.core.netty.processor.NettyProcessor;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * 	传输层对比压测: NIO / EPOLL / io_uring
+ * 	同一台机器上分别启动NettyHttpServer(直接返回固定响应, 不经过过滤器链), 用NIO客户端长连接循环请求, 统计QPS
+ * 	用法: TransportBenchmark [连接数, 默认256] [每轮秒数, 默认10]
+ * 	io_uring需要classpath中有netty-incubator-transport-native-io_uring(linux-x86_64)并且内核支持, 否则跳过
+ */
+public class TransportBenchmark {
+	
+	private static final byte[] BODY = "{\"code\":0}".getBytes();
+	
+	public static void main(String[] args) throws Exception {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		
+		run("nio", false, false, 18801, connections, seconds);
+		if(Epoll.isAvailable()) {
+			run("epoll", true, false, 18802, connections, seconds);
+		} else {
+			System.out.println("epoll: not available, skip");
+		}
+		if(IoUringTransport.isAvailable()) {
+			run("io_uring", false, true, 18803, connections, seconds);
+		} else {
+			System.out.println("io_uring: not available, skip");
+		}
+	}
+	
+	private static void run(String name, boolean epoll, boolean ioUring, int port, int connections, int seconds) throws Exception {
+		RapidConfig rapidConfig = new RapidConfig();
+		rapidConfig.setPort(port);
+		rapidConfig.setUseEPoll(epoll);
+		rapidConfig.setUseIoUring(ioUring);
+		NettyHttpServer server = new NettyHttpServer(rapidConfig, new FixedResponseProcessor());
+		server.start();
+		
+		EventLoopGroup clientGroup = new NioEventLoopGroup();
+		LongAdder completed = new LongAdder();
+		try {
+			Bootstrap bootstrap = new Bootstrap().group(clientGroup).channel(NioSocketChannel.class)
+					.handler(new ChannelInitializer<Channel>() {
+						@Override
+						protected void initChannel(Channel ch) throws Exception {
+							ch.pipeline().addLast(new HttpClientCodec(), 
+									new HttpObjectAggregator(64 * 1024),
+									new SimpleChannelInboundHandler<FullHttpResponse>() {
+										@Override
+										protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+											completed.increment();
+											ctx.writeAndFlush(newRequest());
+										}
+									});
+						}
+					});
+			for(int i = 0; i < connections; i++) {
+				bootstrap.connect("127.0.0.1", port).sync().channel().writeAndFlush(newRequest());
+			}
+			//	预热
+			TimeUnit.SECONDS.sleep(2);
+			completed.reset();
+			long begin = System.nanoTime();
+			TimeUnit.SECONDS.sleep(seconds);
+			long count = completed.sum();
+			double elapsed = (System.nanoTime() - begin) / 1e9;
+			System.out.printf("%-8s connections=%d  requests=%d  qps=%.0f%n", name, connections, count, count / elapsed);
+		} finally {
+			clientGroup.shutdownGracefully().sync();
+			server.shutdown();
+		}
+	}
+	
+	private static FullHttpRequest newRequest() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/bench");
+		request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+		return request;
+	}
+	
+	static class FixedResponseProcessor implements NettyProcessor {
+
+		@Override
+		public void process(HttpRequestWrapper httpRequestWrapper) throws Exception {
+			httpRequestWrapper.getFullHttpRequest().release();
+			FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, 
+					HttpResponseStatus.OK, Unpooled.wrappedBuffer(BODY));
+			response.headers().set(HttpHeaderNames.CONTENT_LENGTH, BODY.length);
+			httpRequestWrapper.getCtx().writeAndFlush(response);
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+	}
+	
+}